@@ -4,6 +4,7 @@ package org.checkerframework.dataflow.analysis;
 import org.checkerframework.checker.nullness.qual.Nullable;
 */
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -87,6 +88,37 @@ public abstract class AbstractAnalysis<V extends AbstractValue<V>, S extends Sto
      */
     protected TransferInput<V, S> currentInput;
 
+    /**
+     * Whether the transfer function allows a single {@link TransferInput} to
+     * be reused within a basic block (see {@link ReusableTransferFunction}).
+     */
+    protected boolean reuseTransferInputs;
+
+    /**
+     * The transfer results handed out by {@link #getReusableResult()}, one
+     * for each nesting depth of transfer function calls.
+     */
+    protected final List<ReusableTransferResult<V, S>> reusableResults = new ArrayList<>();
+
+    /**
+     * The number of transfer function calls of this analysis that are
+     * currently active; more than one if a transfer function causes another
+     * transfer function call.
+     */
+    protected int transferDepth;
+
+    /**
+     * The cache that {@code performAnalysis} loads the result from or stores
+     * it to (or {@code null} if the result is not cached).
+     */
+    protected /*@Nullable*/ AnalysisResultCache<V, S> resultCache;
+
+    /** The key of the result in {@code resultCache}. */
+    protected /*@Nullable*/ String resultCacheKey;
+
+    /** Canonical receivers for the current control flow graph. */
+    protected ReceiverInterner receiverInterner;
+
     public AbstractAnalysis(Direction direction) {
         this.direction = direction;
     }
@@ -114,7 +146,7 @@ public abstract class AbstractAnalysis<V extends AbstractValue<V>, S extends Sto
   @Override
   public AnalysisResult<V, S> getResult() {
       assert !isRunning;
-      IdentityHashMap<Tree, Node> treeLookup = cfg.getTreeLookup();
+      Map<Tree, Node> treeLookup = cfg.getTreeLookupView();
       return new AnalysisResult<V, S> (nodeValues, inputs, treeLookup, finalLocalValues);
   }
 
@@ -122,6 +154,108 @@ public abstract class AbstractAnalysis<V extends AbstractValue<V>, S extends Sto
         this.transferFunction = transfer;
     }
 
+    /**
+     * Use {@code cache} for the next call of {@code performAnalysis}: if
+     * {@code key} is present in {@code cache}, the result is loaded instead
+     * of computed, otherwise the computed result is stored under
+     * {@code key}. Passing a {@code null} cache or key turns caching off.
+     *
+     * <p>
+     *
+     * The key is used by the next call only, because it identifies the code
+     * of one control flow graph. An analysis that is reused for another
+     * graph has to be given that graph's key again.
+     */
+    public void setResultCache(/*@Nullable*/ AnalysisResultCache<V, S> cache,
+            /*@Nullable*/ String key) {
+        this.resultCache = cache;
+        this.resultCacheKey = key;
+    }
+
+    /**
+     * @return the result cache key for the current call of
+     *         {@code performAnalysis}, which is forgotten, so that a later
+     *         call for another graph does not use it
+     */
+    protected /*@Nullable*/ String takeResultCacheKey() {
+        String key = resultCacheKey;
+        resultCacheKey = null;
+        return key;
+    }
+
+    /**
+     * Load the result for the current control flow graph from the result
+     * cache, if there is one.
+     *
+     * @param key
+     *            the key from {@link #takeResultCacheKey()}
+     * @return true if the result was loaded and no iteration is needed
+     */
+    protected boolean loadCachedResult(/*@Nullable*/ String key) {
+        if (resultCache == null || key == null) {
+            return false;
+        }
+        return resultCache.load(key, this);
+    }
+
+    /**
+     * Store the result of the finished analysis in the result cache.
+     *
+     * @param key
+     *            the key from {@link #takeResultCacheKey()}
+     */
+    protected void storeCachedResult(/*@Nullable*/ String key) {
+        if (resultCache != null && key != null) {
+            resultCache.store(key, this);
+        }
+    }
+
+    /**
+     * @return the receiver interner for the control flow graph that is
+     *         analyzed. Transfer functions and stores can pass it to
+     *         {@link FlowExpressions} to obtain canonical receivers; it is
+     *         replaced when the analysis moves on to another graph.
+     */
+    public ReceiverInterner getReceiverInterner() {
+        if (receiverInterner == null) {
+            receiverInterner = new ReceiverInterner();
+        }
+        return receiverInterner;
+    }
+
+    /**
+     * @return the {@link ReusableTransferResult} owned by this analysis for
+     *         the transfer function call that is currently active, cleared.
+     *         It is only valid until the next transfer function call at the
+     *         same depth; a nested call gets a different one, so it does not
+     *         overwrite the result of the call it is nested in.
+     */
+    public ReusableTransferResult<V, S> getReusableResult() {
+        int level = Math.max(transferDepth - 1, 0);
+        while (reusableResults.size() <= level) {
+            reusableResults.add(new ReusableTransferResult<V, S>());
+        }
+        ReusableTransferResult<V, S> result = reusableResults.get(level);
+        result.clear();
+        return result;
+    }
+
+    /**
+     * @return the transfer input for the node following {@code node} in a
+     *         basic block, given the input {@code input} and the result
+     *         {@code transferResult} of {@code node}. If the transfer function
+     *         allows it, {@code input} is updated and returned instead of
+     *         creating a new {@link TransferInput}.
+     */
+    protected TransferInput<V, S> nextInput(Node node, TransferInput<V, S> input,
+            TransferResult<V, S> transferResult) {
+        if (reuseTransferInputs) {
+            input.reset(node, transferResult);
+            return input;
+        }
+        return new TransferInput<>(node, this, transferResult);
+    }
+
     public T getTransferFunction() {
         return transferFunction;
     }
@@ -204,21 +338,26 @@ public abstract class AbstractAnalysis<V extends AbstractValue<V>, S extends Sto
     /**
      * @return the regular exit store, or {@code null}, if there is no such
      *         store (because the method cannot exit through the regular exit
-     *         block).
+     *         block). The store belongs to the analysis and must not be
+     *         modified.
      */
     public /*@Nullable*/ S getRegularExitStore() {
         SpecialBlock regularExitBlock = cfg.getRegularExitBlock();
         if (inputs.containsKey(regularExitBlock)) {
-            S regularExitStore = inputs.get(regularExitBlock).getRegularStore();
+            S regularExitStore = inputs.get(regularExitBlock).getRegularStoreForReading();
             return regularExitStore;
         } else {
             return null;
         }
     }
 
+    /**
+     * @return the exceptional exit store. The store belongs to the analysis
+     *         and must not be modified.
+     */
     public S getExceptionalExitStore() {
         S exceptionalExitStore = inputs.get(cfg.getExceptionalExitBlock())
-                .getRegularStore();
+                .getRegularStoreForReading();
         return exceptionalExitStore;
     }
 
@@ -236,8 +375,13 @@ public abstract class AbstractAnalysis<V extends AbstractValue<V>, S extends Sto
         }
         input.node = node;
         currentNode = node;
-        TransferResult<V, S> transferResult = node.accept(transferFunction,
-                input);
+        TransferResult<V, S> transferResult;
+        transferDepth++;
+        try {
+            transferResult = node.accept(transferFunction, input);
+        } finally {
+            transferDepth--;
+        }
         currentNode = null;
         // This part should implement in ForwardAnalysis
 //        if (node instanceof ReturnNode) {
@@ -268,10 +412,12 @@ public abstract class AbstractAnalysis<V extends AbstractValue<V>, S extends Sto
 
     protected void initFields(ControlFlowGraph cfg) {
         this.cfg = cfg;
+        reuseTransferInputs = transferFunction instanceof ReusableTransferFunction;
         inputs = new IdentityHashMap<>();
         worklist = new Worklist(cfg, direction);
         nodeValues = new IdentityHashMap<>();
         finalLocalValues = new HashMap<>();
+        receiverInterner = null;
     }
 
     /**
@@ -383,7 +529,8 @@ public abstract class AbstractAnalysis<V extends AbstractValue<V>, S extends Sto
      * Runs the analysis again within the block of {@code node} and returns the
      * store at the location of {@code node}. If {@code before} is true, then
      * the store immediately before the {@link Node} {@code node} is returned.
-     * Otherwise, the store after {@code node} is returned.
+     * Otherwise, the store after {@code node} is returned. The result may be
+     * a store of the analysis and must not be modified.
      */
     public static <A extends AbstractValue<A>, S extends Store<S>> S runAnalysisFor(
             Node node, boolean before, TransferInput<A, S> transferInput, Direction direction) {
@@ -407,7 +554,7 @@ public abstract class AbstractAnalysis<V extends AbstractValue<V>, S extends Sto
 
       // TODO: why if analysis is running, then the Store of passing node is analysis.currentInput.getRegularStore()?
       if (analysis.isRunning()) {
-          return analysis.currentInput.getRegularStore();
+          return analysis.currentInput.getRegularStoreForReading();
       }
 
       analysis.isRunning = true;
@@ -424,13 +571,17 @@ public abstract class AbstractAnalysis<V extends AbstractValue<V>, S extends Sto
               for (Node n : rb.getContents()) {
                   analysis.currentNode = n;
                   if (n == node && before) {
-                      return store.getRegularStore();
+                      return store.getRegularStoreForReading();
                   }
                   transferResult = analysis.callTransferFunction(n, store);
                   if (n == node) {
                       return transferResult.getRegularStore();
                   }
-                  store = new TransferInput<>(n, analysis, transferResult);
+                  // the first input is the one stored for the block, which
+                  // must not be updated in place
+                  store = store == transferInput
+                          ? new TransferInput<>(n, analysis, transferResult)
+                          : analysis.nextInput(n, store, transferResult);
               }
               // This point should never be reached. If the block of 'node' is
               // 'block', then 'node' must be part of the contents of 'block'.
@@ -444,7 +595,7 @@ public abstract class AbstractAnalysis<V extends AbstractValue<V>, S extends Sto
               // apply transfer function to content
               assert eb.getNode() == node;
               if (before) {
-                  return transferInput.getRegularStore();
+                  return transferInput.getRegularStoreForReading();
               }
               // TODO: why we need to set `analysis.currentNode = node` here?
               analysis.currentNode = node;
@@ -479,7 +630,7 @@ public abstract class AbstractAnalysis<V extends AbstractValue<V>, S extends Sto
 
         // TODO: why if analysis is running, then the Store of passing node is analysis.currentInput.getRegularStore()?
         if (analysis.isRunning()) {
-            return analysis.currentInput.getRegularStore();
+            return analysis.currentInput.getRegularStoreForReading();
         }
 
         analysis.isRunning = true;
@@ -500,13 +651,17 @@ public abstract class AbstractAnalysis<V extends AbstractValue<V>, S extends Sto
                     Node n = reverseIter.previous();
                     analysis.currentNode = n;
                     if (n == node && !before) {
-                        return store.getRegularStore();
+                        return store.getRegularStoreForReading();
                     }
                     transferResult = analysis.callTransferFunction(n, store);
                     if (n == node) {
                         return transferResult.getRegularStore();
                     }
-                    store = new TransferInput<>(n, analysis, transferResult);
+                    // the first input is the one stored for the block, which
+                    // must not be updated in place
+                    store = store == transferInput
+                            ? new TransferInput<>(n, analysis, transferResult)
+                            : analysis.nextInput(n, store, transferResult);
                 }
                 // This point should never be reached. If the block of 'node' is
                 // 'block', then 'node' must be part of the contents of 'block'.
@@ -519,7 +674,7 @@ public abstract class AbstractAnalysis<V extends AbstractValue<V>, S extends Sto
                 assert eBlock.getNode() == node;
 
                 if (!before) {
-                    return transferInput.getRegularStore();
+                    return transferInput.getRegularStoreForReading();
                 }
 
                 // TODO: why if analysis is running, then the Store of passing node is analysis.currentInput.getRegularStore()?
@@ -7,8 +7,10 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.dataflow.cfg.block.Block;
 import org.checkerframework.dataflow.cfg.node.Node;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -31,8 +33,14 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> {
     /** Abstract values of nodes. */
     protected final IdentityHashMap<Node, V> nodeValues;
 
-    /** Map from AST {@link Tree}s to {@link Node}s. */
-    protected final IdentityHashMap<Tree, Node> treeLookup;
+    /**
+     * Maps from AST {@link Tree}s to {@link Node}s: the one of the control
+     * flow graph this result was created from, followed by those of the
+     * results combined into it, in the order they were combined. The maps
+     * are shared with their control flow graphs; they are neither copied nor
+     * modified, and a lookup searches them from the last to the first.
+     */
+    protected final List<Map<Tree, Node>> treeLookups;
 
     /** Map from (effectively final) local variable elements to their abstract value. */
     protected final HashMap<Element, V> finalLocalValues;
@@ -44,12 +52,19 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> {
 
     /**
      * Initialize with a given node-value mapping.
+     *
+     * <p>
+     *
+     * <em>Aliasing</em>: {@code treeLookup} is referenced directly and is
+     * not copied. It is typically the immutable view returned by
+     * {@link org.checkerframework.dataflow.cfg.ControlFlowGraph#getTreeLookupView()}.
      */
     public AnalysisResult(Map<Node, V> nodeValues,
             IdentityHashMap<Block, TransferInput<V, S>> stores,
-            IdentityHashMap<Tree, Node> treeLookup, HashMap<Element, V> finalLocalValues) {
+            Map<Tree, Node> treeLookup, HashMap<Element, V> finalLocalValues) {
         this.nodeValues = new IdentityHashMap<>(nodeValues);
-        this.treeLookup = new IdentityHashMap<>(treeLookup);
+        this.treeLookups = new ArrayList<>(1);
+        this.treeLookups.add(treeLookup);
         this.stores = stores;
         this.finalLocalValues = finalLocalValues;
     }
@@ -59,21 +74,21 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> {
      */
     public AnalysisResult() {
         nodeValues = new IdentityHashMap<>();
-        treeLookup = new IdentityHashMap<>();
+        treeLookups = new ArrayList<>();
         stores = new IdentityHashMap<>();
         finalLocalValues = new HashMap<>();
     }
 
     /**
-     * Combine with another analysis result.
+     * Combine with another analysis result. The tree lookups of
+     * {@code other} are chained after those of this result rather than
+     * copied; for a tree in both, the lookup of {@code other} wins.
      */
     public void combine(AnalysisResult<V, S> other) {
         for (Entry<Node, V> e : other.nodeValues.entrySet()) {
             nodeValues.put(e.getKey(), e.getValue());
         }
-        for (Entry<Tree, Node> e : other.treeLookup.entrySet()) {
-            treeLookup.put(e.getKey(), e.getValue());
-        }
+        treeLookups.addAll(other.treeLookups);
         for (Entry<Block, TransferInput<V, S>> e : other.stores.entrySet()) {
             stores.put(e.getKey(), e.getValue());
         }
@@ -102,7 +117,7 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> {
      *         no information is available.
      */
     public /*@Nullable*/ V getValue(Tree t) {
-        V val = getValue(treeLookup.get(t));
+        V val = getValue(getNodeForTree(t));
         return val;
     }
 
@@ -110,7 +125,13 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> {
      * @return the {@link Node} for a given {@link Tree}.
      */
     public /*@Nullable*/ Node getNodeForTree(Tree tree) {
-        return treeLookup.get(tree);
+        for (int i = treeLookups.size() - 1; i >= 0; i--) {
+            Node node = treeLookups.get(i).get(tree);
+            if (node != null) {
+                return node;
+            }
+        }
+        return null;
     }
 
     /**
@@ -0,0 +1,389 @@
+package org.checkerframework.dataflow.analysis;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.dataflow.cfg.ControlFlowGraphNumbering;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.block.ExceptionBlock;
+import org.checkerframework.dataflow.cfg.node.AssignmentNode;
+import org.checkerframework.dataflow.cfg.node.LocalVariableNode;
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.dataflow.cfg.node.ReturnNode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.tools.Diagnostic;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.Trees;
+
+/**
+ * A file cache of analysis results, so that an analysis of code that has not
+ * changed since an earlier compilation does not need to iterate again.
+ *
+ * <p>
+ *
+ * A result is stored under a key that a client computes with
+ * {@link #computeKey}, from the source code of the analyzed method, a
+ * signature of everything the result depends on outside of that method (for
+ * example, the declarations of called methods), and a version of the
+ * transfer function. Clients pass the cache and the key to
+ * {@link AbstractAnalysis#setResultCache} before calling
+ * {@code performAnalysis}, which then loads the result if the key is
+ * present and stores it otherwise.
+ *
+ * <p>
+ *
+ * Abstract values and stores are converted with an
+ * {@link AnalysisResultCodec}; references to nodes and blocks use a
+ * {@link ControlFlowGraphNumbering}. A stored result is only loaded if the
+ * fingerprint of the current control flow graph matches. Any problem while
+ * reading or writing makes the cache behave as if the key were absent.
+ *
+ * @param <V>
+ *            The abstract value type of the analysis.
+ * @param <S>
+ *            The store type of the analysis.
+ */
+public class AnalysisResultCache<V extends AbstractValue<V>, S extends Store<S>> {
+
+    /** Marks a file written by this class. */
+    protected static final int MAGIC = 0x44464152;
+
+    /** The version of the file format; part of every key. */
+    protected static final int FORMAT_VERSION = 2;
+
+    /** The directory that holds one file per key. */
+    protected final File directory;
+
+    protected final AnalysisResultCodec<V, S> codec;
+
+    public AnalysisResultCache(File directory, AnalysisResultCodec<V, S> codec) {
+        this.directory = directory;
+        this.codec = codec;
+    }
+
+    /**
+     * Compute the cache key of an analysis of {@code code}.
+     *
+     * @param root
+     *            the compilation unit that contains {@code code}
+     * @param code
+     *            the analyzed code, usually the
+     *            {@link org.checkerframework.dataflow.cfg.UnderlyingAST#getCode() code}
+     *            of the control flow graph
+     * @param dependencySignature
+     *            a description of everything outside of {@code code} that
+     *            the result depends on
+     * @param transferVersion
+     *            a version of the transfer function, which must change
+     *            whenever the transfer function changes its results
+     * @return the key, or {@code null} if the source of {@code code} is
+     *         not available
+     */
+    public static /*@Nullable*/ String computeKey(ProcessingEnvironment env,
+            CompilationUnitTree root, Tree code, String dependencySignature,
+            String transferVersion) {
+        SourcePositions positions = Trees.instance(env).getSourcePositions();
+        long start = positions.getStartPosition(root, code);
+        long end = positions.getEndPosition(root, code);
+        if (start == Diagnostic.NOPOS || end == Diagnostic.NOPOS) {
+            return null;
+        }
+        CharSequence source;
+        try {
+            source = root.getSourceFile().getCharContent(true);
+        } catch (IOException e) {
+            return null;
+        }
+        if (end > source.length()) {
+            return null;
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+        digest.update(source.subSequence((int) start, (int) end).toString()
+                .getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(dependencySignature.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(transferVersion.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) FORMAT_VERSION);
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Replace the result of {@code analysis}, which has been initialized
+     * with a control flow graph, by the result stored under {@code key}.
+     *
+     * @return true if the result was loaded; otherwise {@code analysis} is
+     *         unchanged
+     */
+    public boolean load(String key, AbstractAnalysis<V, S, ?> analysis) {
+        File file = fileFor(key);
+        if (!file.isFile()) {
+            return false;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            return read(new DataInputStream(new ByteArrayInputStream(bytes)), analysis);
+        } catch (IOException | RuntimeException e) {
+            // A damaged or outdated file is a cache miss.
+            return false;
+        }
+    }
+
+    /**
+     * Store the result of {@code analysis}, which has finished, under
+     * {@code key}. Does nothing if the result cannot be written.
+     */
+    public void store(String key, AbstractAnalysis<V, S, ?> analysis) {
+        Path temp = null;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            write(new DataOutputStream(bytes), analysis);
+
+            Files.createDirectories(directory.toPath());
+            temp = Files.createTempFile(directory.toPath(), key, ".tmp");
+            Files.write(temp, bytes.toByteArray());
+            Path target = fileFor(key).toPath();
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+        } catch (IOException | RuntimeException e) {
+            // Not caching a result is always safe; a codec that fails
+            // must not fail the analysis.
+        } finally {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+
+    protected File fileFor(String key) {
+        return new File(directory, key + ".dfa");
+    }
+
+    protected void write(DataOutputStream out, AbstractAnalysis<V, S, ?> analysis)
+            throws IOException {
+        ControlFlowGraphNumbering numbering = new ControlFlowGraphNumbering(analysis.cfg);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(numbering.getFingerprint());
+
+        // Values of nodes outside the graph (such as parameters of the
+        // initial store) are not part of the result.
+        Map<Integer, V> values = new HashMap<>();
+        for (Entry<Node, V> e : analysis.nodeValues.entrySet()) {
+            int number = numbering.getNumber(e.getKey());
+            if (number >= 0) {
+                values.put(number, e.getValue());
+            }
+        }
+        out.writeInt(values.size());
+        for (Entry<Integer, V> e : values.entrySet()) {
+            out.writeInt(e.getKey());
+            codec.writeValue(e.getValue(), out, numbering);
+        }
+
+        out.writeInt(analysis.inputs.size());
+        for (Entry<Block, TransferInput<V, S>> e : analysis.inputs.entrySet()) {
+            int number = numbering.getNumber(e.getKey());
+            if (number < 0) {
+                throw new IOException("input of a block outside the graph");
+            }
+            TransferInput<V, S> input = e.getValue();
+            out.writeInt(number);
+            out.writeInt(input.node == null ? -1 : numbering.getNumber(input.node));
+            out.writeBoolean(input.containsTwoStores());
+            if (input.containsTwoStores()) {
+                codec.writeStore(input.getThenStore(), out, numbering);
+                codec.writeStore(input.getElseStoreForReading(), out, numbering);
+            } else {
+                codec.writeStore(input.getRegularStoreForReading(), out, numbering);
+            }
+        }
+
+        // Effectively final locals are identified by their assignment.
+        Map<Element, Integer> assignments = new HashMap<>();
+        for (int i = 0; i < numbering.getNodeCount(); i++) {
+            Node node = numbering.getNode(i);
+            if (node instanceof AssignmentNode
+                    && ((AssignmentNode) node).getTarget() instanceof LocalVariableNode) {
+                LocalVariableNode lhs = (LocalVariableNode) ((AssignmentNode) node).getTarget();
+                assignments.put(lhs.getElement(), i);
+            }
+        }
+        out.writeInt(analysis.finalLocalValues.size());
+        for (Entry<Element, V> e : analysis.finalLocalValues.entrySet()) {
+            Integer number = assignments.get(e.getKey());
+            if (number == null) {
+                throw new IOException("final local without assignment: " + e.getKey());
+            }
+            out.writeInt(number);
+            codec.writeValue(e.getValue(), out, numbering);
+        }
+
+        if (analysis instanceof ForwardAnalysisImpl) {
+            ForwardAnalysisImpl<V, S, ?> forward = (ForwardAnalysisImpl<V, S, ?>) analysis;
+            out.writeInt(forward.storesAtReturnStatements.size());
+            for (Entry<ReturnNode, TransferResult<V, S>> e
+                    : forward.storesAtReturnStatements.entrySet()) {
+                out.writeInt(numbering.getNumber(e.getKey()));
+                V value = e.getValue().getResultValue();
+                out.writeBoolean(value != null);
+                if (value != null) {
+                    codec.writeValue(value, out, numbering);
+                }
+                codec.writeStore(e.getValue().getRegularStore(), out, numbering);
+            }
+        } else if (analysis instanceof BackwardAnalysisImpl) {
+            BackwardAnalysisImpl<V, S, ?> backward = (BackwardAnalysisImpl<V, S, ?>) analysis;
+            out.writeBoolean(backward.storeAtEntry != null);
+            if (backward.storeAtEntry != null) {
+                codec.writeStore(backward.storeAtEntry, out, numbering);
+            }
+            // runAnalysisFor reads the stores after blocks, so they are part
+            // of the result.
+            writeBlockStores(backward.outStores, out, numbering);
+            writeBlockStores(backward.exceptionStores, out, numbering);
+        }
+        out.flush();
+    }
+
+    protected boolean read(DataInputStream in, AbstractAnalysis<V, S, ?> analysis)
+            throws IOException {
+        ControlFlowGraphNumbering numbering = new ControlFlowGraphNumbering(analysis.cfg);
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION
+                || in.readLong() != numbering.getFingerprint()) {
+            return false;
+        }
+
+        IdentityHashMap<Node, V> nodeValues = new IdentityHashMap<>();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Node node = numbering.getNode(in.readInt());
+            nodeValues.put(node, codec.readValue(in, numbering));
+        }
+
+        IdentityHashMap<Block, TransferInput<V, S>> inputs = new IdentityHashMap<>();
+        count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Block block = numbering.getBlock(in.readInt());
+            int nodeNumber = in.readInt();
+            Node node = nodeNumber < 0 ? null : numbering.getNode(nodeNumber);
+            TransferInput<V, S> input;
+            if (in.readBoolean()) {
+                S thenStore = codec.readStore(in, numbering);
+                S elseStore = codec.readStore(in, numbering);
+                input = new TransferInput<>(node, analysis, thenStore, elseStore);
+            } else {
+                input = new TransferInput<>(node, analysis, codec.readStore(in, numbering));
+            }
+            inputs.put(block, input);
+        }
+
+        HashMap<Element, V> finalLocalValues = new HashMap<>();
+        count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            AssignmentNode assignment = (AssignmentNode) numbering.getNode(in.readInt());
+            Element element = ((LocalVariableNode) assignment.getTarget()).getElement();
+            finalLocalValues.put(element, codec.readValue(in, numbering));
+        }
+
+        IdentityHashMap<ReturnNode, TransferResult<V, S>> returnStores = null;
+        S storeAtEntry = null;
+        IdentityHashMap<Block, S> outStores = null;
+        IdentityHashMap<ExceptionBlock, S> exceptionStores = null;
+        if (analysis instanceof ForwardAnalysisImpl) {
+            returnStores = new IdentityHashMap<>();
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ReturnNode node = (ReturnNode) numbering.getNode(in.readInt());
+                V value = in.readBoolean() ? codec.readValue(in, numbering) : null;
+                S store = codec.readStore(in, numbering);
+                returnStores.put(node, new RegularTransferResult<>(value, store));
+            }
+        } else if (analysis instanceof BackwardAnalysisImpl) {
+            if (in.readBoolean()) {
+                storeAtEntry = codec.readStore(in, numbering);
+            }
+            outStores = new IdentityHashMap<>();
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Block block = numbering.getBlock(in.readInt());
+                outStores.put(block, codec.readStore(in, numbering));
+            }
+            exceptionStores = new IdentityHashMap<>();
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ExceptionBlock block = (ExceptionBlock) numbering.getBlock(in.readInt());
+                exceptionStores.put(block, codec.readStore(in, numbering));
+            }
+        }
+
+        // Everything was read successfully; install the result.
+        analysis.nodeValues = nodeValues;
+        analysis.inputs = inputs;
+        analysis.finalLocalValues = finalLocalValues;
+        if (analysis instanceof ForwardAnalysisImpl) {
+            ((ForwardAnalysisImpl<V, S, ?>) analysis).storesAtReturnStatements = returnStores;
+        } else if (analysis instanceof BackwardAnalysisImpl) {
+            BackwardAnalysisImpl<V, S, ?> backward = (BackwardAnalysisImpl<V, S, ?>) analysis;
+            backward.storeAtEntry = storeAtEntry;
+            backward.outStores = outStores;
+            backward.exceptionStores = exceptionStores;
+        }
+        return true;
+    }
+
+    /** Write the stores of {@code stores} together with their block numbers. */
+    protected void writeBlockStores(Map<? extends Block, S> stores,
+            DataOutputStream out, ControlFlowGraphNumbering numbering)
+            throws IOException {
+        out.writeInt(stores.size());
+        for (Entry<? extends Block, S> e : stores.entrySet()) {
+            int number = numbering.getNumber(e.getKey());
+            if (number < 0) {
+                throw new IOException("store of a block outside the graph");
+            }
+            out.writeInt(number);
+            codec.writeStore(e.getValue(), out, numbering);
+        }
+    }
+}
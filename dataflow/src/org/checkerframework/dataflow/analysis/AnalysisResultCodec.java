@@ -0,0 +1,48 @@
+package org.checkerframework.dataflow.analysis;
+
+import org.checkerframework.dataflow.cfg.ControlFlowGraphNumbering;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converts the abstract values and stores of an analysis to and from bytes,
+ * so that an {@link AnalysisResultCache} can keep the result of an analysis
+ * across compilations. Each {@link AbstractValue} and {@link Store}
+ * implementation that wants to be cached provides its own codec.
+ *
+ * <p>
+ *
+ * Values and stores often refer to nodes of the control flow graph. A codec
+ * has to write such references as numbers from the given
+ * {@link ControlFlowGraphNumbering} and has to resolve them with the
+ * numbering it is given when reading, which belongs to a different instance
+ * of the same graph.
+ *
+ * <p>
+ *
+ * A codec that cannot write some value or store throws an
+ * {@link IOException}; the cache then does not store the result.
+ *
+ * @param <V>
+ *            The abstract value type of the analysis.
+ * @param <S>
+ *            The store type of the analysis.
+ */
+public interface AnalysisResultCodec<V extends AbstractValue<V>, S extends Store<S>> {
+
+    /** Write {@code value}, which is not {@code null}. */
+    void writeValue(V value, DataOutput out, ControlFlowGraphNumbering numbering)
+            throws IOException;
+
+    /** @return a value written by {@link #writeValue} */
+    V readValue(DataInput in, ControlFlowGraphNumbering numbering) throws IOException;
+
+    /** Write {@code store}, which is not {@code null}. */
+    void writeStore(S store, DataOutput out, ControlFlowGraphNumbering numbering)
+            throws IOException;
+
+    /** @return a store written by {@link #writeStore} */
+    S readStore(DataInput in, ControlFlowGraphNumbering numbering) throws IOException;
+}
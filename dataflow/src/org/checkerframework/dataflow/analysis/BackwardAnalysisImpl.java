@@ -53,6 +53,12 @@ public class BackwardAnalysisImpl<V extends AbstractValue<V>, S extends Store<S>
 
         init(cfg);
 
+        String cacheKey = takeResultCacheKey();
+        if (loadCachedResult(cacheKey)) {
+            isRunning = false;
+            return;
+        }
+
         while (!worklist.isEmpty()) {
             Block block = worklist.poll();
 
@@ -73,7 +79,7 @@ public class BackwardAnalysisImpl<V extends AbstractValue<V>, S extends Store<S>
                     Node node = reverseIter.previous();
                     transferResult = callTransferFunction(node, currentInput);
                     addToWorklistAgain |= updateNodeValues(node, transferResult);
-                    currentInput = new TransferInput<>(node, this, transferResult);
+                    currentInput = nextInput(node, currentInput, transferResult);
                     firstNode = node;
                 }
                 //propagate store to predecessors
@@ -136,6 +142,8 @@ public class BackwardAnalysisImpl<V extends AbstractValue<V>, S extends Store<S>
             }
         }
 
+        storeCachedResult(cacheKey);
+
         assert isRunning == true;
         isRunning = false;
     }
@@ -1,5 +1,9 @@
 package org.checkerframework.dataflow.analysis;
 
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -56,14 +60,25 @@ public class FlowExpressions {
      */
     public static FieldAccess internalReprOfFieldAccess(
             AnnotationProvider provider, FieldAccessNode node) {
+        return internalReprOfFieldAccess(provider, node, null);
+    }
+
+    /**
+     * @return the internal representation (as {@link FieldAccess}) of a
+     *         {@link FieldAccessNode}, canonicalized by {@code interner} if it
+     *         is not {@code null}. Can contain {@link Unknown} as receiver.
+     */
+    public static FieldAccess internalReprOfFieldAccess(
+            AnnotationProvider provider, FieldAccessNode node,
+            /*@Nullable*/ ReceiverInterner interner) {
         Receiver receiver;
         Node receiverNode = node.getReceiver();
         if (node.isStatic()) {
-            receiver = new ClassName(receiverNode.getType());
+            receiver = intern(interner, new ClassName(receiverNode.getType()));
         } else {
-            receiver = internalReprOf(provider, receiverNode);
+            receiver = internalReprOf(provider, receiverNode, false, interner);
         }
-        return new FieldAccess(receiver, node);
+        return intern(interner, new FieldAccess(receiver, node));
     }
 
     /**
@@ -72,9 +87,20 @@ public class FlowExpressions {
      */
     public static ArrayAccess internalReprOfArrayAccess(
             AnnotationProvider provider, ArrayAccessNode node) {
-        Receiver receiver = internalReprOf(provider, node.getArray());
-        Receiver index = internalReprOf(provider, node.getIndex());
-        return new ArrayAccess(node.getType(), receiver, index);
+        return internalReprOfArrayAccess(provider, node, null);
+    }
+
+    /**
+     * @return the internal representation (as {@link ArrayAccess}) of an
+     *         {@link ArrayAccessNode}, canonicalized by {@code interner} if it
+     *         is not {@code null}.
+     */
+    public static ArrayAccess internalReprOfArrayAccess(
+            AnnotationProvider provider, ArrayAccessNode node,
+            /*@Nullable*/ ReceiverInterner interner) {
+        Receiver receiver = internalReprOf(provider, node.getArray(), false, interner);
+        Receiver index = internalReprOf(provider, node.getIndex(), false, interner);
+        return intern(interner, new ArrayAccess(node.getType(), receiver, index));
     }
 
     /**
@@ -98,6 +124,42 @@ public class FlowExpressions {
      */
     public static Receiver internalReprOf(AnnotationProvider provider,
             Node receiverNode, boolean allowNonDeterministic) {
+        return internalReprOf(provider, receiverNode, allowNonDeterministic, null);
+    }
+
+    /**
+     * Like {@link #internalReprOf(AnnotationProvider, Node, boolean)}, but
+     * if {@code interner} is not {@code null}, the result and all its
+     * subexpressions are interned with {@code interner} as they are
+     * constructed, so they are its canonical instances except for the
+     * {@link ThisReference}s and {@link Unknown}s that
+     * {@link ReceiverInterner#intern} leaves alone. The result is also
+     * remembered for {@code receiverNode}, so that asking
+     * again for the same node and {@code allowNonDeterministic} is a table
+     * lookup. Receivers that contain {@link Unknown} are not remembered, as
+     * each of them has to stay distinct.
+     */
+    public static Receiver internalReprOf(AnnotationProvider provider,
+            Node receiverNode, boolean allowNonDeterministic,
+            /*@Nullable*/ ReceiverInterner interner) {
+        if (interner == null) {
+            return computeInternalReprOf(provider, receiverNode,
+                    allowNonDeterministic, null);
+        }
+        Receiver receiver = interner.getReceiverOf(receiverNode, allowNonDeterministic);
+        if (receiver == null) {
+            receiver = computeInternalReprOf(provider, receiverNode,
+                    allowNonDeterministic, interner);
+            if (!receiver.containsUnknown()) {
+                interner.putReceiverOf(receiverNode, allowNonDeterministic, receiver);
+            }
+        }
+        return receiver;
+    }
+
+    private static Receiver computeInternalReprOf(AnnotationProvider provider,
+            Node receiverNode, boolean allowNonDeterministic,
+            /*@Nullable*/ ReceiverInterner interner) {
         Receiver receiver = null;
         if (receiverNode instanceof FieldAccessNode) {
             FieldAccessNode fan = (FieldAccessNode) receiverNode;
@@ -105,49 +167,50 @@ public class FlowExpressions {
             if (fan.getFieldName().equals("this")) {
                 // For some reason, "className.this" is considered a field access.
                 // We right this wrong here.
-                receiver = new ThisReference(fan.getReceiver().getType());
+                receiver = intern(interner, new ThisReference(fan.getReceiver().getType()));
             } else if (fan.getFieldName().equals("class")) {
                 // "className.class" is considered a field access. This makes sense,
                 // since .class is similar to a field access which is the equivalent
                 // of a call to getClass(). However for the purposes of dataflow
                 // analysis, and value stores, this is the equivalent of a ClassNameNode.
-                receiver = new ClassName(fan.getReceiver().getType());
+                receiver = intern(interner, new ClassName(fan.getReceiver().getType()));
             }  else {
-                receiver = internalReprOfFieldAccess(provider, fan);
+                receiver = internalReprOfFieldAccess(provider, fan, interner);
             }
         } else if (receiverNode instanceof ExplicitThisLiteralNode) {
-            receiver = new ThisReference(receiverNode.getType());
+            receiver = intern(interner, new ThisReference(receiverNode.getType()));
         } else if (receiverNode instanceof ThisLiteralNode) {
-            receiver = new ThisReference(receiverNode.getType());
+            receiver = intern(interner, new ThisReference(receiverNode.getType()));
         } else if (receiverNode instanceof SuperNode) {
-            receiver = new ThisReference(receiverNode.getType());
+            receiver = intern(interner, new ThisReference(receiverNode.getType()));
         } else if (receiverNode instanceof LocalVariableNode) {
             LocalVariableNode lv = (LocalVariableNode) receiverNode;
-            receiver = new LocalVariable(lv);
+            receiver = intern(interner, new LocalVariable(lv));
         } else if (receiverNode instanceof ArrayAccessNode) {
             ArrayAccessNode a = (ArrayAccessNode) receiverNode;
-            receiver = internalReprOfArrayAccess(provider, a);
+            receiver = internalReprOfArrayAccess(provider, a, interner);
         } else if (receiverNode instanceof StringConversionNode) {
             // ignore string conversion
             return internalReprOf(provider,
-                    ((StringConversionNode) receiverNode).getOperand());
+                    ((StringConversionNode) receiverNode).getOperand(), false, interner);
         } else if (receiverNode instanceof WideningConversionNode) {
             // ignore widening
             return internalReprOf(provider,
-                    ((WideningConversionNode) receiverNode).getOperand());
+                    ((WideningConversionNode) receiverNode).getOperand(), false, interner);
         } else if (receiverNode instanceof NarrowingConversionNode) {
             // ignore narrowing
             return internalReprOf(provider,
-                    ((NarrowingConversionNode) receiverNode).getOperand());
+                    ((NarrowingConversionNode) receiverNode).getOperand(), false, interner);
         } else if (receiverNode instanceof ClassNameNode) {
             ClassNameNode cn = (ClassNameNode) receiverNode;
-            receiver = new ClassName(cn.getType());
+            receiver = intern(interner, new ClassName(cn.getType()));
         } else if (receiverNode instanceof ValueLiteralNode) {
             ValueLiteralNode vn = (ValueLiteralNode) receiverNode;
-            receiver = new ValueLiteral(vn.getType(), vn);
+            receiver = intern(interner, new ValueLiteral(vn.getType(), vn));
         } else if (receiverNode instanceof ArrayCreationNode) {
             ArrayCreationNode an = (ArrayCreationNode)receiverNode;
-            receiver = new ArrayCreation(an.getType(), an.getDimensions(), an.getInitializers());
+            receiver = intern(interner, new ArrayCreation(an.getType(),
+                    an.getDimensions(), an.getInitializers()));
         } else if (receiverNode instanceof MethodInvocationNode) {
             MethodInvocationNode mn = (MethodInvocationNode) receiverNode;
             ExecutableElement invokedMethod = TreeUtils.elementFromUse(mn
@@ -168,27 +231,32 @@ public class FlowExpressions {
             if (PurityUtils.isDeterministic(provider, invokedMethod) || allowNonDeterministic || considerDeterministic) {
                 List<Receiver> parameters = new ArrayList<>();
                 for (Node p : mn.getArguments()) {
-                    parameters.add(internalReprOf(provider, p));
+                    parameters.add(internalReprOf(provider, p, false, interner));
                 }
                 Receiver methodReceiver;
                 if (ElementUtils.isStatic(invokedMethod)) {
-                    methodReceiver = new ClassName(mn.getTarget().getReceiver()
-                            .getType());
+                    methodReceiver = intern(interner, new ClassName(
+                            mn.getTarget().getReceiver().getType()));
                 } else {
                     methodReceiver = internalReprOf(provider, mn.getTarget()
-                            .getReceiver());
+                            .getReceiver(), false, interner);
                 }
-                receiver = new MethodCall(mn.getType(), invokedMethod,
-                        methodReceiver, parameters);
+                receiver = intern(interner, new MethodCall(mn.getType(), invokedMethod,
+                        methodReceiver, parameters));
             }
         }
 
         if (receiver == null) {
-            receiver = new Unknown(receiverNode.getType());
+            return new Unknown(receiverNode.getType());
         }
         return receiver;
     }
 
+    private static <R extends Receiver> R intern(
+            /*@Nullable*/ ReceiverInterner interner, R receiver) {
+        return interner == null ? receiver : interner.intern(receiver);
+    }
+
     public static abstract class Receiver {
         protected final TypeMirror type;
 
@@ -250,6 +318,9 @@ public class FlowExpressions {
         protected Receiver receiver;
         protected VariableElement field;
 
+        /** The hash code, or 0 if not computed yet. */
+        private int hash;
+
         public Receiver getReceiver() {
             return receiver;
         }
@@ -281,6 +352,9 @@ public class FlowExpressions {
 
         @Override
         public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
             if (obj == null || !(obj instanceof FieldAccess)) {
                 return false;
             }
@@ -291,7 +365,10 @@ public class FlowExpressions {
 
         @Override
         public int hashCode() {
-            return HashCodeUtils.hash(getField(), getReceiver());
+            if (hash == 0) {
+                hash = HashCodeUtils.hash(getField(), getReceiver());
+            }
+            return hash;
         }
 
         @Override
@@ -381,12 +458,18 @@ public class FlowExpressions {
     public static class ClassName extends Receiver {
         protected Element element;
 
+        /** The hash code, or 0 if not computed yet. */
+        private int hash;
+
         public ClassName(TypeMirror type) {
             super(type);
         }
 
         @Override
         public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
             if (obj == null || !(obj instanceof ClassName)) {
                 return false;
             }
@@ -396,7 +479,10 @@ public class FlowExpressions {
 
         @Override
         public int hashCode() {
-            return HashCodeUtils.hash(getType().toString());
+            if (hash == 0) {
+                hash = HashCodeUtils.hash(getType().toString());
+            }
+            return hash;
         }
 
         @Override
@@ -465,6 +551,9 @@ public class FlowExpressions {
     public static class LocalVariable extends Receiver {
         protected Element element;
 
+        /** The hash code, or 0 if not computed yet. */
+        private int hash;
+
         public LocalVariable(LocalVariableNode localVar) {
             super(localVar.getType());
             this.element = localVar.getElement();
@@ -477,6 +566,9 @@ public class FlowExpressions {
 
         @Override
         public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
             if (obj == null || !(obj instanceof LocalVariable)) {
                 return false;
             }
@@ -498,10 +590,13 @@ public class FlowExpressions {
 
         @Override
         public int hashCode() {
-            VarSymbol vs = (VarSymbol) element;
-            return HashCodeUtils.hash(vs.name.toString(),
-                    vs.type.unannotatedType().toString(),
-                    vs.owner.toString());
+            if (hash == 0) {
+                VarSymbol vs = (VarSymbol) element;
+                hash = HashCodeUtils.hash(vs.name.toString(),
+                        vs.type.unannotatedType().toString(),
+                        vs.owner.toString());
+            }
+            return hash;
         }
 
         @Override
@@ -538,6 +633,9 @@ public class FlowExpressions {
 
         protected final Object value;
 
+        /** The hash code, or 0 if not computed yet. */
+        private int hash;
+
         public ValueLiteral(TypeMirror type, ValueLiteralNode node) {
             super(type);
             value = node.getValue();
@@ -560,6 +658,9 @@ public class FlowExpressions {
 
         @Override
         public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
             if (obj == null || !(obj instanceof ValueLiteral)) {
                 return false;
             }
@@ -584,7 +685,10 @@ public class FlowExpressions {
 
         @Override
         public int hashCode() {
-            return HashCodeUtils.hash(value, type.toString());
+            if (hash == 0) {
+                hash = HashCodeUtils.hash(value, type.toString());
+            }
+            return hash;
         }
 
         @Override
@@ -612,6 +716,9 @@ public class FlowExpressions {
         protected final List<Receiver> parameters;
         protected final Element method;
 
+        /** The hash code, or 0 if not computed yet. */
+        private int hash;
+
         public MethodCall(TypeMirror type, Element method,
                 Receiver receiver, List<Receiver> parameters) {
             super(type);
@@ -713,10 +820,16 @@ public class FlowExpressions {
 
         @Override
         public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
             if (obj == null || !(obj instanceof MethodCall)) {
                 return false;
             }
             MethodCall other = (MethodCall) obj;
+            if (hashCode() != other.hashCode()) {
+                return false;
+            }
             int i = 0;
             for (Receiver p : parameters) {
                 if (!p.equals(other.parameters.get(i))) {
@@ -730,9 +843,12 @@ public class FlowExpressions {
 
         @Override
         public int hashCode() {
-            int hash = HashCodeUtils.hash(method, receiver);
-            for (Receiver p : parameters) {
-                hash = HashCodeUtils.hash(hash, p);
+            if (hash == 0) {
+                int h = HashCodeUtils.hash(method, receiver);
+                for (Receiver p : parameters) {
+                    h = HashCodeUtils.hash(h, p);
+                }
+                hash = h;
             }
             return hash;
         }
@@ -766,6 +882,9 @@ public class FlowExpressions {
         protected final Receiver receiver;
         protected final Receiver index;
 
+        /** The hash code, or 0 if not computed yet. */
+        private int hash;
+
         public ArrayAccess(TypeMirror type, Receiver receiver, Receiver index) {
             super(type);
             this.receiver = receiver;
@@ -824,6 +943,9 @@ public class FlowExpressions {
 
         @Override
         public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
             if (obj == null || !(obj instanceof ArrayAccess)) {
                 return false;
             }
@@ -833,7 +955,10 @@ public class FlowExpressions {
 
         @Override
         public int hashCode() {
-            return HashCodeUtils.hash(receiver, index);
+            if (hash == 0) {
+                hash = HashCodeUtils.hash(receiver, index);
+            }
+            return hash;
         }
 
         @Override
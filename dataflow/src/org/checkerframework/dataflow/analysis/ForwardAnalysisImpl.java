@@ -103,6 +103,12 @@ public class ForwardAnalysisImpl<V extends AbstractValue<V>, S extends Store<S>,
 
         init(cfg);
 
+        String cacheKey = takeResultCacheKey();
+        if (loadCachedResult(cacheKey)) {
+            isRunning = false;
+            return;
+        }
+
         while (!worklist.isEmpty()) {
             Block b = worklist.poll();
 
@@ -119,7 +125,7 @@ public class ForwardAnalysisImpl<V extends AbstractValue<V>, S extends Store<S>,
                 for (Node n : rb.getContents()) {
                     transferResult = callTransferFunction(n, currentInput);
                     addToWorklistAgain |= updateNodeValues(n, transferResult);
-                    currentInput = new TransferInput<>(n, this, transferResult);
+                    currentInput = nextInput(n, currentInput, transferResult);
                     lastNode = n;
                 }
                 // loop will run at least one, making transferResult non-null
@@ -145,7 +151,7 @@ public class ForwardAnalysisImpl<V extends AbstractValue<V>, S extends Store<S>,
                 // propagate store to successor
                 Block succ = eb.getSuccessor();
                 if (succ != null) {
-                    currentInput = new TransferInput<>(node, this, transferResult);
+                    currentInput = nextInput(node, currentInput, transferResult);
                     // TODO? Variable wasn't used.
                     // Store.FlowRule storeFlow = eb.getFlowRule();
                     propagateStoresTo(succ, node, currentInput, eb.getFlowRule(), addToWorklistAgain);
@@ -164,7 +170,7 @@ public class ForwardAnalysisImpl<V extends AbstractValue<V>, S extends Store<S>,
                         }
                     } else {
                         for (Block exceptionSucc : e.getValue()) {
-                            addStoreBefore(exceptionSucc, node, inputBefore.copy().getRegularStore(),
+                            addStoreBefore(exceptionSucc, node, inputBefore.getRegularStoreForReading().copy(),
                                            Store.Kind.BOTH, addToWorklistAgain);
                         }
                     }
@@ -205,6 +211,8 @@ public class ForwardAnalysisImpl<V extends AbstractValue<V>, S extends Store<S>,
             }
         }
 
+        storeCachedResult(cacheKey);
+
         assert isRunning == true;
         isRunning = false;
     }
@@ -259,7 +267,12 @@ public class ForwardAnalysisImpl<V extends AbstractValue<V>, S extends Store<S>,
         if (node instanceof ReturnNode) {
         // save a copy of the store to later check if some property held at
         // a given return statement
-        storesAtReturnStatements.put((ReturnNode) node, transferResult);
+        TransferResult<V, S> storedResult = transferResult;
+        if (storedResult instanceof ReusableTransferResult) {
+            // the reusable result is overwritten by the next transfer
+            storedResult = ((ReusableTransferResult<V, S>) storedResult).snapshot();
+        }
+        storesAtReturnStatements.put((ReturnNode) node, storedResult);
         }
         return transferResult;
     }
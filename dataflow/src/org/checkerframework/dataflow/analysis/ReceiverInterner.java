@@ -0,0 +1,104 @@
+package org.checkerframework.dataflow.analysis;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.dataflow.analysis.FlowExpressions.Receiver;
+import org.checkerframework.dataflow.analysis.FlowExpressions.ThisReference;
+import org.checkerframework.dataflow.analysis.FlowExpressions.Unknown;
+import org.checkerframework.dataflow.cfg.node.Node;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A table of canonical {@link Receiver} instances. Interning the receivers
+ * that are created for the nodes of a control flow graph (see
+ * {@link FlowExpressions#internalReprOf(org.checkerframework.javacutil.AnnotationProvider,
+ * org.checkerframework.dataflow.cfg.node.Node, boolean, ReceiverInterner)})
+ * means that receivers which are {@code equals} are usually also identical,
+ * so comparing them in a store lookup stops at the reference check, and
+ * their hash codes, which are cached, are computed only once.
+ *
+ * <p>
+ *
+ * Receivers are compared with {@code equals}, so interning never changes the
+ * meaning of a store. {@link Unknown} receivers are only equal to themselves
+ * and are not interned, and neither are {@link ThisReference}s, which are
+ * all equal but carry different types.
+ *
+ * <p>
+ *
+ * The interner also remembers the receiver that was computed for each node,
+ * separately for deterministic and possibly non-deterministic method calls,
+ * so that the transfer function does not redo the element and purity
+ * lookups every time it visits a node. This assumes that all receivers are
+ * computed with the same {@link org.checkerframework.javacutil.AnnotationProvider}.
+ *
+ * <p>
+ *
+ * An interner keeps all receivers it has seen, so it should live as long as
+ * the analysis of one control flow graph; see
+ * {@link AbstractAnalysis#getReceiverInterner()}.
+ */
+public class ReceiverInterner {
+
+    protected final Map<Receiver, Receiver> canonical = new HashMap<>();
+
+    /** The receiver of each node, with only deterministic method calls. */
+    protected final Map<Node, Receiver> deterministicReceivers = new IdentityHashMap<>();
+
+    /** The receiver of each node, allowing non-deterministic method calls. */
+    protected final Map<Node, Receiver> nonDeterministicReceivers = new IdentityHashMap<>();
+
+    /**
+     * @return the canonical receiver that is equal to {@code receiver};
+     *         {@code receiver} itself if there was none yet
+     */
+    @SuppressWarnings("unchecked")
+    public <R extends Receiver> R intern(R receiver) {
+        if (receiver instanceof Unknown || receiver instanceof ThisReference) {
+            return receiver;
+        }
+        Receiver existing = canonical.get(receiver);
+        if (existing == null) {
+            canonical.put(receiver, receiver);
+            return receiver;
+        }
+        // equals implies the same class for all receivers except subclasses
+        // that override equals loosely.
+        if (existing.getClass() != receiver.getClass()) {
+            return receiver;
+        }
+        return (R) existing;
+    }
+
+    /**
+     * @return the receiver remembered for {@code node} by
+     *         {@link #putReceiverOf}, or {@code null} if there is none
+     */
+    public /*@Nullable*/ Receiver getReceiverOf(Node node, boolean allowNonDeterministic) {
+        return (allowNonDeterministic ? nonDeterministicReceivers
+                : deterministicReceivers).get(node);
+    }
+
+    /** Remember {@code receiver} as the receiver of {@code node}. */
+    public void putReceiverOf(Node node, boolean allowNonDeterministic, Receiver receiver) {
+        (allowNonDeterministic ? nonDeterministicReceivers
+                : deterministicReceivers).put(node, receiver);
+    }
+
+    /** @return the number of canonical receivers */
+    public int size() {
+        return canonical.size();
+    }
+
+    /** Forget all canonical receivers. */
+    public void clear() {
+        canonical.clear();
+        deterministicReceivers.clear();
+        nonDeterministicReceivers.clear();
+    }
+}
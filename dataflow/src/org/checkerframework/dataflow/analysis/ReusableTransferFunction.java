@@ -0,0 +1,27 @@
+package org.checkerframework.dataflow.analysis;
+
+/**
+ * A {@link TransferFunction} that allows the analysis to reuse
+ * {@link TransferInput}s within a basic block.
+ *
+ * <p>
+ *
+ * By default, the analysis creates a new {@link TransferInput} for every node
+ * it processes. If the transfer function implements this interface, the
+ * analysis instead updates a single {@link TransferInput} in place as it
+ * walks through a basic block. In exchange, the transfer function guarantees
+ * that it does not keep a reference to any {@link TransferInput} passed to it
+ * beyond the call it was passed to.
+ *
+ * <p>
+ *
+ * Independently of this interface, every transfer function can avoid
+ * allocating its result by returning the object from
+ * {@link TransferInput#getReusableResult()}.
+ *
+ * @param <S>
+ *            The {@link Store} used to keep track of intermediate results.
+ */
+public interface ReusableTransferFunction<V extends AbstractValue<V>, S extends Store<S>>
+        extends TransferFunction<V, S> {
+}
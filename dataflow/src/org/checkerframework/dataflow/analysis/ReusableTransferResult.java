@@ -0,0 +1,192 @@
+package org.checkerframework.dataflow.analysis;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import java.util.Map;
+
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * A mutable {@link TransferResult} that is owned by an analysis and reused for
+ * every node it processes. A transfer function obtains it through
+ * {@link TransferInput#getReusableResult()}, fills it with one of the
+ * {@code set} methods, and returns it instead of allocating a new
+ * {@link RegularTransferResult} or {@link ConditionalTransferResult}.
+ *
+ * <p>
+ *
+ * A {@code ReusableTransferResult} is only valid until the next call of a
+ * transfer function of the same analysis at the same nesting depth; a
+ * transfer call that is nested in another one, for example because a
+ * transfer function queries another analysis result, uses a different
+ * object. Use {@link #snapshot()} to obtain a result that can be kept longer.
+ *
+ * @param <S>
+ *            The {@link Store} used to keep track of intermediate results.
+ */
+public class ReusableTransferResult<A extends AbstractValue<A>, S extends Store<S>>
+        extends TransferResult<A, S> {
+
+    /** The regular store, or {@code null} if two stores are present. */
+    protected /*@Nullable*/ S store;
+
+    /** The 'then' store, or {@code null} if only one store is present. */
+    protected /*@Nullable*/ S thenStore;
+
+    /** The 'else' store, or {@code null} if only one store is present. */
+    protected /*@Nullable*/ S elseStore;
+
+    /**
+     * The least upper bound of {@code thenStore} and {@code elseStore}, once
+     * {@link #getRegularStoreForReading()} has computed it (or {@code null}).
+     * It is owned by this result and never handed out for modification.
+     */
+    protected /*@Nullable*/ S joinedStore;
+
+    protected boolean storeChanged;
+
+    public ReusableTransferResult() {
+        super(null);
+    }
+
+    /**
+     * Reset this result so that it holds no value, no stores and no
+     * exceptional stores.
+     */
+    public void clear() {
+        resultValue = null;
+        store = thenStore = elseStore = joinedStore = null;
+        exceptionalStores = null;
+        storeChanged = false;
+    }
+
+    /**
+     * Set this result to a single resulting store, like
+     * {@link RegularTransferResult#RegularTransferResult(AbstractValue, Store, boolean)}.
+     * The same aliasing rules apply.
+     *
+     * @return this result (for convenience)
+     */
+    public ReusableTransferResult<A, S> set(A value, S resultStore, boolean storeChanged) {
+        this.resultValue = value;
+        this.store = resultStore;
+        this.thenStore = this.elseStore = this.joinedStore = null;
+        this.storeChanged = storeChanged;
+        return this;
+    }
+
+    /**
+     * Set this result to a 'then' and an 'else' store, like
+     * {@link ConditionalTransferResult#ConditionalTransferResult(AbstractValue, Store, Store, boolean)}.
+     * The same aliasing rules apply.
+     *
+     * @return this result (for convenience)
+     */
+    public ReusableTransferResult<A, S> set(A value, S thenStore, S elseStore,
+            boolean storeChanged) {
+        this.resultValue = value;
+        this.store = null;
+        this.thenStore = thenStore;
+        this.elseStore = elseStore;
+        this.joinedStore = null;
+        this.storeChanged = storeChanged;
+        return this;
+    }
+
+    /**
+     * Set the stores that flow along exceptional edges (see
+     * {@link TransferResult#getExceptionalStore(TypeMirror)}).
+     */
+    public void setExceptionalStores(/*@Nullable*/ Map<TypeMirror, S> exceptionalStores) {
+        this.exceptionalStores = exceptionalStores;
+    }
+
+    /**
+     * Like {@link TransferInput#getRegularStore()}: if two stores are
+     * present, the result is a new store, copied from the least upper bound
+     * that {@link #getRegularStoreForReading()} memoized if there is one.
+     */
+    @Override
+    public S getRegularStore() {
+        if (store == null) {
+            if (joinedStore != null) {
+                return joinedStore.copy();
+            }
+            return thenStore.leastUpperBound(elseStore);
+        }
+        return store;
+    }
+
+    /**
+     * @return the regular store without making a new one: the least upper
+     *         bound of two stores is computed once per {@code set}. The
+     *         result must not be modified.
+     */
+    public S getRegularStoreForReading() {
+        if (store == null) {
+            if (joinedStore == null) {
+                joinedStore = thenStore.leastUpperBound(elseStore);
+            }
+            return joinedStore;
+        }
+        return store;
+    }
+
+    @Override
+    public S getThenStore() {
+        if (store == null) {
+            return thenStore;
+        }
+        return store;
+    }
+
+    @Override
+    public S getElseStore() {
+        if (store == null) {
+            return elseStore;
+        }
+        // copy the store such that it is the same as the result of getThenStore
+        // (that is, identical according to equals), but two different objects.
+        return store.copy();
+    }
+
+    /**
+     * @return the 'else' store without copying it; if only one store is
+     *         present, it is the regular store, which must not be modified
+     */
+    public S getElseStoreForReading() {
+        if (store == null) {
+            return elseStore;
+        }
+        return store;
+    }
+
+    @Override
+    public boolean containsTwoStores() {
+        return store == null;
+    }
+
+    @Override
+    public boolean storeChanged() {
+        return storeChanged;
+    }
+
+    /**
+     * @return an immutable {@link TransferResult} with the current contents of
+     *         this result, which stays valid after this result is reused
+     */
+    public TransferResult<A, S> snapshot() {
+        if (store == null) {
+            return new ConditionalTransferResult<>(resultValue, thenStore, elseStore,
+                    exceptionalStores, storeChanged);
+        }
+        return new RegularTransferResult<>(resultValue, store, exceptionalStores, storeChanged);
+    }
+
+    @Override
+    public String toString() {
+        return "ReusableTransferResult(" + snapshot() + ")";
+    }
+}
@@ -37,7 +37,7 @@ public class TransferInput<V extends AbstractValue<V>, S extends Store<S>> {
      * store == null &lt;==&gt; thenStore != null &amp;&amp; elseStore != null
      * </pre>
      */
-    protected final /*@Nullable*/ S store;
+    protected /*@Nullable*/ S store;
 
     /**
      * The 'then' result store (or {@code null} if none is present). The
@@ -47,7 +47,7 @@ public class TransferInput<V extends AbstractValue<V>, S extends Store<S>> {
      * store == null &lt;==&gt; thenStore != null &amp;&amp; elseStore != null
      * </pre>
      */
-    protected final /*@Nullable*/ S thenStore;
+    protected /*@Nullable*/ S thenStore;
 
     /**
      * The 'else' result store (or {@code null} if none is present). The
@@ -57,7 +57,16 @@ public class TransferInput<V extends AbstractValue<V>, S extends Store<S>> {
      * store == null &lt;==&gt; thenStore != null &amp;&amp; elseStore != null
      * </pre>
      */
-    protected final /*@Nullable*/ S elseStore;
+    protected /*@Nullable*/ S elseStore;
+
+    /**
+     * The least upper bound of {@code thenStore} and {@code elseStore},
+     * computed on the first call to {@link #getRegularStoreForReading()} if
+     * two stores are present (or {@code null} if it has not been computed
+     * yet). It is owned by this object and never handed out for
+     * modification.
+     */
+    protected /*@Nullable*/ S joinedStore;
 
     /**
      * The corresponding analysis class to get intermediate flow results.
@@ -81,16 +90,8 @@ public class TransferInput<V extends AbstractValue<V>, S extends Store<S>> {
      */
     public TransferInput(Node n, AbstractAnalysis<V, S, ?> analysis,
             TransferResult<V, S> to) {
-        node = n;
         this.analysis = analysis;
-        if (to.containsTwoStores()) {
-            thenStore = to.getThenStore();
-            elseStore = to.getElseStore();
-            store = null;
-        } else {
-            store = to.getRegularStore();
-            thenStore = elseStore = null;
-        }
+        reset(n, to);
     }
 
     /**
@@ -148,6 +149,44 @@ public class TransferInput<V extends AbstractValue<V>, S extends Store<S>> {
         }
     }
 
+    /**
+     * Reinitialize this {@link TransferInput} from a {@link TransferResult},
+     * with the same effect as creating a new one with
+     * {@link #TransferInput(Node, AbstractAnalysis, TransferResult)}. Used by
+     * the analysis to reuse a single input within a basic block (see
+     * {@link ReusableTransferFunction}).
+     */
+    protected void reset(Node n, TransferResult<V, S> to) {
+        node = n;
+        joinedStore = null;
+        if (to.containsTwoStores()) {
+            thenStore = to.getThenStore();
+            elseStore = to.getElseStore();
+            store = null;
+        } else {
+            store = to.getRegularStore();
+            thenStore = elseStore = null;
+        }
+    }
+
+    /**
+     * @return the {@link ReusableTransferResult} of the analysis, cleared. A
+     *         transfer function can fill and return it instead of allocating
+     *         a new {@link TransferResult}.
+     */
+    public ReusableTransferResult<V, S> getReusableResult() {
+        return analysis.getReusableResult();
+    }
+
+    /**
+     * @return the {@link ReceiverInterner} of the analysis, which transfer
+     *         functions pass to {@link FlowExpressions} to obtain canonical
+     *         receivers for the nodes of the current graph
+     */
+    public ReceiverInterner getReceiverInterner() {
+        return analysis.getReceiverInterner();
+    }
+
     /**
      * @return the {@link Node} for this {@link TransferInput}.
      */
@@ -169,15 +208,41 @@ public class TransferInput<V extends AbstractValue<V>, S extends Store<S>> {
     /**
      * @return the regular result store produced if no exception is thrown by
      *         the {@link Node} corresponding to this transfer function result.
+     *         If two stores are present, the result is a new store that the
+     *         caller may modify: a copy of their least upper bound if it has
+     *         already been computed by {@link #getRegularStoreForReading()},
+     *         and the least upper bound itself otherwise.
      */
     public S getRegularStore() {
         if (store == null) {
+            if (joinedStore != null) {
+                return joinedStore.copy();
+            }
             return thenStore.leastUpperBound(elseStore);
         } else {
             return store;
         }
     }
 
+    /**
+     * @return the regular result store like {@link #getRegularStore()}, but
+     *         without making a new store if two stores are present: their
+     *         least upper bound is computed on the first call and the same
+     *         store is returned afterwards. The result must not be
+     *         modified, and later modifications of the 'then' or 'else'
+     *         store are not reflected in it.
+     */
+    public S getRegularStoreForReading() {
+        if (store == null) {
+            if (joinedStore == null) {
+                joinedStore = thenStore.leastUpperBound(elseStore);
+            }
+            return joinedStore;
+        } else {
+            return store;
+        }
+    }
+
     /**
      * @return the result store produced if the {@link Node} this result belongs
      *         to evaluates to {@code true}.
@@ -191,7 +256,11 @@ public class TransferInput<V extends AbstractValue<V>, S extends Store<S>> {
 
     /**
      * @return the result store produced if the {@link Node} this result belongs
-     *         to evaluates to {@code false}.
+     *         to evaluates to {@code false}. If only one store is present, a
+     *         new copy of it is made on every call, which the caller owns.
+     *         Callers that only read the store should use
+     *         {@link #getElseStoreForReading()} instead, so that the copy is
+     *         only made when the store is actually modified.
      */
     public S getElseStore() {
         if (store == null) {
@@ -202,6 +271,19 @@ public class TransferInput<V extends AbstractValue<V>, S extends Store<S>> {
         return store.copy();
     }
 
+    /**
+     * @return the result store produced if the {@link Node} this result belongs
+     *         to evaluates to {@code false}, without making a copy. If only
+     *         one store is present, the result is the same object as the
+     *         result of {@link #getThenStore()}, and it must not be modified.
+     */
+    public S getElseStoreForReading() {
+        if (store == null) {
+            return elseStore;
+        }
+        return store;
+    }
+
     /**
      * @return {@code true} if and only if this transfer input contains two
      *         stores that are potentially not equal. Note that the result
@@ -233,7 +315,7 @@ public class TransferInput<V extends AbstractValue<V>, S extends Store<S>> {
     public TransferInput<V, S> leastUpperBound(TransferInput<V, S> other) {
         if (store == null) {
             S newThenStore = thenStore.leastUpperBound(other.getThenStore());
-            S newElseStore = elseStore.leastUpperBound(other.getElseStore());
+            S newElseStore = elseStore.leastUpperBound(other.getElseStoreForReading());
             return new TransferInput<>(node, analysis, newThenStore,
                     newElseStore);
         } else {
@@ -243,7 +325,7 @@ public class TransferInput<V extends AbstractValue<V>, S extends Store<S>> {
                 return other.leastUpperBound(this);
             }
             return new TransferInput<>(node, analysis,
-                    store.leastUpperBound(other.getRegularStore()));
+                    store.leastUpperBound(other.getRegularStoreForReading()));
         }
     }
 
@@ -255,11 +337,12 @@ public class TransferInput<V extends AbstractValue<V>, S extends Store<S>> {
             if (containsTwoStores()) {
                 if (other.containsTwoStores()) {
                     return getThenStore().equals(other.getThenStore()) &&
-                        getElseStore().equals(other.getElseStore());
+                        getElseStoreForReading().equals(other.getElseStoreForReading());
                 }
             } else {
                 if (!other.containsTwoStores()) {
-                    return getRegularStore().equals(other.getRegularStore());
+                    return getRegularStoreForReading().equals(
+                            other.getRegularStoreForReading());
                 }
             }
         }
@@ -0,0 +1,333 @@
+package org.checkerframework.dataflow.cfg;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGLambda;
+import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGMethod;
+import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGStatement;
+import org.checkerframework.javacutil.BasicTypeProcessor;
+import org.checkerframework.javacutil.TreeUtils;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.comp.CompileStates.CompileState;
+import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+
+/**
+ * A type processor that builds the control flow graphs of all methods,
+ * initializer blocks, field initializers and lambdas of the classes it
+ * processes, in a single compilation. Unlike {@link CFGProcessor}, which
+ * stops the compilation at the first matching method, it keeps going, so the
+ * CFGs of many methods do not need one compiler run each.
+ *
+ * <p>
+ *
+ * The graphs of a class are built right after the class has been
+ * attributed and flow-analyzed. The processor stops the compilation after
+ * flow analysis, so the compiler does not lower the trees that the graphs
+ * refer to and does not write class files. Lambdas and local and anonymous
+ * classes are found while building the graph of the code that contains
+ * them, and are processed with it. {@link Collector} does the same for
+ * compilation units that were compiled in another way, for example by a
+ * {@link CFGService}.
+ *
+ * <p>
+ *
+ * The graphs are keyed by a signature of the code they represent:
+ * <ul>
+ * <li>{@code Outer$Inner#name(erased,param,types)} for a method or
+ * constructor, with the binary name of its class, for example
+ * {@code Outer$1#run()} for a method of an anonymous class,</li>
+ * <li>{@code Outer#<clinit>[i]} and {@code Outer#<instance-init>[i]} for the
+ * i-th static or instance initializer block of a class,</li>
+ * <li>{@code Outer#name} for the initializer of the field {@code name},</li>
+ * <li>the key of the enclosing code followed by {@code $lambda}i for the
+ * i-th lambda found in that code.</li>
+ * </ul>
+ */
+@SupportedAnnotationTypes("*")
+public class BatchCFGProcessor extends BasicTypeProcessor {
+
+    /** Simple name of the classes to process, or {@code null} for all. */
+    protected final /*@Nullable*/ String className;
+
+    /** Name of the methods to process, or {@code null} for all. */
+    protected final /*@Nullable*/ String methodName;
+
+    /** Builds the graphs; created by {@link #init}. */
+    protected Collector collector;
+
+    /** Build the control flow graphs of all code. */
+    public BatchCFGProcessor() {
+        this(null, null);
+    }
+
+    /**
+     * @param className
+     *            the simple name of the classes whose code is processed, or
+     *            {@code null} to process all classes
+     * @param methodName
+     *            the name of the methods that are processed, or {@code null}
+     *            to process all methods, initializer blocks and field
+     *            initializers
+     */
+    public BatchCFGProcessor(/*@Nullable*/ String className,
+            /*@Nullable*/ String methodName) {
+        this.className = className;
+        this.methodName = methodName;
+    }
+
+    @Override
+    public synchronized void init(ProcessingEnvironment env) {
+        super.init(env);
+        collector = new Collector(env, className, methodName);
+        // Desugaring would modify the trees that the graphs refer to.
+        Context context = ((JavacProcessingEnvironment) env).getContext();
+        JavaCompiler.instance(context).shouldStopPolicyIfNoError = CompileState.FLOW;
+    }
+
+    /** @return the control flow graphs built so far, keyed by signature */
+    public Map<String, ControlFlowGraph> getCFGs() {
+        if (collector == null) {
+            return Collections.emptyMap();
+        }
+        return collector.getCFGs();
+    }
+
+    @Override
+    protected TreePathScanner<?, ?> createTreePathScanner(CompilationUnitTree root) {
+        return new TreePathScanner<Void, Void>() {
+            @Override
+            public Void visitClass(ClassTree node, Void p) {
+                collector.addClass(node);
+                return null;
+            }
+        };
+    }
+
+    @Override
+    public void typeProcess(TypeElement e, TreePath p) {
+        super.typeProcess(e, p);
+        collector.buildPending(currentRoot);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /**
+     * Finds the code of classes that matches a class and a method name and
+     * builds its control flow graphs, keyed as described in
+     * {@link BatchCFGProcessor}.
+     */
+    public static class Collector {
+
+        protected final ProcessingEnvironment env;
+
+        /** Simple name of the classes to process, or {@code null} for all. */
+        protected final /*@Nullable*/ String className;
+
+        /** Name of the methods to process, or {@code null} for all. */
+        protected final /*@Nullable*/ String methodName;
+
+        /** The CFGs built so far, in the order in which they were built. */
+        protected final Map<String, ControlFlowGraph> cfgs;
+
+        /** Code whose CFG has not been built yet. */
+        protected final Deque<Pending> pending;
+
+        /**
+         * @see BatchCFGProcessor#BatchCFGProcessor(String, String)
+         */
+        public Collector(ProcessingEnvironment env, /*@Nullable*/ String className,
+                /*@Nullable*/ String methodName) {
+            this.env = env;
+            this.className = className;
+            this.methodName = methodName;
+            this.cfgs = new LinkedHashMap<>();
+            this.pending = new ArrayDeque<>();
+        }
+
+        /** @return the control flow graphs built so far, keyed by signature */
+        public Map<String, ControlFlowGraph> getCFGs() {
+            return Collections.unmodifiableMap(cfgs);
+        }
+
+        /** Build the CFGs of the matching code of all classes in {@code root}. */
+        public void addCompilationUnit(CompilationUnitTree root) {
+            for (Tree decl : root.getTypeDecls()) {
+                if (decl instanceof ClassTree) {
+                    addClass((ClassTree) decl);
+                }
+            }
+            buildPending(root);
+        }
+
+        /**
+         * Queue the methods, initializer blocks and field initializers of
+         * {@code classTree} and of its member classes that match the
+         * filters of this collector.
+         */
+        public void addClass(ClassTree classTree) {
+            TypeElement el = TreeUtils.elementFromDeclaration(classTree);
+            String classKey = env.getElementUtils().getBinaryName(el).toString();
+            boolean matches = className == null
+                    || el.getSimpleName().contentEquals(className);
+            int staticInits = 0;
+            int instanceInits = 0;
+
+            for (Tree member : classTree.getMembers()) {
+                switch (member.getKind()) {
+                case METHOD: {
+                    MethodTree method = (MethodTree) member;
+                    if (matches && method.getBody() != null
+                            && (methodName == null
+                                || method.getName().contentEquals(methodName))) {
+                        pending.add(new Pending(methodKey(classKey, method),
+                                new CFGMethod(method, classTree)));
+                    }
+                    break;
+                }
+                case BLOCK: {
+                    BlockTree block = (BlockTree) member;
+                    String key = block.isStatic()
+                            ? classKey + "#<clinit>[" + staticInits++ + "]"
+                            : classKey + "#<instance-init>[" + instanceInits++ + "]";
+                    if (matches && methodName == null) {
+                        pending.add(new Pending(key, new CFGStatement(block, classTree)));
+                    }
+                    break;
+                }
+                case VARIABLE: {
+                    VariableTree field = (VariableTree) member;
+                    if (matches && methodName == null && field.getInitializer() != null) {
+                        pending.add(new Pending(classKey + "#" + field.getName(),
+                                new CFGStatement(field, classTree)));
+                    }
+                    break;
+                }
+                case CLASS:
+                case INTERFACE:
+                case ENUM:
+                case ANNOTATION_TYPE:
+                    addClass((ClassTree) member);
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Build the CFGs of all pending code, together with the lambdas and
+         * local and anonymous classes that are found on the way.
+         */
+        public void buildPending(CompilationUnitTree root) {
+            try {
+                CFGBuilder builder = new CFGBuilder(false, false);
+                while (!pending.isEmpty()) {
+                    Pending next = pending.removeFirst();
+                    cfgs.put(next.key, builder.run(root, env, next.ast));
+
+                    // Copy the declared code: the builder clears its lists on
+                    // the next run.
+                    int lambdas = 0;
+                    for (LambdaExpressionTree lambda : builder.getDeclaredLambdas()) {
+                        pending.add(new Pending(next.key + "$lambda" + lambdas++,
+                                new CFGLambda(lambda)));
+                    }
+                    for (ClassTree cls : builder.getDeclaredClasses()) {
+                        addClass(cls);
+                    }
+                    addAnonymousClasses(next.ast.getCode());
+                }
+            } finally {
+                pending.clear();
+            }
+        }
+
+        /**
+         * Queue the code of the anonymous classes whose bodies appear in
+         * {@code code}, which the {@link CFGBuilder} does not report. The
+         * bodies of lambdas and of local classes are not searched, because
+         * they are processed on their own.
+         */
+        protected void addAnonymousClasses(Tree code) {
+            new TreeScanner<Void, Void>() {
+                @Override
+                public Void visitNewClass(NewClassTree node, Void p) {
+                    scan(node.getEnclosingExpression(), p);
+                    scan(node.getArguments(), p);
+                    if (node.getClassBody() != null) {
+                        addClass(node.getClassBody());
+                    }
+                    return null;
+                }
+
+                @Override
+                public Void visitClass(ClassTree node, Void p) {
+                    return null;
+                }
+
+                @Override
+                public Void visitLambdaExpression(LambdaExpressionTree node, Void p) {
+                    return null;
+                }
+            }.scan(code, null);
+        }
+
+        /** @return the signature of {@code method}, see the class comment */
+        protected String methodKey(String classKey, MethodTree method) {
+            ExecutableElement el = TreeUtils.elementFromDeclaration(method);
+            StringBuilder sb = new StringBuilder(classKey);
+            sb.append('#').append(el.getSimpleName()).append('(');
+            boolean first = true;
+            for (VariableElement param : el.getParameters()) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                sb.append(env.getTypeUtils().erasure(param.asType()));
+            }
+            return sb.append(')').toString();
+        }
+    }
+
+    /** Code whose control flow graph is still to be built. */
+    protected static class Pending {
+        protected final String key;
+        protected final UnderlyingAST ast;
+
+        protected Pending(String key, UnderlyingAST ast) {
+            this.key = key;
+            this.ast = ast;
+        }
+    }
+}
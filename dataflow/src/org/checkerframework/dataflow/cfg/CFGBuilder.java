@@ -25,11 +25,13 @@ import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.InternalUtils;
 import org.checkerframework.javacutil.Pair;
 import org.checkerframework.javacutil.TreeUtils;
+import org.checkerframework.javacutil.TypeHierarchyCache;
 import org.checkerframework.javacutil.TypesUtils;
 import org.checkerframework.javacutil.trees.TreeBuilder;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -104,10 +106,36 @@ public class CFGBuilder {
     /** Can assertions be assumed to be enabled? */
     protected final boolean assumeAssertionsEnabled;
 
+    /**
+     * Should exceptions that are not visible in the source code be left out
+     * of the CFG? These are the {@link NullPointerException}s of
+     * dereferences and unboxing, the {@link ClassCastException}s of casts,
+     * and the unchecked exceptions that any method or constructor call might
+     * throw. Explicit {@code throw} statements and the exceptions in the
+     * {@code throws} clause of a called method are still modelled, and so
+     * are implicit exceptions that a {@code catch} or {@code finally} block
+     * of the code could observe: only edges that lead directly to the
+     * exceptional exit are left out.
+     *
+     * <p>
+     *
+     * Without these edges, straight-line code ends up in a single
+     * {@link org.checkerframework.dataflow.cfg.block.RegularBlock}, which
+     * makes the CFG much smaller. This is only sound for analyses that do not
+     * need the store at the exceptional exit.
+     */
+    protected final boolean collapseImplicitExceptions;
+
     public CFGBuilder(boolean assumeAssertionsEnabled, boolean assumeAssertionsDisabled) {
+        this(assumeAssertionsEnabled, assumeAssertionsDisabled, false);
+    }
+
+    public CFGBuilder(boolean assumeAssertionsEnabled, boolean assumeAssertionsDisabled,
+            boolean collapseImplicitExceptions) {
         assert !(assumeAssertionsDisabled && assumeAssertionsEnabled);
         this.assumeAssertionsEnabled = assumeAssertionsEnabled;
         this.assumeAssertionsDisabled = assumeAssertionsDisabled;
+        this.collapseImplicitExceptions = collapseImplicitExceptions;
     }
 
     /**
@@ -158,6 +186,44 @@ public class CFGBuilder {
         return new CFGBuilder(assumeAssertionsEnabled, assumeAssertionsDisabled).run(root, env, tree, classTree);
     }
 
+    /**
+     * Build the control flow graph of some code, optionally leaving out
+     * implicit exceptions (see {@link #collapseImplicitExceptions}).
+     */
+    public static ControlFlowGraph build(
+            CompilationUnitTree root, ProcessingEnvironment env,
+            UnderlyingAST underlyingAST, boolean assumeAssertionsEnabled, boolean assumeAssertionsDisabled,
+            boolean collapseImplicitExceptions) {
+        return new CFGBuilder(assumeAssertionsEnabled, assumeAssertionsDisabled,
+                collapseImplicitExceptions).run(root, env, underlyingAST);
+    }
+
+    /**
+     * Build the control flow graph of some code (method, initializer block, ...),
+     * optionally leaving out implicit exceptions (see
+     * {@link #collapseImplicitExceptions}). bodyPath is the TreePath to the
+     * body of that code.
+     */
+    public static ControlFlowGraph build(
+            TreePath bodyPath, ProcessingEnvironment env,
+            UnderlyingAST underlyingAST, boolean assumeAssertionsEnabled, boolean assumeAssertionsDisabled,
+            boolean collapseImplicitExceptions) {
+        return new CFGBuilder(assumeAssertionsEnabled, assumeAssertionsDisabled,
+                collapseImplicitExceptions).run(bodyPath, env, underlyingAST);
+    }
+
+    /**
+     * Build the control flow graph of a method, optionally leaving out
+     * implicit exceptions (see {@link #collapseImplicitExceptions}).
+     */
+    public static ControlFlowGraph build(
+            CompilationUnitTree root, ProcessingEnvironment env,
+            MethodTree tree, ClassTree classTree, boolean assumeAssertionsEnabled, boolean assumeAssertionsDisabled,
+            boolean collapseImplicitExceptions) {
+        return new CFGBuilder(assumeAssertionsEnabled, assumeAssertionsDisabled,
+                collapseImplicitExceptions).run(root, env, tree, classTree);
+    }
+
     /**
      * Build the control flow graph of some code.
      */
@@ -465,6 +531,15 @@ public class CFGBuilder {
 
         protected String name;
 
+        /**
+         * The {@link LabelBindings} in which this label is bound, or null.
+         * Only that table may interpret {@code bindingNumber}.
+         */
+        protected /*@Nullable*/ LabelBindings bindingOwner;
+
+        /** The dense number of this label in {@code bindingOwner}. */
+        protected int bindingNumber;
+
         public Label(String name) {
             this.name = name;
         }
@@ -489,6 +564,56 @@ public class CFGBuilder {
         }
     }
 
+    /**
+     * The bindings of {@link Label}s to positions (i.e., indices) in the
+     * list of extended nodes of one CFG translation. Every label bound in
+     * the table gets a dense number, which indexes an array of positions.
+     */
+    protected static class LabelBindings {
+
+        /** The position of each bound label, indexed by label number. */
+        protected int[] positions = new int[16];
+
+        /** The number of bound labels. */
+        protected int size;
+
+        /** Bind {@code label} to {@code position}, replacing any old binding. */
+        public void bind(Label label, int position) {
+            if (label.bindingOwner != this) {
+                if (size == positions.length) {
+                    positions = Arrays.copyOf(positions, 2 * size);
+                }
+                label.bindingOwner = this;
+                label.bindingNumber = size++;
+            }
+            positions[label.bindingNumber] = position;
+        }
+
+        /**
+         * @return the position of {@code label}, or -1 if it is not bound in
+         *         this table
+         */
+        public int get(Label label) {
+            if (label.bindingOwner != this) {
+                return -1;
+            }
+            return positions[label.bindingNumber];
+        }
+
+        /**
+         * Move every label bound at {@code position} or later one position
+         * further, to account for an extended node inserted at
+         * {@code position}.
+         */
+        public void shiftFrom(int position) {
+            for (int i = 0; i < size; i++) {
+                if (positions[i] >= position) {
+                    positions[i]++;
+                }
+            }
+        }
+    }
+
     /**
      * A TryFrame takes a thrown exception type and maps it to a set
      * of possible control-flow successors.
@@ -620,24 +745,52 @@ public class CFGBuilder {
         protected Label exitLabel;
         protected LinkedList<TryFrame> frames;
 
+        /**
+         * Resolved label sets, one map per state of {@code frames}: the first
+         * map belongs to the current stack, the next one to the stack without
+         * its innermost frame, and so on. Popping a frame therefore restores
+         * the cache that was valid before the frame was pushed.
+         */
+        protected LinkedList<Map<TypeMirror, Set<Label>>> resolved;
+
         public TryStack(Label exitLabel) {
             this.exitLabel = exitLabel;
             this.frames = new LinkedList<>();
+            this.resolved = new LinkedList<>();
+            this.resolved.addFirst(new HashMap<TypeMirror, Set<Label>>());
         }
 
         public void pushFrame(TryFrame frame) {
             frames.addFirst(frame);
+            resolved.addFirst(new HashMap<TypeMirror, Set<Label>>());
         }
 
         public void popFrame() {
             frames.removeFirst();
+            resolved.removeFirst();
         }
 
         /**
          * Returns the set of possible {@link Label}s where control may
          * transfer when an exception of the given type is thrown.
+         *
+         * <p>
+         *
+         * The result is cached until the next call of {@link #pushFrame} or
+         * {@link #popFrame} and is shared between callers, so it cannot be
+         * modified.
          */
         public Set<Label> possibleLabels(TypeMirror thrown) {
+            Map<TypeMirror, Set<Label>> cache = resolved.getFirst();
+            Set<Label> labels = cache.get(thrown);
+            if (labels == null) {
+                labels = Collections.unmodifiableSet(computePossibleLabels(thrown));
+                cache.put(thrown, labels);
+            }
+            return labels;
+        }
+
+        protected Set<Label> computePossibleLabels(TypeMirror thrown) {
             // Work up from the innermost frame until the exception is known to
             // be caught.
             Set<Label> labels = new MostlySingleton<>();
@@ -667,7 +820,8 @@ public class CFGBuilder {
      * case.</li>
      * <li>Two consecutive, non-empty, regular basic blocks where the second
      * block has exactly one predecessor (namely the other of the two blocks):
-     * In this case, the two blocks are merged.</li>
+     * In this case, the two blocks are merged. Longer chains of such blocks
+     * are merged into a single block.</li>
      * <li>Some basic blocks might not be reachable from the entryBlock. These
      * basic blocks are removed, and the list of predecessors (in the
      * doubly-linked structure of basic blocks) are adapted correctly.</li>
@@ -698,28 +852,45 @@ public class CFGBuilder {
          * @return the resulting control flow graph
          */
         public static ControlFlowGraph process(ControlFlowGraph cfg) {
-            Set<Block> worklist = cfg.getAllBlocks();
-            Set<Block> dontVisit = new HashSet<>();
+            // Number the reachable blocks once; all passes below walk this
+            // array and record removed blocks by index.
+            Block[] blocks = cfg.getAllBlocks().toArray(new Block[0]);
+            Map<Block, Integer> index = new IdentityHashMap<>(2 * blocks.length);
+            for (int i = 0; i < blocks.length; i++) {
+                index.put(blocks[i], i);
+            }
+            boolean[] removed = new boolean[blocks.length];
 
             // note: this method has to be careful when relinking basic blocks
             // to not forget to adjust the predecessors, too
 
             // fix predecessor lists by removing any unreachable predecessors
-            for (Block c : worklist) {
+            for (Block c : blocks) {
                 BlockImpl cur = (BlockImpl) c;
-                for (Block pred : new HashSet<>(cur.getPredecessors())) {
-                    if (!worklist.contains((BlockImpl)pred)) {
-                        cur.removePredecessor((BlockImpl)pred);
+                List<BlockImpl> unreachable = null;
+                for (Block pred : cur.getPredecessors()) {
+                    if (!index.containsKey(pred)) {
+                        if (unreachable == null) {
+                            unreachable = new ArrayList<>();
+                        }
+                        unreachable.add((BlockImpl) pred);
+                    }
+                }
+                if (unreachable != null) {
+                    for (BlockImpl pred : unreachable) {
+                        cur.removePredecessor(pred);
                     }
                 }
             }
 
             // remove empty blocks
-            for (Block cur : worklist) {
-                if (dontVisit.contains(cur)) {
+            boolean[] dontVisit = new boolean[blocks.length];
+            for (int i = 0; i < blocks.length; i++) {
+                if (dontVisit[i]) {
                     continue;
                 }
 
+                Block cur = blocks[i];
                 if (cur.getType() == BlockType.REGULAR_BLOCK) {
                     RegularBlockImpl b = (RegularBlockImpl) cur;
                     if (b.isEmpty()) {
@@ -729,11 +900,12 @@ public class CFGBuilder {
                                 empty, predecessors);
                         for (RegularBlockImpl e : empty) {
                             succ.removePredecessor(e);
-                            dontVisit.add(e);
+                            dontVisit[index.get(e)] = true;
+                            removed[index.get(e)] = true;
                         }
                         for (PredecessorHolder p : predecessors) {
                             BlockImpl block = p.getBlock();
-                            dontVisit.add(block);
+                            dontVisit[index.get(block)] = true;
                             succ.removePredecessor(block);
                             p.setSuccessor(succ);
                         }
@@ -742,38 +914,43 @@ public class CFGBuilder {
             }
 
             // remove useless conditional blocks
-            worklist = cfg.getAllBlocks();
-            for (Block c : worklist) {
-                BlockImpl cur = (BlockImpl) c;
+            for (int i = 0; i < blocks.length; i++) {
+                if (removed[i] || blocks[i].getType() != BlockType.CONDITIONAL_BLOCK) {
+                    continue;
+                }
 
-                if (cur.getType() == BlockType.CONDITIONAL_BLOCK) {
-                    ConditionalBlockImpl cb = (ConditionalBlockImpl) cur;
-                    assert cb.getPredecessors().size() == 1;
-                    if (cb.getThenSuccessor() == cb.getElseSuccessor()) {
-                        BlockImpl pred = (BlockImpl) cb.getPredecessors().iterator().next();
-                        PredecessorHolder predecessorHolder = getPredecessorHolder(
-                                pred, cb);
-                        BlockImpl succ = (BlockImpl) cb.getThenSuccessor();
-                        succ.removePredecessor(cb);
-                        predecessorHolder.setSuccessor(succ);
-                    }
+                ConditionalBlockImpl cb = (ConditionalBlockImpl) blocks[i];
+                assert cb.getPredecessors().size() == 1;
+                if (cb.getThenSuccessor() == cb.getElseSuccessor()) {
+                    BlockImpl pred = (BlockImpl) cb.getPredecessors().iterator().next();
+                    PredecessorHolder predecessorHolder = getPredecessorHolder(
+                            pred, cb);
+                    BlockImpl succ = (BlockImpl) cb.getThenSuccessor();
+                    succ.removePredecessor(cb);
+                    predecessorHolder.setSuccessor(succ);
+                    removed[i] = true;
                 }
             }
 
-            // merge consecutive basic blocks if possible
-            worklist = cfg.getAllBlocks();
-            for (Block cur : worklist) {
-                if (cur.getType() == BlockType.REGULAR_BLOCK) {
-                    RegularBlockImpl b = (RegularBlockImpl) cur;
-                    Block succ = b.getRegularSuccessor();
-                    if (succ.getType() == BlockType.REGULAR_BLOCK) {
-                        RegularBlockImpl rs = (RegularBlockImpl) succ;
-                        if (rs.getPredecessors().size() == 1) {
-                            b.setSuccessor(rs.getRegularSuccessor());
-                            b.addNodes(rs.getContents());
-                            rs.getRegularSuccessor().removePredecessor(rs);
-                        }
+            // merge chains of consecutive regular blocks, where each block
+            // but the first has exactly one predecessor
+            for (int i = 0; i < blocks.length; i++) {
+                if (removed[i] || blocks[i].getType() != BlockType.REGULAR_BLOCK) {
+                    continue;
+                }
+
+                RegularBlockImpl b = (RegularBlockImpl) blocks[i];
+                while (true) {
+                    BlockImpl succ = b.getRegularSuccessor();
+                    if (succ == b || succ.getType() != BlockType.REGULAR_BLOCK
+                            || succ.getPredecessors().size() != 1) {
+                        break;
                     }
+                    RegularBlockImpl rs = (RegularBlockImpl) succ;
+                    b.setSuccessor(rs.getRegularSuccessor());
+                    b.addNodes(rs.getContents());
+                    rs.getRegularSuccessor().removePredecessor(rs);
+                    removed[index.get(rs)] = true;
                 }
             }
 
@@ -1017,9 +1194,9 @@ public class CFGBuilder {
          */
         public ControlFlowGraph process(PhaseOneResult in) {
 
-            Map<Label, Integer> bindings = in.bindings;
+            LabelBindings bindings = in.bindings;
             ArrayList<ExtendedNode> nodeList = in.nodeList;
-            Set<Integer> leaders = in.leaders;
+            BitSet leaders = in.leaders;
 
             assert in.nodeList.size() > 0;
 
@@ -1047,7 +1224,7 @@ public class CFGBuilder {
             for (ExtendedNode node : nodeList) {
                 switch (node.getType()) {
                 case NODE:
-                    if (leaders.contains(i)) {
+                    if (leaders.get(i)) {
                         RegularBlockImpl b = new RegularBlockImpl();
                         block.setSuccessor(b);
                         block = b;
@@ -1100,7 +1277,7 @@ public class CFGBuilder {
                     break;
                 }
                 case UNCONDITIONAL_JUMP:
-                    if (leaders.contains(i)) {
+                    if (leaders.get(i)) {
                         RegularBlockImpl b = new RegularBlockImpl();
                         block.setSuccessor(b);
                         block = b;
@@ -1138,7 +1315,8 @@ public class CFGBuilder {
                             .entrySet()) {
                         TypeMirror cause = entry.getKey();
                         for (Label label : entry.getValue()) {
-                            Integer target = bindings.get(label);
+                            int position = bindings.get(label);
+                            Integer target = position < 0 ? null : position;
                             missingExceptionalEdges
                                 .add(new Tuple<ExceptionBlockImpl, Integer, TypeMirror>(
                                         e, target, cause));
@@ -1175,7 +1353,7 @@ public class CFGBuilder {
             }
 
             return new ControlFlowGraph(startBlock, regularExitBlock, exceptionalExitBlock, in.underlyingAST,
-                    in.treeLookupMap, in.convertedTreeLookupMap, in.returnNodes);
+                    in.treeLookupTable, in.returnNodes);
         }
     }
 
@@ -1189,22 +1367,19 @@ public class CFGBuilder {
      */
     protected static class PhaseOneResult {
 
-        private final IdentityHashMap<Tree, Node> treeLookupMap;
-        private final IdentityHashMap<Tree, Node> convertedTreeLookupMap;
+        private final TreeLookupTable treeLookupTable;
         private final UnderlyingAST underlyingAST;
-        private final Map<Label, Integer> bindings;
+        private final LabelBindings bindings;
         private final ArrayList<ExtendedNode> nodeList;
-        private final Set<Integer> leaders;
+        private final BitSet leaders;
         private final List<ReturnNode> returnNodes;
 
         public PhaseOneResult(UnderlyingAST underlyingAST,
-                IdentityHashMap<Tree, Node> treeLookupMap,
-                IdentityHashMap<Tree, Node> convertedTreeLookupMap,
-                ArrayList<ExtendedNode> nodeList, Map<Label, Integer> bindings,
-                Set<Integer> leaders, List<ReturnNode> returnNodes) {
+                TreeLookupTable treeLookupTable,
+                ArrayList<ExtendedNode> nodeList, LabelBindings bindings,
+                BitSet leaders, List<ReturnNode> returnNodes) {
             this.underlyingAST = underlyingAST;
-            this.treeLookupMap = treeLookupMap;
-            this.convertedTreeLookupMap = convertedTreeLookupMap;
+            this.treeLookupTable = treeLookupTable;
             this.nodeList = nodeList;
             this.bindings = bindings;
             this.leaders = leaders;
@@ -1235,8 +1410,8 @@ public class CFGBuilder {
         }
 
         private String resolveLabel(Label label) {
-            Integer index = bindings.get(label);
-            if (index == null) {
+            int index = bindings.get(label);
+            if (index < 0) {
                 return "null";
             }
             return nodeToString(nodeList.get(index));
@@ -1286,6 +1461,12 @@ public class CFGBuilder {
         protected TreeBuilder treeBuilder;
         protected AnnotationProvider annotationProvider;
 
+        /** Types from {@code java.lang} that the translation refers to. */
+        protected WellKnownTypes wellKnownTypes;
+
+        /** Memoized type hierarchy queries of the compilation. */
+        protected TypeHierarchyCache typeHierarchy;
+
         /**
          * Current {@link Label} to which a break statement with no label should
          * jump, or null if there is no valid destination.
@@ -1316,14 +1497,10 @@ public class CFGBuilder {
          * Maps from AST {@link Tree}s to {@link Node}s.  Every Tree that produces
          * a value will have at least one corresponding Node.  Trees
          * that undergo conversions, such as boxing or unboxing, can map to two
-         * distinct Nodes.  The Node for the pre-conversion value is stored
-         * in the treeLookupMap, while the Node for the post-conversion value
-         * is stored in the convertedTreeLookupMap.
+         * distinct Nodes.  The table holds both the Node for the
+         * pre-conversion value and the Node for the post-conversion value.
          */
-        protected IdentityHashMap<Tree, Node> treeLookupMap;
-
-        /** Map from AST {@link Tree}s to post-conversion {@link Node}s. */
-        protected IdentityHashMap<Tree, Node> convertedTreeLookupMap;
+        protected TreeLookupTable treeLookupTable;
 
         /** The list of extended nodes. */
         protected ArrayList<ExtendedNode> nodeList;
@@ -1332,10 +1509,10 @@ public class CFGBuilder {
          * The bindings of labels to positions (i.e., indices) in the
          * {@code nodeList}.
          */
-        protected Map<Label, Integer> bindings;
+        protected LabelBindings bindings;
 
         /** The set of leaders (represented as indices into {@code nodeList}). */
-        protected Set<Integer> leaders;
+        protected BitSet leaders;
 
         /**
          * All return nodes (if any) encountered. Only includes return
@@ -1377,13 +1554,17 @@ public class CFGBuilder {
             this.annotationProvider = annotationProvider;
             elements = env.getElementUtils();
             types = env.getTypeUtils();
+            wellKnownTypes = WellKnownTypes.instance(env);
+            typeHierarchy = TypeHierarchyCache.instance(env);
+            if (trees == null) {
+                trees = Trees.instance(env);
+            }
 
             // initialize lists and maps
-            treeLookupMap = new IdentityHashMap<>();
-            convertedTreeLookupMap = new IdentityHashMap<>();
+            treeLookupTable = new TreeLookupTable();
             nodeList = new ArrayList<>();
-            bindings = new HashMap<>();
-            leaders = new HashSet<>();
+            bindings = new LabelBindings();
+            leaders = new BitSet();
             breakLabels = new HashMap<>();
             continueLabels = new HashMap<>();
             returnNodes = new ArrayList<>();
@@ -1399,8 +1580,7 @@ public class CFGBuilder {
             // removed in a later phase.
             nodeList.add(new UnconditionalJump(regularExitLabel));
 
-            return new PhaseOneResult(underlyingAST, treeLookupMap,
-                    convertedTreeLookupMap, nodeList,
+            return new PhaseOneResult(underlyingAST, treeLookupTable, nodeList,
                     bindings, leaders, returnNodes);
         }
 
@@ -1436,13 +1616,11 @@ public class CFGBuilder {
             if (tree == null) {
                 return;
             }
-            if (!treeLookupMap.containsKey(tree)) {
-                treeLookupMap.put(tree, node);
-            }
+            treeLookupTable.putIfAbsent(tree, node);
 
             Tree enclosingParens = parenMapping.get(tree);
             while (enclosingParens != null) {
-                treeLookupMap.put(enclosingParens, node);
+                treeLookupTable.put(enclosingParens, node);
                 enclosingParens = parenMapping.get(enclosingParens);
             }
         }
@@ -1474,8 +1652,8 @@ public class CFGBuilder {
          */
         protected void addToConvertedLookupMap(Tree tree, Node node) {
             assert tree != null;
-            assert treeLookupMap.containsKey(tree);
-            convertedTreeLookupMap.put(tree, node);
+            assert treeLookupTable.containsKey(tree);
+            treeLookupTable.putConverted(tree, node);
         }
 
         /**
@@ -1530,6 +1708,81 @@ public class CFGBuilder {
             return exNode;
         }
 
+        /**
+         * @return whether the implicit exception <code>cause</code> can be
+         *         left out of the CFG: {@link CFGBuilder#collapseImplicitExceptions}
+         *         is set and the exception can only propagate to the
+         *         exceptional exit. Exceptions that a <code>catch</code> or
+         *         <code>finally</code> block in force at the current program
+         *         point might handle are kept, so that those blocks stay
+         *         reachable.
+         */
+        protected boolean canCollapse(TypeMirror cause) {
+            if (!collapseImplicitExceptions) {
+                return false;
+            }
+            Set<Label> labels = tryStack.possibleLabels(cause);
+            return labels.size() == 1 && labels.contains(exceptionalExitLabel);
+        }
+
+        /**
+         * Extend the list of extended nodes with a node, where
+         * <code>node</code> might throw the exception <code>cause</code>
+         * even though no exception is visible in the source code, such as
+         * a {@link NullPointerException} of a dereference. If the exception
+         * can be left out (see {@link #canCollapse(TypeMirror)}),
+         * <code>node</code> is added as a regular node.
+         *
+         * @param node
+         *            The node to add.
+         * @param cause
+         *            An exception that the node might throw.
+         * @return the node holder
+         */
+        protected ExtendedNode extendWithNodeWithImplicitException(Node node, TypeMirror cause) {
+            if (canCollapse(cause)) {
+                addToLookupMap(node);
+                ExtendedNode holder = new NodeHolder(node);
+                extendWithExtendedNode(holder);
+                return holder;
+            }
+            return extendWithNodeWithException(node, cause);
+        }
+
+        /**
+         * Extend the list of extended nodes with a call, where
+         * <code>node</code> might throw any of the exceptions in
+         * <code>thrownTypes</code> (the <code>throws</code> clause of the
+         * called method or constructor) as well as any unchecked exception.
+         * If unchecked exceptions can be left out (see
+         * {@link #canCollapse(TypeMirror)}), only <code>thrownTypes</code>
+         * are modelled.
+         *
+         * @param node
+         *            The node to add.
+         * @param thrownTypes
+         *            The declared exceptions of the called method.
+         * @return the node holder
+         */
+        protected ExtendedNode extendWithCall(Node node,
+                List<? extends TypeMirror> thrownTypes) {
+            Set<TypeMirror> thrownSet = new HashSet<>();
+            // Add exceptions explicitly mentioned in the throws clause.
+            thrownSet.addAll(thrownTypes);
+            if (canCollapse(wellKnownTypes.getThrowableType())) {
+                if (thrownSet.isEmpty()) {
+                    addToLookupMap(node);
+                    ExtendedNode holder = new NodeHolder(node);
+                    extendWithExtendedNode(holder);
+                    return holder;
+                }
+            } else {
+                // Add Throwable to account for unchecked exceptions
+                thrownSet.add(wellKnownTypes.getThrowableType());
+            }
+            return extendWithNodeWithExceptions(node, thrownSet);
+        }
+
         /**
          * Insert <code>node</code> after <code>pred</code> in
          * the list of extended nodes, or append to the list if
@@ -1574,6 +1827,29 @@ public class CFGBuilder {
             return exNode;
         }
 
+        /**
+         * Insert a <code>node</code> that might throw the exception
+         * <code>cause</code>, which is not visible in the source code, after
+         * <code>pred</code> in the list of extended nodes. If the exception
+         * can be left out (see {@link #canCollapse(TypeMirror)}),
+         * <code>node</code> is inserted as a regular node.
+         *
+         * @param node
+         *            The node to add.
+         * @param cause
+         *            An exception that the node might throw.
+         * @param pred
+         *            The desired predecessor of node.
+         */
+        protected void insertNodeWithImplicitExceptionAfter(Node node,
+                TypeMirror cause, Node pred) {
+            if (canCollapse(cause)) {
+                insertNodeAfter(node, pred);
+            } else {
+                insertNodeWithExceptionsAfter(node, Collections.singleton(cause), pred);
+            }
+        }
+
         /**
          * Extend the list of extended nodes with an extended node.
          *
@@ -1609,21 +1885,13 @@ public class CFGBuilder {
             if (index != -1) {
                 nodeList.add(index + 1, n);
                 // update bindings
-                for (Entry<Label, Integer> e : bindings.entrySet()) {
-                    if (e.getValue() >= index+1) {
-                        bindings.put(e.getKey(), e.getValue() + 1);
-                    }
-                }
-                // update leaders
-                Set<Integer> newLeaders = new HashSet<>();
-                for (Integer l : leaders) {
-                    if (l >= index+1) {
-                        newLeaders.add(l+1);
-                    } else {
-                        newLeaders.add(l);
-                    }
+                bindings.shiftFrom(index + 1);
+                // update leaders, starting with the last one
+                for (int l = leaders.length() - 1; l >= index + 1;
+                        l = leaders.previousSetBit(l - 1)) {
+                    leaders.clear(l);
+                    leaders.set(l + 1);
                 }
-                leaders = newLeaders;
             } else {
                 nodeList.add(n);
             }
@@ -1634,8 +1902,8 @@ public class CFGBuilder {
          * in the sequence.
          */
         protected void addLabelForNextNode(Label l) {
-            leaders.add(nodeList.size());
-            bindings.put(l, nodeList.size());
+            leaders.set(nodeList.size());
+            bindings.bind(l, nodeList.size());
         }
 
         /* --------------------------------------------------------- */
@@ -1685,11 +1953,9 @@ public class CFGBuilder {
                                                       getCurrentPath());
                 boxed.setInSource(false);
                 // Add Throwable to account for unchecked exceptions
-                TypeElement throwableElement = elements
-                    .getTypeElement("java.lang.Throwable");
+                TypeMirror throwableType = wellKnownTypes.getThrowableType();
                 addToConvertedLookupMap(node.getTree(), boxed);
-                insertNodeWithExceptionsAfter(boxed,
-                        Collections.singleton(throwableElement.asType()), valueOfAccess);
+                insertNodeWithImplicitExceptionAfter(boxed, throwableType, valueOfAccess);
                 return boxed;
             } else {
                 return node;
@@ -1706,7 +1972,7 @@ public class CFGBuilder {
          *         may simply be the input node
          */
         protected Node unbox(Node node) {
-            if (TypesUtils.isBoxedPrimitive(node.getType())) {
+            if (typeHierarchy.isBoxedPrimitive(node.getType())) {
 
                 MemberSelectTree primValueSelect =
                     treeBuilder.buildPrimValueMethodAccess(node.getTree());
@@ -1714,10 +1980,8 @@ public class CFGBuilder {
                 MethodAccessNode primValueAccess = new MethodAccessNode(primValueSelect, node);
                 primValueAccess.setInSource(false);
                 // Method access may throw NullPointerException
-                TypeElement npeElement = elements
-                    .getTypeElement("java.lang.NullPointerException");
-                insertNodeWithExceptionsAfter(primValueAccess,
-                        Collections.singleton(npeElement.asType()), node);
+                TypeMirror npeType = wellKnownTypes.getNullPointerExceptionType();
+                insertNodeWithImplicitExceptionAfter(primValueAccess, npeType, node);
 
                 MethodInvocationTree primValueCall =
                     treeBuilder.buildMethodInvocation(primValueSelect);
@@ -1728,11 +1992,9 @@ public class CFGBuilder {
                 unboxed.setInSource(false);
 
                 // Add Throwable to account for unchecked exceptions
-                TypeElement throwableElement = elements
-                    .getTypeElement("java.lang.Throwable");
+                TypeMirror throwableType = wellKnownTypes.getThrowableType();
                 addToConvertedLookupMap(node.getTree(), unboxed);
-                insertNodeWithExceptionsAfter(unboxed,
-                        Collections.singleton(throwableElement.asType()), primValueAccess);
+                insertNodeWithImplicitExceptionAfter(unboxed, throwableType, primValueAccess);
                 return unboxed;
             } else {
                 return node;
@@ -1741,7 +2003,7 @@ public class CFGBuilder {
 
         private TreeInfo getTreeInfo(Tree tree) {
             final TypeMirror type = InternalUtils.typeOf(tree);
-            final boolean boxed = TypesUtils.isBoxedPrimitive(type);
+            final boolean boxed = typeHierarchy.isBoxedPrimitive(type);
             final TypeMirror unboxedType = boxed ? types.unboxedType(type) : type;
 
             final boolean bool = TypesUtils.isBooleanType(type);
@@ -1787,11 +2049,10 @@ public class CFGBuilder {
          */
         protected Node stringConversion(Node node) {
             // For string conversion, see JLS 5.1.11
-            TypeElement stringElement =
-                elements.getTypeElement("java.lang.String");
+            TypeMirror stringType = wellKnownTypes.getStringType();
             if (!TypesUtils.isString(node.getType())) {
                 Node converted = new StringConversionNode(node.getTree(), node,
-                        stringElement.asType());
+                        stringType);
                 addToConvertedLookupMap(converted);
                 insertNodeAfter(converted, node);
                 return converted;
@@ -1836,7 +2097,7 @@ public class CFGBuilder {
          * a boxed numeric primitive and false otherwise.
          */
         protected boolean isNumericOrBoxed(TypeMirror type) {
-            if (TypesUtils.isBoxedPrimitive(type)) {
+            if (typeHierarchy.isBoxedPrimitive(type)) {
                 type = types.unboxedType(type);
             }
             return TypesUtils.isNumeric(type);
@@ -1852,10 +2113,10 @@ public class CFGBuilder {
          * @return a TypeMirror representing the binary numeric promoted type
          */
         protected TypeMirror binaryPromotedType(TypeMirror left, TypeMirror right) {
-            if (TypesUtils.isBoxedPrimitive(left)) {
+            if (typeHierarchy.isBoxedPrimitive(left)) {
                 left = types.unboxedType(left);
             }
-            if (TypesUtils.isBoxedPrimitive(right)) {
+            if (typeHierarchy.isBoxedPrimitive(right)) {
                 right = types.unboxedType(right);
             }
             TypeKind promotedTypeKind = TypesUtils.widenedNumericType(left, right);
@@ -1955,7 +2216,7 @@ public class CFGBuilder {
          *         which may be the input node
          */
         protected Node narrowAndBox(Node node, TypeMirror destType) {
-            if (TypesUtils.isBoxedPrimitive(destType)) {
+            if (typeHierarchy.isBoxedPrimitive(destType)) {
                 return box(narrow(node, types.unboxedType(destType)));
             } else {
                 return narrow(node, destType);
@@ -1975,7 +2236,7 @@ public class CFGBuilder {
             // Narrowing is restricted to cases where the left hand side
             // is byte, char, short or Byte, Char, Short and the right
             // hand side is a constant.
-            TypeMirror unboxedVarType = TypesUtils.isBoxedPrimitive(varType) ? types
+            TypeMirror unboxedVarType = typeHierarchy.isBoxedPrimitive(varType) ? types
                 .unboxedType(varType) : varType;
             TypeKind unboxedVarKind = unboxedVarType.getKind();
             boolean isLeftNarrowableTo = unboxedVarKind == TypeKind.BYTE
@@ -2015,11 +2276,11 @@ public class CFGBuilder {
 
             boolean isRightNumeric = TypesUtils.isNumeric(nodeType);
             boolean isRightPrimitive = TypesUtils.isPrimitive(nodeType);
-            boolean isRightBoxed = TypesUtils.isBoxedPrimitive(nodeType);
+            boolean isRightBoxed = typeHierarchy.isBoxedPrimitive(nodeType);
             boolean isRightReference = nodeType instanceof ReferenceType;
             boolean isLeftNumeric = TypesUtils.isNumeric(varType);
             boolean isLeftPrimitive = TypesUtils.isPrimitive(varType);
-            // boolean isLeftBoxed = TypesUtils.isBoxedPrimitive(varType);
+            // boolean isLeftBoxed = typeHierarchy.isBoxedPrimitive(varType);
             boolean isLeftReference = varType instanceof ReferenceType;
             boolean isSubtype = types.isSubtype(nodeType, varType);
 
@@ -2212,17 +2473,17 @@ public class CFGBuilder {
             // If the operand is a primitive and the whole expression is
             // boxed, then apply boxing.
             if (TypesUtils.isPrimitive(nodeType) &&
-                TypesUtils.isBoxedPrimitive(destType)) {
+                typeHierarchy.isBoxedPrimitive(destType)) {
                 return box(node);
             }
 
             // If the operand is byte or Byte and the whole expression is
             // short, then convert to short.
-            boolean isBoxedPrimitive = TypesUtils.isBoxedPrimitive(nodeType);
+            boolean isBoxedPrimitive = typeHierarchy.isBoxedPrimitive(nodeType);
             TypeMirror unboxedNodeType =
                 isBoxedPrimitive ? types.unboxedType(nodeType) : nodeType;
             TypeMirror unboxedDestType =
-                TypesUtils.isBoxedPrimitive(destType) ?
+                typeHierarchy.isBoxedPrimitive(destType) ?
                 types.unboxedType(destType) : destType;
             if (TypesUtils.isNumeric(unboxedNodeType) &&
                 TypesUtils.isNumeric(unboxedDestType)) {
@@ -2325,9 +2586,8 @@ public class CFGBuilder {
                 // No NullPointerException can be thrown, use normal node
                 extendWithNode(target);
             } else {
-                TypeElement npeElement = elements
-                    .getTypeElement("java.lang.NullPointerException");
-                extendWithNodeWithException(target, npeElement.asType());
+                TypeMirror npeType = wellKnownTypes.getNullPointerExceptionType();
+                extendWithNodeWithImplicitException(target, npeType);
             }
 
             List<Node> arguments = new ArrayList<>();
@@ -2347,16 +2607,7 @@ public class CFGBuilder {
 
             MethodInvocationNode node = new MethodInvocationNode(tree, target, arguments, getCurrentPath());
 
-            Set<TypeMirror> thrownSet = new HashSet<>();
-            // Add exceptions explicitly mentioned in the throws clause.
-            List<? extends TypeMirror> thrownTypes = element.getThrownTypes();
-            thrownSet.addAll(thrownTypes);
-            // Add Throwable to account for unchecked exceptions
-            TypeElement throwableElement = elements
-                    .getTypeElement("java.lang.Throwable");
-            thrownSet.add(throwableElement.asType());
-
-            ExtendedNode extendedNode = extendWithNodeWithExceptions(node, thrownSet);
+            ExtendedNode extendedNode = extendWithCall(node, element.getThrownTypes());
 
             /* Check for the TerminatesExecution annotation. */
             Element methodElement = InternalUtils.symbol(tree);
@@ -2470,13 +2721,12 @@ public class CFGBuilder {
             if (tree.getDetail() != null) {
                 detail = scan(tree.getDetail(), null);
             }
-            TypeElement assertException = elements
-                    .getTypeElement("java.lang.AssertionError");
+            TypeMirror assertionErrorType = wellKnownTypes.getAssertionErrorType();
             AssertionErrorNode assertNode = new AssertionErrorNode(tree,
-                    condition, detail, assertException.asType());
+                    condition, detail, assertionErrorType);
             extendWithNode(assertNode);
             NodeWithExceptionsHolder exNode = extendWithNodeWithException(
-                    new ThrowNode(null, assertNode, env.getTypeUtils()), assertException.asType());
+                    new ThrowNode(null, assertNode, env.getTypeUtils()), assertionErrorType);
             exNode.setTerminatesExecution(true);
 
             // then branch (nothing happens)
@@ -2512,9 +2762,8 @@ public class CFGBuilder {
                     // No NullPointerException can be thrown, use normal node
                     extendWithNode(target);
                 } else {
-                    TypeElement npeElement = elements
-                            .getTypeElement("java.lang.NullPointerException");
-                    extendWithNodeWithException(target, npeElement.asType());
+                    TypeMirror npeType = wellKnownTypes.getNullPointerExceptionType();
+                    extendWithNodeWithImplicitException(target, npeType);
                 }
 
                 // add assignment node
@@ -2917,12 +3166,12 @@ public class CFGBuilder {
             case LESS_THAN_EQUAL: {
                 // see JLS 15.20.1
                 TypeMirror leftType = InternalUtils.typeOf(leftTree);
-                if (TypesUtils.isBoxedPrimitive(leftType)) {
+                if (typeHierarchy.isBoxedPrimitive(leftType)) {
                     leftType = types.unboxedType(leftType);
                 }
 
                 TypeMirror rightType = InternalUtils.typeOf(rightTree);
-                if (TypesUtils.isBoxedPrimitive(rightType)) {
+                if (typeHierarchy.isBoxedPrimitive(rightType)) {
                     rightType = types.unboxedType(rightType);
                 }
 
@@ -3311,8 +3560,7 @@ public class CFGBuilder {
 
           // Distinguish loops over Iterables from loops over arrays.
 
-          TypeElement iterableElement = elements.getTypeElement("java.lang.Iterable");
-          TypeMirror iterableType = types.erasure(iterableElement.asType());
+          TypeMirror iterableType = wellKnownTypes.getErasedIterableType();
 
           VariableTree variable = tree.getVariable();
           VariableElement variableElement =
@@ -3889,16 +4137,7 @@ public class CFGBuilder {
 
             Node node = new ObjectCreationNode(tree, constructorNode, arguments);
 
-            Set<TypeMirror> thrownSet = new HashSet<>();
-            // Add exceptions explicitly mentioned in the throws clause.
-            List<? extends TypeMirror> thrownTypes = constructor.getThrownTypes();
-            thrownSet.addAll(thrownTypes);
-            // Add Throwable to account for unchecked exceptions
-            TypeElement throwableElement = elements
-                    .getTypeElement("java.lang.Throwable");
-            thrownSet.add(throwableElement.asType());
-
-            extendWithNodeWithExceptions(node, thrownSet);
+            extendWithCall(node, constructor.getThrownTypes());
 
             return node;
         }
@@ -3979,9 +4218,8 @@ public class CFGBuilder {
                 // No NullPointerException can be thrown, use normal node
                 extendWithNode(node);
             } else {
-                TypeElement npeElement = elements
-                    .getTypeElement("java.lang.NullPointerException");
-                extendWithNodeWithException(node, npeElement.asType());
+                TypeMirror npeType = wellKnownTypes.getNullPointerExceptionType();
+                extendWithNodeWithImplicitException(node, npeType);
             }
 
             return node;
@@ -4072,8 +4310,7 @@ public class CFGBuilder {
                 addLabelForNextNode(finallyLabel);
                 scan(finallyBlock, p);
 
-                TypeMirror throwableType =
-                    elements.getTypeElement("java.lang.Throwable").asType();
+                TypeMirror throwableType = wellKnownTypes.getThrowableType();
                 extendWithNodeWithException(new MarkerNode(tree, "end of finally block", env.getTypeUtils()),
                                             throwableType);
             }
@@ -4104,9 +4341,9 @@ public class CFGBuilder {
             final Node operand = scan(tree.getExpression(), p);
             final TypeMirror type = InternalUtils.typeOf(tree.getType());
             final Node node = new TypeCastNode(tree, operand, type);
-            final TypeElement cceElement = elements.getTypeElement("java.lang.ClassCastException");
+            final TypeMirror cceType = wellKnownTypes.getClassCastExceptionType();
 
-            extendWithNodeWithException(node, cceElement.asType());
+            extendWithNodeWithImplicitException(node, cceType);
             return node;
         }
 
@@ -0,0 +1,178 @@
+package org.checkerframework.dataflow.cfg;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * A socket front end for a {@link CFGService}, so that tools outside of the
+ * JVM can obtain control flow graphs from a compiler that stays warm.
+ *
+ * <p>
+ *
+ * The server listens on the loopback interface and reads requests from each
+ * connection, one per line, in UTF-8. A request is a source file, optionally
+ * followed by a class name and a method name, separated by tabs; an empty
+ * name matches everything, as {@code null} does for
+ * {@link CFGService.Batch#getCFGs}. The server compiles the file and
+ * answers with one line per control flow graph of the matching code,
+ * containing its signature (see {@link BatchCFGProcessor}), its number of
+ * blocks, its number of nodes and its {@link ControlFlowGraphNumbering
+ * fingerprint}, separated by tabs, followed by a line {@code OK} and the
+ * number of graphs. If the file cannot be read, or if it has compilation
+ * errors that may affect the matching code, the answer is a single line
+ * {@code ERROR} and a message.
+ *
+ * <p>
+ *
+ * Connections are served by a fixed number of threads, each of which uses
+ * its own compiler of the service. The same restrictions as for
+ * {@link CFGService#compile} apply to the files that one connection
+ * requests, since all requests of a connection are compiled by one thread.
+ */
+public class CFGServer implements AutoCloseable {
+
+    protected final CFGService service;
+    protected final ServerSocket serverSocket;
+    protected final ExecutorService executor;
+
+    /**
+     * Create a server that listens on {@code port} of the loopback
+     * interface, or on a free port if {@code port} is 0, and serves up to
+     * {@code threads} connections at once. {@link #serve} starts serving.
+     */
+    public CFGServer(CFGService service, int port, int threads) throws IOException {
+        this.service = service;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    /** @return the port that the server listens on */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /** Accept connections until the server is {@link #close() closed}. */
+    public void serve() throws IOException {
+        while (true) {
+            final Socket client;
+            try {
+                client = serverSocket.accept();
+            } catch (SocketException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        handle(client);
+                    } catch (IOException e) {
+                        // The client went away; nothing to answer.
+                    }
+                }
+            });
+        }
+    }
+
+    /** Answer the requests of {@code client} until it closes the connection. */
+    protected void handle(Socket client) throws IOException {
+        try (Socket socket = client) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(
+                    socket.getOutputStream(), StandardCharsets.UTF_8));
+            String request;
+            while ((request = in.readLine()) != null) {
+                answer(request, out);
+                out.flush();
+            }
+        }
+    }
+
+    /** Write the answer to {@code request} to {@code out}. */
+    protected void answer(String request, Writer out) throws IOException {
+        String[] fields = request.split("\t", -1);
+        String clas = fields.length > 1 ? emptyToNull(fields[1]) : null;
+        String method = fields.length > 2 ? emptyToNull(fields[2]) : null;
+
+        CFGService.Batch batch;
+        try {
+            batch = service.compile(Collections.singletonList(fields[0]));
+        } catch (IOException | IllegalArgumentException e) {
+            out.write("ERROR\tcannot read " + fields[0] + ": " + oneLine(e.getMessage()) + "\n");
+            return;
+        }
+        List<Diagnostic<? extends JavaFileObject>> errors = batch.getErrorsAffecting(clas, method);
+        if (!errors.isEmpty()) {
+            out.write("ERROR\t" + oneLine(errors.toString()) + "\n");
+            return;
+        }
+
+        Map<String, ControlFlowGraph> cfgs = batch.getCFGs(clas, method);
+        for (Map.Entry<String, ControlFlowGraph> e : cfgs.entrySet()) {
+            ControlFlowGraphNumbering numbering = new ControlFlowGraphNumbering(e.getValue());
+            out.write(e.getKey() + "\t" + numbering.getBlockCount() + "\t"
+                    + numbering.getNodeCount() + "\t"
+                    + Long.toHexString(numbering.getFingerprint()) + "\n");
+        }
+        out.write("OK\t" + cfgs.size() + "\n");
+    }
+
+    private static /*@Nullable*/ String emptyToNull(String name) {
+        return name.isEmpty() ? null : name;
+    }
+
+    private static String oneLine(/*@Nullable*/ String message) {
+        return String.valueOf(message).replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /** Stop accepting connections and stop the threads of the server. */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Run a server. Arguments: the port, the number of threads, and javac
+     * options for every compilation, for example {@code -classpath}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Serve control flow graphs on a local port.");
+            System.out.println("Parameters: <port> <threads> [javac options]");
+            System.exit(1);
+        }
+        List<String> options = Arrays.asList(args).subList(2, args.length);
+        try (CFGService service = new CFGService(options);
+                CFGServer server = new CFGServer(service,
+                        Integer.parseInt(args[0]), Integer.parseInt(args[1]))) {
+            System.out.println("listening on port " + server.getPort());
+            server.serve();
+        }
+    }
+}
@@ -0,0 +1,534 @@
+package org.checkerframework.dataflow.cfg;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGMethod;
+import org.checkerframework.javacutil.TreeUtils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+
+/**
+ * A long-lived service that builds control flow graphs for many source
+ * files, as an alternative to starting a new compiler for every method.
+ *
+ * <p>
+ *
+ * Each thread that uses the service gets its own compiler, which stays warm
+ * across calls of {@link #compile}: the compilation context, and with it the
+ * symbol table, the classes loaded from the class path and the JDK, and the
+ * file manager, is kept from one batch to the next. Each batch is parsed,
+ * entered, attributed and flow-analyzed in that context, but not lowered or
+ * generated, so its trees stay as the control flow graphs expect them. A
+ * call returns a {@link Batch}, from which the control flow graphs of any
+ * number of methods can be obtained. Diagnostics are collected per batch
+ * instead of being printed, so several threads can use the same service at
+ * once. The compiler attributes all code of a batch even after it has
+ * reported errors, so that the graphs of code that the errors do not affect
+ * (see {@link Batch#getErrorsAffecting}) can still be built.
+ *
+ * <p>
+ *
+ * The classes of a batch stay entered in the context, so later batches of
+ * the same thread may refer to them. A thread starts with a fresh context
+ * when a batch contains a file that the current context has compiled
+ * before, after a batch with errors, and after
+ * {@link #FILES_PER_CONTEXT} files, which bounds the memory that a context
+ * holds. Files of different batches of one thread must not declare the same
+ * classes.
+ *
+ * <p>
+ *
+ * A service must be {@link #close() closed} when it is no longer needed.
+ */
+public class CFGService implements AutoCloseable {
+
+    /** The number of files after which a thread starts a fresh context. */
+    public static final int FILES_PER_CONTEXT = 500;
+
+    protected final JavaCompiler compiler;
+
+    /** Options passed to every compilation, such as the class path. */
+    protected final List<String> options;
+
+    /** The compiler of each thread that used this service. */
+    protected final ThreadLocal<Worker> workers;
+
+    /** All file managers created so far, to be closed with the service. */
+    protected final List<StandardJavaFileManager> allFileManagers;
+
+    public CFGService() {
+        this(Collections.<String>emptyList());
+    }
+
+    /**
+     * @param options
+     *            javac options for every compilation, for example
+     *            {@code -classpath}
+     */
+    public CFGService(List<String> options) {
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        this.options = new ArrayList<>(options);
+        // Attribute and flow-analyze all classes even after an error; the
+        // option is spelled differently from JDK 9 on, and javac ignores
+        // unknown -XD options.
+        this.options.add("-XDshouldStopPolicyIfError=FLOW");
+        this.options.add("-XDshould-stop.ifError=FLOW");
+        this.allFileManagers = new CopyOnWriteArrayList<>();
+        this.workers = new ThreadLocal<Worker>() {
+            @Override
+            protected Worker initialValue() {
+                StandardJavaFileManager fileManager =
+                    compiler.getStandardFileManager(null, null, null);
+                allFileManagers.add(fileManager);
+                return new Worker(fileManager);
+            }
+        };
+    }
+
+    /**
+     * Parse and attribute {@code files} in a single compilation.
+     *
+     * @param files
+     *            paths of the Java source files
+     * @return the compiled batch; check {@link Batch#hasErrors()} before
+     *         relying on its control flow graphs
+     */
+    public Batch compile(List<String> files) throws IOException {
+        Worker worker = workers.get();
+        List<JavaFileObject> sources = new ArrayList<>();
+        for (JavaFileObject source
+                : worker.fileManager.getJavaFileObjectsFromStrings(files)) {
+            sources.add(source);
+        }
+        return worker.compile(sources);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (StandardJavaFileManager fileManager : allFileManagers) {
+            fileManager.close();
+        }
+        allFileManagers.clear();
+    }
+
+    /** The compiler of one thread, with the context it keeps warm. */
+    protected class Worker {
+
+        protected final StandardJavaFileManager fileManager;
+
+        /** Passes the diagnostics of the context to the current batch. */
+        protected final ForwardingDiagnosticListener listener;
+
+        /** The warm context, or {@code null} if the next batch starts one. */
+        protected /*@Nullable*/ Context context;
+
+        /** The files that {@link #context} has compiled. */
+        protected final Set<URI> compiledFiles;
+
+        protected Worker(StandardJavaFileManager fileManager) {
+            this.fileManager = fileManager;
+            this.listener = new ForwardingDiagnosticListener();
+            this.compiledFiles = new HashSet<>();
+        }
+
+        protected Batch compile(List<JavaFileObject> sources) throws IOException {
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            listener.delegate = diagnostics;
+            if (context != null && !canReuse(sources)) {
+                context = null;
+                compiledFiles.clear();
+            }
+
+            boolean reused = context != null;
+            List<CompilationUnitTree> roots = new ArrayList<>();
+            if (context == null) {
+                JavacTaskImpl task = (JavacTaskImpl) compiler.getTask(new StringWriter(),
+                        fileManager, listener, options, null, sources);
+                context = task.getContext();
+                for (CompilationUnitTree root : task.parse()) {
+                    roots.add(root);
+                }
+                task.analyze();
+            } else {
+                com.sun.tools.javac.main.JavaCompiler javac =
+                    com.sun.tools.javac.main.JavaCompiler.instance(context);
+                synchronized (context) {
+                    roots.addAll(javac.enterTrees(javac.parseFiles(sources)));
+                    javac.flow(javac.attribute(javac.todo));
+                }
+            }
+            for (JavaFileObject source : sources) {
+                compiledFiles.add(source.toUri());
+            }
+
+            ProcessingEnvironment env = JavacProcessingEnvironment.instance(context);
+            Batch batch = new Batch(env, roots, diagnostics.getDiagnostics());
+            listener.delegate = null;
+            if (batch.hasErrors()) {
+                // javac stops attributing in a context that has reported errors.
+                context = null;
+                compiledFiles.clear();
+                if (reused) {
+                    // The errors may come from the context rather than from
+                    // the sources, for example if an earlier batch loaded
+                    // one of their classes from a class file; only a fresh
+                    // context tells.
+                    return compile(sources);
+                }
+            }
+            return batch;
+        }
+
+        /** @return whether {@code sources} can be compiled in {@link #context} */
+        protected boolean canReuse(List<JavaFileObject> sources) {
+            if (compiledFiles.size() + sources.size() > FILES_PER_CONTEXT) {
+                return false;
+            }
+            for (JavaFileObject source : sources) {
+                if (compiledFiles.contains(source.toUri())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Passes diagnostics to the listener of the batch that is being
+     * compiled, since the listener of a context cannot be replaced.
+     */
+    protected static class ForwardingDiagnosticListener
+            implements DiagnosticListener<JavaFileObject> {
+
+        protected /*@Nullable*/ DiagnosticListener<JavaFileObject> delegate;
+
+        @Override
+        public void report(Diagnostic<? extends JavaFileObject> diagnostic) {
+            if (delegate != null) {
+                delegate.report(diagnostic);
+            }
+        }
+    }
+
+    /**
+     * The result of compiling a batch of files with a {@link CFGService}.
+     * Control flow graphs are built on demand and cached, so asking for the
+     * same method twice builds its graph once. A batch stays usable after
+     * its thread has compiled further batches.
+     */
+    public static class Batch {
+
+        protected final ProcessingEnvironment env;
+        protected final List<CompilationUnitTree> roots;
+        protected final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+
+        protected Batch(ProcessingEnvironment env, List<CompilationUnitTree> roots,
+                List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+            this.env = env;
+            this.roots = roots;
+            this.diagnostics = diagnostics;
+        }
+
+        /** @return the processing environment of the compilation */
+        public ProcessingEnvironment getProcessingEnvironment() {
+            return env;
+        }
+
+        /** @return the compilation units of the batch, in input order */
+        public List<CompilationUnitTree> getCompilationUnits() {
+            return Collections.unmodifiableList(roots);
+        }
+
+        /** @return the diagnostics that the compiler reported */
+        public List<Diagnostic<? extends JavaFileObject>> getDiagnostics() {
+            return Collections.unmodifiableList(diagnostics);
+        }
+
+        /** @return whether the compiler reported an error */
+        public boolean hasErrors() {
+            for (Diagnostic<? extends JavaFileObject> d : diagnostics) {
+                if (d.getKind() == Diagnostic.Kind.ERROR) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return the errors that may affect the control flow graph of
+         *         {@code code} in {@code root}: the errors inside
+         *         {@code code}, and the errors outside of the bodies of
+         *         methods, initializer blocks and field initializers in all
+         *         files of the batch, such as errors in declarations, which
+         *         may affect any code
+         */
+        public List<Diagnostic<? extends JavaFileObject>> getErrorsAffecting(
+                CompilationUnitTree root, Tree code) {
+            SourcePositions positions = Trees.instance(env).getSourcePositions();
+            List<Diagnostic<? extends JavaFileObject>> result = new ArrayList<>();
+            for (Diagnostic<? extends JavaFileObject> d : diagnostics) {
+                if (d.getKind() != Diagnostic.Kind.ERROR) {
+                    continue;
+                }
+                CompilationUnitTree errorRoot = rootOf(d.getSource());
+                long position = d.getPosition();
+                if (errorRoot == null || position == Diagnostic.NOPOS) {
+                    result.add(d);
+                } else if (errorRoot == root && contains(positions, root, code, position)) {
+                    result.add(d);
+                } else if (!isInCode(positions, errorRoot, position)) {
+                    result.add(d);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * @return the errors that may affect the control flow graphs that
+         *         {@link #getCFGs(String, String)} builds for the same
+         *         arguments
+         */
+        public List<Diagnostic<? extends JavaFileObject>> getErrorsAffecting(
+                /*@Nullable*/ final String clas, /*@Nullable*/ final String method) {
+            Set<Diagnostic<? extends JavaFileObject>> result = new LinkedHashSet<>();
+            for (CompilationUnitTree root : roots) {
+                final List<Tree> requested = new ArrayList<>();
+                if (clas == null && method == null) {
+                    requested.add(root);
+                } else {
+                    new TreeScanner<Void, Void>() {
+                        @Override
+                        public Void visitClass(ClassTree node, Void p) {
+                            if (clas == null || node.getSimpleName().contentEquals(clas)) {
+                                for (Tree member : node.getMembers()) {
+                                    if (method == null || (member.getKind() == Tree.Kind.METHOD
+                                            && ((MethodTree) member).getName()
+                                                    .contentEquals(method))) {
+                                        requested.add(member);
+                                    }
+                                }
+                            }
+                            return super.visitClass(node, p);
+                        }
+                    }.scan(root, null);
+                }
+                for (Tree tree : requested) {
+                    result.addAll(getErrorsAffecting(root, tree));
+                }
+            }
+            return new ArrayList<>(result);
+        }
+
+        /**
+         * @return the compilation unit of {@code source}, or {@code null} if
+         *         it is not part of the batch
+         */
+        protected /*@Nullable*/ CompilationUnitTree rootOf(
+                /*@Nullable*/ JavaFileObject source) {
+            if (source != null) {
+                for (CompilationUnitTree root : roots) {
+                    if (root.getSourceFile().toUri().equals(source.toUri())) {
+                        return root;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return whether {@code position} lies in the body of a method, an
+         *         initializer block or a field initializer of {@code root}
+         */
+        protected boolean isInCode(final SourcePositions positions,
+                final CompilationUnitTree root, final long position) {
+            final boolean[] found = new boolean[1];
+            new TreeScanner<Void, Void>() {
+                @Override
+                public Void visitClass(ClassTree node, Void p) {
+                    for (Tree member : node.getMembers()) {
+                        Tree code = null;
+                        if (member.getKind() == Tree.Kind.METHOD) {
+                            code = ((MethodTree) member).getBody();
+                        } else if (member.getKind() == Tree.Kind.BLOCK) {
+                            code = member;
+                        } else if (member.getKind() == Tree.Kind.VARIABLE) {
+                            code = ((VariableTree) member).getInitializer();
+                        }
+                        if (code != null && contains(positions, root, code, position)) {
+                            found[0] = true;
+                        }
+                    }
+                    return super.visitClass(node, p);
+                }
+            }.scan(root, null);
+            return found[0];
+        }
+
+        private static boolean contains(SourcePositions positions,
+                CompilationUnitTree root, Tree tree, long position) {
+            long start = positions.getStartPosition(root, tree);
+            long end = positions.getEndPosition(root, tree);
+            // Generated trees, such as default constructors, have no end.
+            return start != Diagnostic.NOPOS && end != Diagnostic.NOPOS
+                    && start <= position && position < end;
+        }
+
+        /**
+         * @return the first method called {@code method} in a class called
+         *         {@code clas} in {@code root}, or {@code null} if there is
+         *         no such method
+         */
+        public /*@Nullable*/ CFGMethod findMethod(CompilationUnitTree root,
+                final String clas, final String method) {
+            final List<CFGMethod> result = new ArrayList<>(1);
+            new MethodScanner() {
+                @Override
+                protected boolean visitMethod(CompilationUnitTree root,
+                        ClassTree classTree, MethodTree methodTree) {
+                    if (classTree.getSimpleName().contentEquals(clas)
+                            && methodTree.getName().contentEquals(method)) {
+                        result.add(new CFGMethod(methodTree, classTree));
+                    }
+                    return result.isEmpty();
+                }
+            }.scan(root);
+            return result.isEmpty() ? null : result.get(0);
+        }
+
+        /**
+         * @return the control flow graph of the first method called
+         *         {@code method} in a class called {@code clas}, or
+         *         {@code null} if there is no such method
+         */
+        public /*@Nullable*/ ControlFlowGraph getMethodCFG(String clas, String method) {
+            for (CompilationUnitTree root : roots) {
+                CFGMethod found = findMethod(root, clas, method);
+                if (found != null) {
+                    return getCFG(root, found.getClassTree(), found.getMethod());
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return the control flow graphs of all methods with a body in the
+         *         batch
+         */
+        public List<ControlFlowGraph> getAllMethodCFGs() {
+            final List<ControlFlowGraph> result = new ArrayList<>();
+            for (CompilationUnitTree root : roots) {
+                new MethodScanner() {
+                    @Override
+                    protected boolean visitMethod(CompilationUnitTree root,
+                            ClassTree classTree, MethodTree methodTree) {
+                        result.add(getCFG(root, classTree, methodTree));
+                        return true;
+                    }
+                }.scan(root);
+            }
+            return result;
+        }
+
+        /**
+         * @return the control flow graphs of the code in the batch that
+         *         matches {@code clas} and {@code method}, where {@code null}
+         *         matches everything, keyed by signature as described in
+         *         {@link BatchCFGProcessor}
+         */
+        public Map<String, ControlFlowGraph> getCFGs(/*@Nullable*/ String clas,
+                /*@Nullable*/ String method) {
+            BatchCFGProcessor.Collector collector =
+                new BatchCFGProcessor.Collector(env, clas, method);
+            synchronized (((JavacProcessingEnvironment) env).getContext()) {
+                for (CompilationUnitTree root : roots) {
+                    collector.addCompilationUnit(root);
+                }
+            }
+            return collector.getCFGs();
+        }
+
+        protected ControlFlowGraph getCFG(CompilationUnitTree root,
+                ClassTree classTree, MethodTree methodTree) {
+            // The context may be compiling the next batch of its thread.
+            synchronized (((JavacProcessingEnvironment) env).getContext()) {
+                return ControlFlowGraphCache.instance(env).getOrBuild(root, env,
+                        new CFGMethod(methodTree, classTree));
+            }
+        }
+    }
+
+    /**
+     * Visits every method with a body, together with its class, until
+     * {@link #visitMethod} returns false.
+     */
+    protected static abstract class MethodScanner extends TreePathScanner<Void, Void> {
+
+        private CompilationUnitTree root;
+        private boolean done;
+
+        /** @return false to stop scanning */
+        protected abstract boolean visitMethod(CompilationUnitTree root,
+                ClassTree classTree, MethodTree methodTree);
+
+        public void scan(CompilationUnitTree root) {
+            this.root = root;
+            this.done = false;
+            scan(new TreePath(root), null);
+        }
+
+        @Override
+        public Void visitClass(ClassTree node, Void p) {
+            if (done) {
+                return null;
+            }
+            return super.visitClass(node, p);
+        }
+
+        @Override
+        public Void visitMethod(MethodTree node, Void p) {
+            if (done || node.getBody() == null) {
+                return null;
+            }
+            ClassTree classTree = TreeUtils.enclosingClass(getCurrentPath());
+            done = !visitMethod(root, classTree, node);
+            // The body is not scanned, so methods of local and anonymous
+            // classes are not visited.
+            return null;
+        }
+    }
+}
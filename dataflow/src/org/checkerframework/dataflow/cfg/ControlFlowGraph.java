@@ -20,6 +20,7 @@ import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 
@@ -51,14 +52,14 @@ public class ControlFlowGraph {
      * Maps from AST {@link Tree}s to {@link Node}s.  Every Tree that produces
      * a value will have at least one corresponding Node.  Trees
      * that undergo conversions, such as boxing or unboxing, can map to two
-     * distinct Nodes.  The Node for the pre-conversion value is stored
-     * in treeLookup, while the Node for the post-conversion value
-     * is stored in convertedTreeLookup.
+     * distinct Nodes.  The table holds both the Node for the pre-conversion
+     * value and the Node for the post-conversion value.
+     *
+     * The table is owned by this CFG and is not modified after
+     * construction, so it can be shared with analysis results
+     * without copying.
      */
-    protected IdentityHashMap<Tree, Node> treeLookup;
-
-    /** Map from AST {@link Tree}s to post-conversion {@link Node}s. */
-    protected IdentityHashMap<Tree, Node> convertedTreeLookup;
+    protected final TreeLookupTable treeLookup;
 
     /**
      * All return nodes (if any) encountered. Only includes return
@@ -67,14 +68,12 @@ public class ControlFlowGraph {
     protected final List<ReturnNode> returnNodes;
 
     public ControlFlowGraph(SpecialBlock entryBlock, SpecialBlockImpl regularExitBlock, SpecialBlockImpl exceptionalExitBlock, UnderlyingAST underlyingAST,
-            IdentityHashMap<Tree, Node> treeLookup,
-            IdentityHashMap<Tree, Node> convertedTreeLookup,
+            TreeLookupTable treeLookup,
             List<ReturnNode> returnNodes) {
         super();
         this.entryBlock = entryBlock;
         this.underlyingAST = underlyingAST;
         this.treeLookup = treeLookup;
-        this.convertedTreeLookup = convertedTreeLookup;
         this.regularExitBlock = regularExitBlock;
         this.exceptionalExitBlock = exceptionalExitBlock;
         this.returnNodes = returnNodes;
@@ -85,11 +84,7 @@ public class ControlFlowGraph {
      *         corresponds.
      */
     public Node getNodeCorrespondingToTree(Tree t) {
-        if (convertedTreeLookup.containsKey(t)) {
-            return convertedTreeLookup.get(t);
-        } else {
-            return treeLookup.get(t);
-        }
+        return treeLookup.get(t);
     }
 
     /** @return the entry block of the control flow graph. */
@@ -218,10 +213,21 @@ public class ControlFlowGraph {
     }
 
     /**
-     * @return the tree-lookup map
+     * @return a copy of the tree-lookup map
+     * @deprecated copies the map on every call; use
+     *             {@link #getTreeLookupView()} instead
      */
+    @Deprecated
     public IdentityHashMap<Tree, Node> getTreeLookup() {
-        return new IdentityHashMap<>(treeLookup);
+        return new IdentityHashMap<>(getTreeLookupView());
+    }
+
+    /**
+     * @return an unmodifiable view of the tree-lookup map. The view is
+     *         backed by this CFG and is not copied.
+     */
+    public Map<Tree, Node> getTreeLookupView() {
+        return treeLookup.asPreConversionMap();
     }
 
     /**
@@ -0,0 +1,321 @@
+package org.checkerframework.dataflow.cfg;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.javacutil.CollectionUtils;
+import org.checkerframework.javacutil.CollectionUtils.ConcurrentLRUCache;
+import org.checkerframework.javacutil.ErrorReporter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.annotation.processing.ProcessingEnvironment;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+
+/**
+ * A cache of finished control flow graphs for one compilation, so that
+ * clients that ask for the CFG of the same code more than once (for example,
+ * several checkers or several passes over a compilation unit) run the
+ * {@link CFGBuilder} only once.
+ *
+ * <p>
+ *
+ * Graphs are keyed by the {@link UnderlyingAST#getCode() code tree} they were
+ * built from, compared by reference, and by the options that were passed to
+ * the {@link CFGBuilder}. Together with a graph, the cache keeps the classes
+ * and lambdas that the builder found in the code (see {@link Entry}), so
+ * that clients can reach nested code through the cache. A cached graph is
+ * shared between all clients, so clients must not modify it. If a client
+ * modifies the AST after a graph was built for it, it has to call
+ * {@link #invalidate(Tree)}.
+ *
+ * <p>
+ *
+ * The {@link CFGBuilder} resolves names and types with the javac
+ * compilation context, which is not thread-safe, so graphs are built while
+ * holding the lock of the context, as {@link #instance} and
+ * {@link WellKnownTypes} do. A thread that asks for a graph that is being
+ * built waits for it instead of building it again, and cached graphs are
+ * returned without taking the lock. The cache holds a bounded number of
+ * graphs and evicts the least recently used ones.
+ *
+ * <p>
+ *
+ * Nodes refer directly to the trees and type mirrors of the compilation
+ * they were built in, so the graphs in this cache cannot be reused by a
+ * later compilation. Use {@link #instance(ProcessingEnvironment)} to obtain
+ * the cache of a compilation; it is discarded together with the compilation
+ * context. To reuse graphs across compilations, install a
+ * {@link ControlFlowGraphFileCache} with {@link #setFileCache}.
+ */
+public class ControlFlowGraphCache {
+
+    protected static final Context.Key<ControlFlowGraphCache> cfgCacheKey =
+            new Context.Key<>();
+
+    /** The number of graphs that the cache of a compilation holds. */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** The number of different combinations of {@link CFGBuilder} options. */
+    protected static final int OPTION_COMBINATIONS = 8;
+
+    /**
+     * A control flow graph together with the class declarations and lambdas
+     * that {@link CFGBuilder} encountered while building it.
+     */
+    public static class Entry {
+        protected final ControlFlowGraph cfg;
+        protected final List<ClassTree> declaredClasses;
+        protected final List<LambdaExpressionTree> declaredLambdas;
+
+        protected Entry(ControlFlowGraph cfg, List<ClassTree> declaredClasses,
+                List<LambdaExpressionTree> declaredLambdas) {
+            this.cfg = cfg;
+            this.declaredClasses = Collections.unmodifiableList(
+                    new ArrayList<>(declaredClasses));
+            this.declaredLambdas = Collections.unmodifiableList(
+                    new ArrayList<>(declaredLambdas));
+        }
+
+        public ControlFlowGraph getCFG() {
+            return cfg;
+        }
+
+        /** @see CFGBuilder#getDeclaredClasses() */
+        public List<ClassTree> getDeclaredClasses() {
+            return declaredClasses;
+        }
+
+        /** @see CFGBuilder#getDeclaredLambdas() */
+        public List<LambdaExpressionTree> getDeclaredLambdas() {
+            return declaredLambdas;
+        }
+    }
+
+    /** Identifies a graph by its code tree (by reference) and its options. */
+    protected static final class Key {
+        protected final Tree code;
+        protected final int options;
+
+        protected Key(Tree code, int options) {
+            this.code = code;
+            this.options = options;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return code == other.code && options == other.options;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(code) * OPTION_COMBINATIONS + options;
+        }
+    }
+
+    /** The compilation context whose lock is held while building graphs. */
+    protected final Context context;
+
+    /** The graphs that have been built or are being built. */
+    protected final ConcurrentLRUCache<Key, FutureTask<Entry>> entries;
+
+    /** The file cache that is consulted before a graph is built, if any. */
+    protected volatile /*@Nullable*/ ControlFlowGraphFileCache fileCache;
+
+    protected ControlFlowGraphCache(Context context, int capacity) {
+        this.context = context;
+        entries = CollectionUtils.createConcurrentLRUCache(capacity);
+    }
+
+    /**
+     * @return the CFG cache of the compilation context of {@code env},
+     *         creating it on first use
+     */
+    public static ControlFlowGraphCache instance(ProcessingEnvironment env) {
+        Context context = ((JavacProcessingEnvironment) env).getContext();
+        synchronized (context) {
+            ControlFlowGraphCache instance = context.get(cfgCacheKey);
+            if (instance == null) {
+                instance = new ControlFlowGraphCache(context, DEFAULT_CAPACITY);
+                context.put(cfgCacheKey, instance);
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Set the file cache that graphs are loaded from before they are built
+     * and stored to after they are built, or {@code null} for none.
+     */
+    public void setFileCache(/*@Nullable*/ ControlFlowGraphFileCache fileCache) {
+        this.fileCache = fileCache;
+    }
+
+    /**
+     * Return the control flow graph of {@code underlyingAST} and the code
+     * declared in it, building the graph with a {@link CFGBuilder} that uses
+     * the given options if it is not cached yet. See
+     * {@link CFGBuilder#CFGBuilder(boolean, boolean, boolean)} for the
+     * meaning of the options.
+     */
+    public Entry getOrBuildEntry(
+            final CompilationUnitTree root, final ProcessingEnvironment env,
+            final UnderlyingAST underlyingAST, final boolean assumeAssertionsEnabled,
+            final boolean assumeAssertionsDisabled, final boolean collapseImplicitExceptions) {
+        final int options = optionIndex(assumeAssertionsEnabled,
+                assumeAssertionsDisabled, collapseImplicitExceptions);
+        Key key = new Key(underlyingAST.getCode(), options);
+        FutureTask<Entry> task = entries.get(key);
+        if (task == null) {
+            FutureTask<Entry> newTask = new FutureTask<>(new Callable<Entry>() {
+                @Override
+                public Entry call() {
+                    CFGBuilder builder = new CFGBuilder(assumeAssertionsEnabled,
+                            assumeAssertionsDisabled, collapseImplicitExceptions);
+                    ControlFlowGraphFileCache files = fileCache;
+                    if (files == null) {
+                        return new Entry(builder.run(root, env, underlyingAST),
+                                builder.getDeclaredClasses(), builder.getDeclaredLambdas());
+                    }
+
+                    // Finding the path is as expensive as decoding a graph,
+                    // so find it once for the file cache and the builder.
+                    TreePath codePath = Trees.instance(env).getPath(root, underlyingAST.getCode());
+                    TreePath scopePath = ControlFlowGraphCodec.scopePathOf(codePath, underlyingAST);
+                    String fileKey = files.computeKey(env, underlyingAST, scopePath, options);
+                    if (fileKey != null) {
+                        Entry loaded = files.load(fileKey, env, underlyingAST, scopePath);
+                        if (loaded != null) {
+                            return loaded;
+                        }
+                    }
+                    Entry entry = new Entry(builder.run(codePath, env, underlyingAST),
+                            builder.getDeclaredClasses(), builder.getDeclaredLambdas());
+                    if (fileKey != null) {
+                        files.store(fileKey, env, scopePath, entry);
+                    }
+                    return entry;
+                }
+            });
+            task = entries.putIfAbsent(key, newTask);
+            if (task == newTask) {
+                synchronized (context) {
+                    newTask.run();
+                }
+            }
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            // Do not cache the failure; a later request builds the graph again.
+            entries.remove(key);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            ErrorReporter.errorAbort("ControlFlowGraphCache: building the CFG failed", cause);
+            return null; // dead code
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ErrorReporter.errorAbort("ControlFlowGraphCache: interrupted while waiting for a CFG", e);
+            return null; // dead code
+        }
+    }
+
+    /**
+     * Return the control flow graph of {@code underlyingAST}, building it
+     * with a {@link CFGBuilder} that uses the given options if it is not
+     * cached yet.
+     *
+     * @see #getOrBuildEntry
+     */
+    public ControlFlowGraph getOrBuild(
+            CompilationUnitTree root, ProcessingEnvironment env,
+            UnderlyingAST underlyingAST, boolean assumeAssertionsEnabled,
+            boolean assumeAssertionsDisabled, boolean collapseImplicitExceptions) {
+        return getOrBuildEntry(root, env, underlyingAST, assumeAssertionsEnabled,
+                assumeAssertionsDisabled, collapseImplicitExceptions).getCFG();
+    }
+
+    /**
+     * Return the control flow graph of {@code underlyingAST} with the
+     * default options, building it if it is not cached yet.
+     */
+    public ControlFlowGraph getOrBuild(CompilationUnitTree root,
+            ProcessingEnvironment env, UnderlyingAST underlyingAST) {
+        return getOrBuild(root, env, underlyingAST, false, false, false);
+    }
+
+    /**
+     * @return the cached control flow graph of {@code code} built with the
+     *         given options, or {@code null} if there is none or it is still
+     *         being built
+     */
+    public /*@Nullable*/ ControlFlowGraph get(Tree code,
+            boolean assumeAssertionsEnabled, boolean assumeAssertionsDisabled,
+            boolean collapseImplicitExceptions) {
+        Entry entry = getEntry(code, assumeAssertionsEnabled,
+                assumeAssertionsDisabled, collapseImplicitExceptions);
+        return entry == null ? null : entry.getCFG();
+    }
+
+    /**
+     * @return the cached entry of {@code code} built with the given options,
+     *         or {@code null} if there is none or it is still being built
+     */
+    public /*@Nullable*/ Entry getEntry(Tree code,
+            boolean assumeAssertionsEnabled, boolean assumeAssertionsDisabled,
+            boolean collapseImplicitExceptions) {
+        FutureTask<Entry> task = entries.get(new Key(code, optionIndex(
+                assumeAssertionsEnabled, assumeAssertionsDisabled,
+                collapseImplicitExceptions)));
+        if (task == null || !task.isDone()) {
+            return null;
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException | InterruptedException e) {
+            return null;
+        }
+    }
+
+    /** Remove all cached graphs of {@code code}, for any options. */
+    public void invalidate(Tree code) {
+        for (int i = 0; i < OPTION_COMBINATIONS; i++) {
+            entries.remove(new Key(code, i));
+        }
+    }
+
+    /** Remove all cached graphs. */
+    public void clear() {
+        entries.clear();
+    }
+
+    protected static int optionIndex(boolean assumeAssertionsEnabled,
+            boolean assumeAssertionsDisabled, boolean collapseImplicitExceptions) {
+        return (assumeAssertionsEnabled ? 1 : 0)
+                | (assumeAssertionsDisabled ? 2 : 0)
+                | (collapseImplicitExceptions ? 4 : 0);
+    }
+}
@@ -0,0 +1,1408 @@
+package org.checkerframework.dataflow.cfg;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.dataflow.analysis.Store;
+import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGLambda;
+import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGMethod;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.block.Block.BlockType;
+import org.checkerframework.dataflow.cfg.block.BlockImpl;
+import org.checkerframework.dataflow.cfg.block.ConditionalBlock;
+import org.checkerframework.dataflow.cfg.block.ConditionalBlockImpl;
+import org.checkerframework.dataflow.cfg.block.ExceptionBlock;
+import org.checkerframework.dataflow.cfg.block.ExceptionBlockImpl;
+import org.checkerframework.dataflow.cfg.block.RegularBlock;
+import org.checkerframework.dataflow.cfg.block.RegularBlockImpl;
+import org.checkerframework.dataflow.cfg.block.SingleSuccessorBlock;
+import org.checkerframework.dataflow.cfg.block.SingleSuccessorBlockImpl;
+import org.checkerframework.dataflow.cfg.block.SpecialBlock;
+import org.checkerframework.dataflow.cfg.block.SpecialBlock.SpecialBlockType;
+import org.checkerframework.dataflow.cfg.block.SpecialBlockImpl;
+import org.checkerframework.dataflow.cfg.node.*;
+import org.checkerframework.javacutil.TreeUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import com.sun.source.tree.*;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+
+/**
+ * A compact binary encoding of a finished {@link ControlFlowGraph} together
+ * with the code declared in it (see {@link ControlFlowGraphCache.Entry}),
+ * so that a graph can be reused by a later compilation of the same source.
+ * {@link ControlFlowGraphFileCache} stores graphs in this encoding.
+ *
+ * <p>
+ *
+ * An encoded graph consists of a type table, a node table and a block
+ * table, followed by the tree lookup, the return nodes and the declared
+ * classes and lambdas. Integers are written in a variable-length format,
+ * and references to types, nodes and blocks are indices into their tables.
+ * Each node is written after its operands, with its kind, its flags, the
+ * tree it was built from and the indices of its operands. The types that a
+ * node does not take from its tree, such as the type of a conversion, are
+ * written to the type table, which refers to classes by their canonical
+ * names, to local and anonymous classes by their declaration in or around
+ * the scope, and to type variables by the element that declares them.
+ *
+ * <p>
+ *
+ * Trees are referred to by their number in a preorder traversal of the
+ * {@link #scopeOf scope} of the graph: the method, lambda or code it was
+ * built from. A graph is decoded against the trees of the current
+ * compilation of the same source: decoding creates every node anew with
+ * the same constructor that the {@link CFGBuilder} used, so types, elements
+ * and assignment contexts belong to the current compilation, but none of
+ * the {@link CFGBuilder}'s work is repeated. The kinds of the trees are
+ * checked while decoding, and an encoding that does not fit the scope is
+ * rejected with an {@link IOException}.
+ *
+ * <p>
+ *
+ * Not every graph can be encoded. Trees that the {@link CFGBuilder} creates
+ * itself, for example for boxing, compound assignments and enhanced for
+ * loops, are not part of the source, and some types, such as intersection
+ * and captured types, have no name. {@link #encode} returns {@code null}
+ * for such graphs.
+ */
+public class ControlFlowGraphCodec {
+
+    /** Marks an encoded graph. */
+    protected static final int MAGIC = 0x43464721;
+
+    /** The version of the encoding; it is part of every cache key. */
+    public static final int FORMAT_VERSION = 1;
+
+    // node flags
+    protected static final int LVALUE = 1;
+    protected static final int NOT_IN_SOURCE = 2;
+    protected static final int START_OF_BLOCK = 4;
+    protected static final int HAS_TREE_PATH = 8;
+
+    // type table tags
+    protected static final int TYPE_NONE = 0;
+    protected static final int TYPE_VOID = 1;
+    protected static final int TYPE_NULL = 2;
+    protected static final int TYPE_PRIMITIVE = 3;
+    protected static final int TYPE_ARRAY = 4;
+    protected static final int TYPE_DECLARED = 5;
+    protected static final int TYPE_VARIABLE = 6;
+    protected static final int TYPE_WILDCARD = 7;
+
+    // element reference tags
+    protected static final int ELEMENT_NAMED_TYPE = 0;
+    protected static final int ELEMENT_LOCAL_TYPE = 1;
+    protected static final int ELEMENT_METHOD = 2;
+    protected static final int ELEMENT_ENCLOSING_TYPE = 3;
+
+    private static final Node.Kind[] NODE_KINDS = Node.Kind.values();
+    private static final Tree.Kind[] TREE_KINDS = Tree.Kind.values();
+    private static final TypeKind[] TYPE_KINDS = TypeKind.values();
+    private static final BlockType[] BLOCK_TYPES = BlockType.values();
+    private static final SpecialBlockType[] SPECIAL_BLOCK_TYPES = SpecialBlockType.values();
+    private static final Store.FlowRule[] FLOW_RULES = Store.FlowRule.values();
+
+    protected final ProcessingEnvironment env;
+    protected final Types types;
+    protected final Elements elements;
+    protected final Trees trees;
+
+    /**
+     * The classes looked up by canonical name; {@link Elements#getTypeElement}
+     * is a large part of the cost of decoding.
+     */
+    protected final Map<String, TypeElement> typeElements = new ConcurrentHashMap<>();
+
+    public ControlFlowGraphCodec(ProcessingEnvironment env) {
+        this.env = env;
+        this.types = env.getTypeUtils();
+        this.elements = env.getElementUtils();
+        this.trees = Trees.instance(env);
+    }
+
+    /**
+     * @return the class with the canonical name {@code name}, or
+     *         {@code null} if there is none
+     */
+    protected /*@Nullable*/ TypeElement getTypeElement(String name) {
+        TypeElement element = typeElements.get(name);
+        if (element == null) {
+            element = elements.getTypeElement(name);
+            if (element != null) {
+                typeElements.put(name, element);
+            }
+        }
+        return element;
+    }
+
+    /**
+     * @return the tree that the trees of a graph of {@code underlyingAST}
+     *         are numbered in: the method for a method, the lambda for a
+     *         lambda, and the code otherwise
+     */
+    public static Tree scopeOf(UnderlyingAST underlyingAST) {
+        switch (underlyingAST.getKind()) {
+        case METHOD:
+            return ((CFGMethod) underlyingAST).getMethod();
+        case LAMBDA:
+            return ((CFGLambda) underlyingAST).getLambdaTree();
+        default:
+            return underlyingAST.getCode();
+        }
+    }
+
+    /**
+     * @return the path to {@link #scopeOf(UnderlyingAST) the scope} of
+     *         {@code underlyingAST}, given the path to its code
+     */
+    public static TreePath scopePathOf(TreePath codePath, UnderlyingAST underlyingAST) {
+        Tree scope = scopeOf(underlyingAST);
+        TreePath path = codePath;
+        while (path.getLeaf() != scope) {
+            path = path.getParentPath();
+        }
+        return path;
+    }
+
+    /**
+     * Encode {@code entry}, whose graph was built from the code of the scope
+     * at the end of {@code scopePath}.
+     *
+     * @return the encoding, or {@code null} if the graph cannot be encoded
+     */
+    public /*@Nullable*/ byte[] encode(ControlFlowGraphCache.Entry entry, TreePath scopePath) {
+        try {
+            return new Encoder(new TreeIndex(scopePath)).encode(entry);
+        } catch (UnsupportedGraphException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decode a graph of {@code underlyingAST} from the remaining bytes of
+     * {@code in}.
+     *
+     * @param scopePath
+     *            the path to {@link #scopeOf(UnderlyingAST) the scope} of
+     *            {@code underlyingAST}
+     * @throws IOException
+     *             if {@code in} is not an encoding of a graph of this scope
+     */
+    public ControlFlowGraphCache.Entry decode(ByteBuffer in, TreePath scopePath,
+            UnderlyingAST underlyingAST) throws IOException {
+        try {
+            return new Decoder(in, new TreeIndex(scopePath)).decode(underlyingAST);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | ClassCastException e) {
+            throw new IOException("malformed control flow graph", e);
+        }
+    }
+
+    /**
+     * Numbers the trees of a scope in preorder, and remembers the path to
+     * each of them.
+     */
+    protected static class TreeIndex extends TreeScanner<Void, TreePath> {
+
+        /** The path to every tree, by number. */
+        protected final List<TreePath> paths = new ArrayList<>();
+
+        /** The number of every tree; a tree that occurs twice has the first. */
+        protected final Map<Tree, Integer> numbers = new IdentityHashMap<>();
+
+        protected TreeIndex(TreePath scopePath) {
+            add(scopePath);
+            scopePath.getLeaf().accept(this, scopePath);
+        }
+
+        private void add(TreePath path) {
+            if (!numbers.containsKey(path.getLeaf())) {
+                numbers.put(path.getLeaf(), paths.size());
+            }
+            paths.add(path);
+        }
+
+        @Override
+        public Void scan(Tree tree, TreePath parent) {
+            if (tree == null) {
+                return null;
+            }
+            TreePath path = new TreePath(parent, tree);
+            add(path);
+            return tree.accept(this, path);
+        }
+
+        /** @return the number of trees in the scope */
+        public int size() {
+            return paths.size();
+        }
+    }
+
+    /** Thrown while encoding a graph that has no encoding. */
+    protected static class UnsupportedGraphException extends Exception {
+        private static final long serialVersionUID = 7469134785311874612L;
+
+        protected UnsupportedGraphException(String message) {
+            super(message);
+        }
+    }
+
+    /** A growable byte array with variable-length integers and strings. */
+    protected static class Output extends ByteArrayOutputStream {
+
+        public void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        /** Write a non-negative {@code value} in 7-bit groups. */
+        public void writeVarInt(int value) {
+            assert value >= 0;
+            while ((value & ~0x7f) != 0) {
+                write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        public void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        public void append(Output other) {
+            write(other.buf, 0, other.count);
+        }
+    }
+
+    protected static int readVarInt(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.get();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed integer");
+    }
+
+    protected static String readString(ByteBuffer in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the operands of {@code node} in the order in which its
+     *         constructor takes them; entries may be {@code null}
+     */
+    protected static List<Node> operandsOf(Node node) throws UnsupportedGraphException {
+        switch (node.getKind()) {
+        case SHORT_LITERAL:
+        case INTEGER_LITERAL:
+        case LONG_LITERAL:
+        case FLOAT_LITERAL:
+        case DOUBLE_LITERAL:
+        case BOOLEAN_LITERAL:
+        case CHARACTER_LITERAL:
+        case STRING_LITERAL:
+        case NULL_LITERAL:
+        case VARIABLE_DECLARATION:
+        case IMPLICIT_THIS_LITERAL:
+        case EXPLICIT_THIS_LITERAL:
+        case SUPER:
+        case MEMBER_REFERENCE:
+        case ARRAY_TYPE:
+        case PRIMITIVE_TYPE:
+        case PARAMETERIZED_TYPE:
+        case MARKER:
+            return Collections.emptyList();
+        case NUMERICAL_MINUS:
+            return operands(((NumericalMinusNode) node).getOperand());
+        case NUMERICAL_PLUS:
+            return operands(((NumericalPlusNode) node).getOperand());
+        case BITWISE_COMPLEMENT:
+            return operands(((BitwiseComplementNode) node).getOperand());
+        case NULL_CHK:
+            return operands(((NullChkNode) node).getOperand());
+        case CONDITIONAL_NOT:
+            return operands(((ConditionalNotNode) node).getOperand());
+        case STRING_CONVERSION:
+            return operands(((StringConversionNode) node).getOperand());
+        case NARROWING_CONVERSION:
+            return operands(((NarrowingConversionNode) node).getOperand());
+        case WIDENING_CONVERSION:
+            return operands(((WideningConversionNode) node).getOperand());
+        case INSTANCE_OF:
+            return operands(((InstanceOfNode) node).getOperand());
+        case TYPE_CAST:
+            return operands(((TypeCastNode) node).getOperand());
+        case STRING_CONCATENATE: {
+            StringConcatenateNode n = (StringConcatenateNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case NUMERICAL_ADDITION: {
+            NumericalAdditionNode n = (NumericalAdditionNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case NUMERICAL_SUBTRACTION: {
+            NumericalSubtractionNode n = (NumericalSubtractionNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case NUMERICAL_MULTIPLICATION: {
+            NumericalMultiplicationNode n = (NumericalMultiplicationNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case INTEGER_DIVISION: {
+            IntegerDivisionNode n = (IntegerDivisionNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case FLOATING_DIVISION: {
+            FloatingDivisionNode n = (FloatingDivisionNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case INTEGER_REMAINDER: {
+            IntegerRemainderNode n = (IntegerRemainderNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case FLOATING_REMAINDER: {
+            FloatingRemainderNode n = (FloatingRemainderNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case LEFT_SHIFT: {
+            LeftShiftNode n = (LeftShiftNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case SIGNED_RIGHT_SHIFT: {
+            SignedRightShiftNode n = (SignedRightShiftNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case UNSIGNED_RIGHT_SHIFT: {
+            UnsignedRightShiftNode n = (UnsignedRightShiftNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case BITWISE_AND: {
+            BitwiseAndNode n = (BitwiseAndNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case BITWISE_OR: {
+            BitwiseOrNode n = (BitwiseOrNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case BITWISE_XOR: {
+            BitwiseXorNode n = (BitwiseXorNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case STRING_CONCATENATE_ASSIGNMENT: {
+            StringConcatenateAssignmentNode n = (StringConcatenateAssignmentNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case LESS_THAN: {
+            LessThanNode n = (LessThanNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case LESS_THAN_OR_EQUAL: {
+            LessThanOrEqualNode n = (LessThanOrEqualNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case GREATER_THAN: {
+            GreaterThanNode n = (GreaterThanNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case GREATER_THAN_OR_EQUAL: {
+            GreaterThanOrEqualNode n = (GreaterThanOrEqualNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case EQUAL_TO: {
+            EqualToNode n = (EqualToNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case NOT_EQUAL: {
+            NotEqualNode n = (NotEqualNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case CONDITIONAL_AND: {
+            ConditionalAndNode n = (ConditionalAndNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case CONDITIONAL_OR: {
+            ConditionalOrNode n = (ConditionalOrNode) node;
+            return operands(n.getLeftOperand(), n.getRightOperand());
+        }
+        case TERNARY_EXPRESSION: {
+            TernaryExpressionNode n = (TernaryExpressionNode) node;
+            return operands(n.getConditionOperand(), n.getThenOperand(), n.getElseOperand());
+        }
+        case ASSIGNMENT: {
+            AssignmentNode n = (AssignmentNode) node;
+            return operands(n.getTarget(), n.getExpression());
+        }
+        case LOCAL_VARIABLE:
+            return operands(((LocalVariableNode) node).getReceiver());
+        case FIELD_ACCESS:
+            return operands(((FieldAccessNode) node).getReceiver());
+        case METHOD_ACCESS:
+            return operands(((MethodAccessNode) node).getReceiver());
+        case ARRAY_ACCESS: {
+            ArrayAccessNode n = (ArrayAccessNode) node;
+            return operands(n.getArray(), n.getIndex());
+        }
+        case RETURN:
+            return operands(((ReturnNode) node).getResult());
+        case SYNCHRONIZED:
+            return operands(((SynchronizedNode) node).getExpression());
+        case ASSERTION_ERROR: {
+            AssertionErrorNode n = (AssertionErrorNode) node;
+            return operands(n.getCondition(), n.getDetail());
+        }
+        case THROW:
+            return operands(((ThrowNode) node).getExpression());
+        case CASE: {
+            CaseNode n = (CaseNode) node;
+            return operands(n.getSwitchOperand(), n.getCaseOperand());
+        }
+        case METHOD_INVOCATION: {
+            MethodInvocationNode n = (MethodInvocationNode) node;
+            List<Node> result = new ArrayList<>(n.getArguments().size() + 1);
+            result.add(n.getTarget());
+            result.addAll(n.getArguments());
+            return result;
+        }
+        case OBJECT_CREATION: {
+            ObjectCreationNode n = (ObjectCreationNode) node;
+            List<Node> result = new ArrayList<>(n.getArguments().size() + 1);
+            result.add(n.getConstructor());
+            result.addAll(n.getArguments());
+            return result;
+        }
+        case ARRAY_CREATION: {
+            ArrayCreationNode n = (ArrayCreationNode) node;
+            List<Node> result = new ArrayList<>(n.getDimensions());
+            result.addAll(n.getInitializers());
+            return result;
+        }
+        case CLASS_NAME:
+            return operands(((ClassNameNode) node).getParent());
+        case PACKAGE_NAME:
+            return operands(((PackageNameNode) node).getParent());
+        default:
+            throw new UnsupportedGraphException("node of kind " + node.getKind());
+        }
+    }
+
+    private static List<Node> operands(/*@Nullable*/ Node... operands) {
+        return Arrays.asList(operands);
+    }
+
+    /** Writes one graph. */
+    protected class Encoder {
+
+        protected final TreeIndex index;
+
+        protected final Output typeTable = new Output();
+        protected final Map<TypeMirror, Integer> typeNumbers = new IdentityHashMap<>();
+
+        protected final Output nodeTable = new Output();
+        protected final Map<Node, Integer> nodeNumbers = new IdentityHashMap<>();
+
+        protected Encoder(TreeIndex index) {
+            this.index = index;
+        }
+
+        protected byte[] encode(ControlFlowGraphCache.Entry entry)
+                throws UnsupportedGraphException {
+            ControlFlowGraph cfg = entry.getCFG();
+
+            // blocks in the order of ControlFlowGraphNumbering, then the
+            // exit blocks if they cannot be reached
+            ControlFlowGraphNumbering numbering = new ControlFlowGraphNumbering(cfg);
+            List<Block> blocks = new ArrayList<>(numbering.getBlockCount() + 2);
+            for (int i = 0; i < numbering.getBlockCount(); i++) {
+                blocks.add(numbering.getBlock(i));
+            }
+            Map<Block, Integer> blockNumbers = new IdentityHashMap<>();
+            for (Block b : blocks) {
+                blockNumbers.put(b, blockNumbers.size());
+            }
+            for (Block b : Arrays.<Block>asList(cfg.getRegularExitBlock(),
+                    cfg.getExceptionalExitBlock())) {
+                if (!blockNumbers.containsKey(b)) {
+                    blockNumbers.put(b, blocks.size());
+                    blocks.add(b);
+                }
+            }
+
+            Output blockTable = new Output();
+            blockTable.writeVarInt(blocks.size());
+            blockTable.writeVarInt(blockNumbers.get(cfg.getEntryBlock()));
+            blockTable.writeVarInt(blockNumbers.get(cfg.getRegularExitBlock()));
+            blockTable.writeVarInt(blockNumbers.get(cfg.getExceptionalExitBlock()));
+            for (Block b : blocks) {
+                blockTable.writeVarInt(b.getType().ordinal());
+                if (b.getType() == BlockType.SPECIAL_BLOCK) {
+                    blockTable.writeVarInt(((SpecialBlock) b).getSpecialType().ordinal());
+                }
+            }
+            for (Block b : blocks) {
+                switch (b.getType()) {
+                case REGULAR_BLOCK: {
+                    List<Node> contents = ((RegularBlock) b).getContents();
+                    blockTable.writeVarInt(contents.size());
+                    for (Node n : contents) {
+                        blockTable.writeVarInt(number(n));
+                    }
+                    writeSuccessor(blockTable, (SingleSuccessorBlock) b, blockNumbers);
+                    break;
+                }
+                case EXCEPTION_BLOCK: {
+                    ExceptionBlock eb = (ExceptionBlock) b;
+                    blockTable.writeVarInt(number(eb.getNode()));
+                    writeSuccessor(blockTable, eb, blockNumbers);
+                    Map<TypeMirror, Set<Block>> exceptional = eb.getExceptionalSuccessors();
+                    blockTable.writeVarInt(exceptional.size());
+                    for (Map.Entry<TypeMirror, Set<Block>> e : exceptional.entrySet()) {
+                        blockTable.writeVarInt(typeNumber(e.getKey()));
+                        blockTable.writeVarInt(e.getValue().size());
+                        for (Block succ : e.getValue()) {
+                            blockTable.writeVarInt(blockNumber(succ, blockNumbers));
+                        }
+                    }
+                    break;
+                }
+                case CONDITIONAL_BLOCK: {
+                    ConditionalBlock cb = (ConditionalBlock) b;
+                    blockTable.writeVarInt(blockNumber(cb.getThenSuccessor(), blockNumbers));
+                    blockTable.writeVarInt(blockNumber(cb.getElseSuccessor(), blockNumbers));
+                    blockTable.writeVarInt(cb.getThenFlowRule().ordinal());
+                    blockTable.writeVarInt(cb.getElseFlowRule().ordinal());
+                    break;
+                }
+                case SPECIAL_BLOCK:
+                    writeSuccessor(blockTable, (SingleSuccessorBlock) b, blockNumbers);
+                    break;
+                }
+            }
+
+            Output rest = new Output();
+            TreeLookupTable treeLookup = cfg.treeLookup;
+            rest.writeVarInt(treeLookup.size());
+            for (Map.Entry<Tree, Node> e : treeLookup.asPreConversionMap().entrySet()) {
+                Tree tree = e.getKey();
+                Node converted = treeLookup.getConverted(tree);
+                writeTree(rest, tree);
+                rest.writeVarInt(number(e.getValue()));
+                rest.writeVarInt(converted == null ? 0 : number(converted) + 1);
+            }
+            rest.writeVarInt(cfg.getReturnNodes().size());
+            for (ReturnNode n : cfg.getReturnNodes()) {
+                rest.writeVarInt(number(n));
+            }
+            rest.writeVarInt(entry.getDeclaredClasses().size());
+            for (ClassTree tree : entry.getDeclaredClasses()) {
+                writeTree(rest, tree);
+            }
+            rest.writeVarInt(entry.getDeclaredLambdas().size());
+            for (LambdaExpressionTree tree : entry.getDeclaredLambdas()) {
+                writeTree(rest, tree);
+            }
+
+            Output out = new Output();
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeVarInt(index.size());
+            out.writeVarInt(typeNumbers.size());
+            out.append(typeTable);
+            out.writeVarInt(nodeNumbers.size());
+            out.append(nodeTable);
+            out.append(blockTable);
+            out.append(rest);
+            return out.toByteArray();
+        }
+
+        private int blockNumber(Block block, Map<Block, Integer> blockNumbers)
+                throws UnsupportedGraphException {
+            Integer number = blockNumbers.get(block);
+            if (number == null) {
+                throw new UnsupportedGraphException("successor outside the graph");
+            }
+            return number;
+        }
+
+        private void writeSuccessor(Output out, SingleSuccessorBlock b,
+                Map<Block, Integer> blockNumbers) throws UnsupportedGraphException {
+            Block succ = b.getSuccessor();
+            out.writeVarInt(succ == null ? 0 : blockNumber(succ, blockNumbers) + 1);
+            out.writeVarInt(b.getFlowRule().ordinal());
+        }
+
+        /**
+         * @return the index of {@code node} in the node table, writing it and
+         *         its operands to the table if they are not there yet
+         */
+        protected int number(Node node) throws UnsupportedGraphException {
+            Integer number = nodeNumbers.get(node);
+            if (number != null) {
+                return number;
+            }
+            List<Node> operands = operandsOf(node);
+            for (Node operand : operands) {
+                if (operand != null) {
+                    number(operand);
+                }
+            }
+
+            Node.Kind kind = node.getKind();
+            int flags = (node.isLValue() ? LVALUE : 0)
+                    | (node.getInSource() ? 0 : NOT_IN_SOURCE);
+            if (kind == Node.Kind.SYNCHRONIZED
+                    && ((SynchronizedNode) node).getIsStartOfBlock()) {
+                flags |= START_OF_BLOCK;
+            }
+            if (kind == Node.Kind.METHOD_INVOCATION) {
+                TreePath path = ((MethodInvocationNode) node).getTreePath();
+                if (path != null) {
+                    if (path.getLeaf() != node.getTree()) {
+                        throw new UnsupportedGraphException("tree path of another tree");
+                    }
+                    flags |= HAS_TREE_PATH;
+                }
+            }
+            nodeTable.writeVarInt(kind.ordinal());
+            nodeTable.writeVarInt(flags);
+            writeTree(nodeTable, node.getTree());
+            switch (kind) {
+            case IMPLICIT_THIS_LITERAL:
+            case STRING_CONVERSION:
+            case NARROWING_CONVERSION:
+            case WIDENING_CONVERSION:
+            case TYPE_CAST:
+            case ASSERTION_ERROR:
+                nodeTable.writeVarInt(typeNumber(node.getType()));
+                break;
+            case ARRAY_CREATION:
+                nodeTable.writeVarInt(typeNumber(node.getType()));
+                nodeTable.writeVarInt(((ArrayCreationNode) node).getDimensions().size());
+                break;
+            case INSTANCE_OF:
+                nodeTable.writeVarInt(typeNumber(((InstanceOfNode) node).getRefType()));
+                break;
+            case MARKER:
+                nodeTable.writeString(((MarkerNode) node).getMessage());
+                break;
+            default:
+                break;
+            }
+            nodeTable.writeVarInt(operands.size());
+            for (Node operand : operands) {
+                nodeTable.writeVarInt(operand == null ? 0 : nodeNumbers.get(operand) + 1);
+            }
+
+            number = nodeNumbers.size();
+            nodeNumbers.put(node, number);
+            return number;
+        }
+
+        protected void writeTree(Output out, /*@Nullable*/ Tree tree)
+                throws UnsupportedGraphException {
+            if (tree == null) {
+                out.writeVarInt(0);
+                return;
+            }
+            Integer number = index.numbers.get(tree);
+            if (number == null) {
+                throw new UnsupportedGraphException("tree outside the source: " + tree.getKind());
+            }
+            out.writeVarInt(number + 1);
+            out.writeVarInt(tree.getKind().ordinal());
+        }
+
+        /**
+         * @return the index of {@code type} in the type table, writing it and
+         *         the types it consists of to the table if they are not there
+         *         yet
+         */
+        protected int typeNumber(TypeMirror type) throws UnsupportedGraphException {
+            Integer number = typeNumbers.get(type);
+            if (number != null) {
+                return number;
+            }
+            switch (type.getKind()) {
+            case BOOLEAN:
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case CHAR:
+            case FLOAT:
+            case DOUBLE:
+                typeTable.writeVarInt(TYPE_PRIMITIVE);
+                typeTable.writeVarInt(type.getKind().ordinal());
+                break;
+            case VOID:
+                typeTable.writeVarInt(TYPE_VOID);
+                break;
+            case NONE:
+                typeTable.writeVarInt(TYPE_NONE);
+                break;
+            case NULL:
+                typeTable.writeVarInt(TYPE_NULL);
+                break;
+            case ARRAY: {
+                int component = typeNumber(((ArrayType) type).getComponentType());
+                typeTable.writeVarInt(TYPE_ARRAY);
+                typeTable.writeVarInt(component);
+                break;
+            }
+            case DECLARED: {
+                DeclaredType declared = (DeclaredType) type;
+                TypeMirror enclosing = declared.getEnclosingType();
+                int enclosingNumber = 0;
+                if (enclosing.getKind() == TypeKind.DECLARED
+                        && !((DeclaredType) enclosing).getTypeArguments().isEmpty()) {
+                    enclosingNumber = typeNumber(enclosing) + 1;
+                }
+                List<? extends TypeMirror> arguments = declared.getTypeArguments();
+                int[] argumentNumbers = new int[arguments.size()];
+                for (int i = 0; i < argumentNumbers.length; i++) {
+                    argumentNumbers[i] = typeNumber(arguments.get(i));
+                }
+                typeTable.writeVarInt(TYPE_DECLARED);
+                writeElement(declared.asElement());
+                typeTable.writeVarInt(enclosingNumber);
+                typeTable.writeVarInt(argumentNumbers.length);
+                for (int argumentNumber : argumentNumbers) {
+                    typeTable.writeVarInt(argumentNumber);
+                }
+                break;
+            }
+            case TYPEVAR: {
+                Element element = ((TypeVariable) type).asElement();
+                if (!(element instanceof TypeParameterElement)) {
+                    throw new UnsupportedGraphException("captured type variable");
+                }
+                Element owner = ((TypeParameterElement) element).getGenericElement();
+                List<? extends TypeParameterElement> parameters =
+                        owner instanceof TypeElement
+                        ? ((TypeElement) owner).getTypeParameters()
+                        : ((ExecutableElement) owner).getTypeParameters();
+                int position = parameters.indexOf(element);
+                if (position < 0 || parameters.get(position).asType() != type) {
+                    throw new UnsupportedGraphException("type variable " + type);
+                }
+                typeTable.writeVarInt(TYPE_VARIABLE);
+                writeElement(owner);
+                typeTable.writeVarInt(position);
+                break;
+            }
+            case WILDCARD: {
+                WildcardType wildcard = (WildcardType) type;
+                int extendsNumber = wildcard.getExtendsBound() == null
+                        ? 0 : typeNumber(wildcard.getExtendsBound()) + 1;
+                int superNumber = wildcard.getSuperBound() == null
+                        ? 0 : typeNumber(wildcard.getSuperBound()) + 1;
+                typeTable.writeVarInt(TYPE_WILDCARD);
+                typeTable.writeVarInt(extendsNumber);
+                typeTable.writeVarInt(superNumber);
+                break;
+            }
+            default:
+                throw new UnsupportedGraphException("type of kind " + type.getKind());
+            }
+            number = typeNumbers.size();
+            typeNumbers.put(type, number);
+            return number;
+        }
+
+        /** Write a reference to a class or method to the type table. */
+        protected void writeElement(Element element) throws UnsupportedGraphException {
+            if (element instanceof TypeElement) {
+                TypeElement type = (TypeElement) element;
+                String name = type.getQualifiedName().toString();
+                if (!name.isEmpty() && getTypeElement(name) == type) {
+                    typeTable.writeVarInt(ELEMENT_NAMED_TYPE);
+                    typeTable.writeString(name);
+                    return;
+                }
+                // a local or anonymous class, which must be declared in the
+                // scope or enclose it
+                Tree tree = trees.getTree(type);
+                if (index.numbers.containsKey(tree)) {
+                    typeTable.writeVarInt(ELEMENT_LOCAL_TYPE);
+                    writeTree(typeTable, tree);
+                    return;
+                }
+                int depth = 0;
+                for (TreePath path = index.paths.get(0); path != null;
+                        path = path.getParentPath()) {
+                    if (path.getLeaf() == tree) {
+                        typeTable.writeVarInt(ELEMENT_ENCLOSING_TYPE);
+                        typeTable.writeVarInt(depth);
+                        return;
+                    }
+                    if (path.getLeaf() instanceof ClassTree) {
+                        depth++;
+                    }
+                }
+                throw new UnsupportedGraphException("class " + type);
+            }
+            if (element instanceof ExecutableElement) {
+                ExecutableElement method = (ExecutableElement) element;
+                typeTable.writeVarInt(ELEMENT_METHOD);
+                writeElement(method.getEnclosingElement());
+                typeTable.writeString(method.getSimpleName().toString());
+                typeTable.writeVarInt(method.getParameters().size());
+                for (VariableElement parameter : method.getParameters()) {
+                    typeTable.writeString(types.erasure(parameter.asType()).toString());
+                }
+                return;
+            }
+            throw new UnsupportedGraphException("element " + element);
+        }
+    }
+
+    /** Reads one graph. */
+    protected class Decoder {
+
+        protected final ByteBuffer in;
+        protected final TreeIndex index;
+
+        protected TypeMirror[] typeTable;
+        protected Node[] nodeTable;
+        protected BlockImpl[] blockTable;
+
+        protected Decoder(ByteBuffer in, TreeIndex index) {
+            this.in = in;
+            this.index = index;
+        }
+
+        protected ControlFlowGraphCache.Entry decode(UnderlyingAST underlyingAST)
+                throws IOException {
+            if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+                throw new IOException("not an encoded control flow graph");
+            }
+            if (readVarInt(in) != index.size()) {
+                throw new IOException("the encoded graph is for other source code");
+            }
+
+            typeTable = new TypeMirror[readVarInt(in)];
+            for (int i = 0; i < typeTable.length; i++) {
+                typeTable[i] = readTypeEntry();
+            }
+            nodeTable = new Node[readVarInt(in)];
+            for (int i = 0; i < nodeTable.length; i++) {
+                nodeTable[i] = readNodeEntry();
+            }
+
+            blockTable = new BlockImpl[readVarInt(in)];
+            int entry = readVarInt(in);
+            int regularExit = readVarInt(in);
+            int exceptionalExit = readVarInt(in);
+            // create the blocks in order, so that their ids are in the order
+            // that ControlFlowGraphNumbering gave the original blocks
+            for (int i = 0; i < blockTable.length; i++) {
+                BlockType type = BLOCK_TYPES[readVarInt(in)];
+                switch (type) {
+                case REGULAR_BLOCK:
+                    blockTable[i] = new RegularBlockImpl();
+                    break;
+                case EXCEPTION_BLOCK:
+                    blockTable[i] = new ExceptionBlockImpl();
+                    break;
+                case CONDITIONAL_BLOCK:
+                    blockTable[i] = new ConditionalBlockImpl();
+                    break;
+                case SPECIAL_BLOCK:
+                    blockTable[i] = new SpecialBlockImpl(SPECIAL_BLOCK_TYPES[readVarInt(in)]);
+                    break;
+                }
+            }
+            for (BlockImpl b : blockTable) {
+                switch (b.getType()) {
+                case REGULAR_BLOCK: {
+                    RegularBlockImpl rb = (RegularBlockImpl) b;
+                    int size = readVarInt(in);
+                    for (int i = 0; i < size; i++) {
+                        rb.addNode(nodeTable[readVarInt(in)]);
+                    }
+                    readSuccessor(rb);
+                    break;
+                }
+                case EXCEPTION_BLOCK: {
+                    ExceptionBlockImpl eb = (ExceptionBlockImpl) b;
+                    eb.setNode(nodeTable[readVarInt(in)]);
+                    readSuccessor(eb);
+                    int causes = readVarInt(in);
+                    for (int i = 0; i < causes; i++) {
+                        TypeMirror cause = typeTable[readVarInt(in)];
+                        int size = readVarInt(in);
+                        for (int j = 0; j < size; j++) {
+                            eb.addExceptionalSuccessor(blockTable[readVarInt(in)], cause);
+                        }
+                    }
+                    break;
+                }
+                case CONDITIONAL_BLOCK: {
+                    ConditionalBlockImpl cb = (ConditionalBlockImpl) b;
+                    cb.setThenSuccessor(blockTable[readVarInt(in)]);
+                    cb.setElseSuccessor(blockTable[readVarInt(in)]);
+                    cb.setThenFlowRule(FLOW_RULES[readVarInt(in)]);
+                    cb.setElseFlowRule(FLOW_RULES[readVarInt(in)]);
+                    break;
+                }
+                case SPECIAL_BLOCK:
+                    readSuccessor((SpecialBlockImpl) b);
+                    break;
+                }
+            }
+
+            int lookupSize = readVarInt(in);
+            TreeLookupTable treeLookup = new TreeLookupTable(lookupSize);
+            for (int i = 0; i < lookupSize; i++) {
+                Tree tree = index.paths.get(readTreeNumber()).getLeaf();
+                treeLookup.put(tree, nodeTable[readVarInt(in)]);
+                int converted = readVarInt(in);
+                if (converted != 0) {
+                    treeLookup.putConverted(tree, nodeTable[converted - 1]);
+                }
+            }
+            int returnCount = readVarInt(in);
+            List<ReturnNode> returnNodes = new ArrayList<>(returnCount);
+            for (int i = 0; i < returnCount; i++) {
+                returnNodes.add((ReturnNode) nodeTable[readVarInt(in)]);
+            }
+            int classCount = readVarInt(in);
+            List<ClassTree> declaredClasses = new ArrayList<>(classCount);
+            for (int i = 0; i < classCount; i++) {
+                declaredClasses.add((ClassTree) index.paths.get(readTreeNumber()).getLeaf());
+            }
+            int lambdaCount = readVarInt(in);
+            List<LambdaExpressionTree> declaredLambdas = new ArrayList<>(lambdaCount);
+            for (int i = 0; i < lambdaCount; i++) {
+                declaredLambdas.add(
+                        (LambdaExpressionTree) index.paths.get(readTreeNumber()).getLeaf());
+            }
+            if (in.hasRemaining()) {
+                throw new IOException("trailing bytes after the encoded graph");
+            }
+
+            ControlFlowGraph cfg = new ControlFlowGraph((SpecialBlockImpl) blockTable[entry],
+                    (SpecialBlockImpl) blockTable[regularExit],
+                    (SpecialBlockImpl) blockTable[exceptionalExit], underlyingAST,
+                    treeLookup, returnNodes);
+            return new ControlFlowGraphCache.Entry(cfg, declaredClasses, declaredLambdas);
+        }
+
+        private void readSuccessor(SingleSuccessorBlockImpl b) throws IOException {
+            int succ = readVarInt(in);
+            if (succ != 0) {
+                b.setSuccessor(blockTable[succ - 1]);
+            }
+            b.setFlowRule(FLOW_RULES[readVarInt(in)]);
+        }
+
+        /** @return the number of the next tree, which must have been written */
+        protected int readTreeNumber() throws IOException {
+            int number = readOptionalTreeNumber();
+            if (number < 0) {
+                throw new IOException("missing tree");
+            }
+            return number;
+        }
+
+        /**
+         * @return the number of the next tree, or -1 if no tree was written,
+         *         after checking that the tree has the kind that was written
+         */
+        protected int readOptionalTreeNumber() throws IOException {
+            int number = readVarInt(in) - 1;
+            if (number < 0) {
+                return -1;
+            }
+            Tree.Kind kind = TREE_KINDS[readVarInt(in)];
+            if (index.paths.get(number).getLeaf().getKind() != kind) {
+                throw new IOException("the encoded graph is for other source code");
+            }
+            return number;
+        }
+
+        protected TypeMirror readTypeEntry() throws IOException {
+            int tag = readVarInt(in);
+            switch (tag) {
+            case TYPE_NONE:
+                return types.getNoType(TypeKind.NONE);
+            case TYPE_VOID:
+                return types.getNoType(TypeKind.VOID);
+            case TYPE_NULL:
+                return types.getNullType();
+            case TYPE_PRIMITIVE:
+                return types.getPrimitiveType(TYPE_KINDS[readVarInt(in)]);
+            case TYPE_ARRAY:
+                return types.getArrayType(typeTable[readVarInt(in)]);
+            case TYPE_DECLARED: {
+                TypeElement element = (TypeElement) readElement();
+                int enclosing = readVarInt(in);
+                TypeMirror[] arguments = new TypeMirror[readVarInt(in)];
+                for (int i = 0; i < arguments.length; i++) {
+                    arguments[i] = typeTable[readVarInt(in)];
+                }
+                if (enclosing != 0) {
+                    return types.getDeclaredType((DeclaredType) typeTable[enclosing - 1],
+                            element, arguments);
+                }
+                return types.getDeclaredType(element, arguments);
+            }
+            case TYPE_VARIABLE: {
+                Element owner = readElement();
+                List<? extends TypeParameterElement> parameters =
+                        owner instanceof TypeElement
+                        ? ((TypeElement) owner).getTypeParameters()
+                        : ((ExecutableElement) owner).getTypeParameters();
+                return parameters.get(readVarInt(in)).asType();
+            }
+            case TYPE_WILDCARD: {
+                int extendsBound = readVarInt(in);
+                int superBound = readVarInt(in);
+                return types.getWildcardType(
+                        extendsBound == 0 ? null : typeTable[extendsBound - 1],
+                        superBound == 0 ? null : typeTable[superBound - 1]);
+            }
+            default:
+                throw new IOException("unknown type tag " + tag);
+            }
+        }
+
+        protected Element readElement() throws IOException {
+            int tag = readVarInt(in);
+            switch (tag) {
+            case ELEMENT_NAMED_TYPE: {
+                String name = readString(in);
+                TypeElement element = getTypeElement(name);
+                if (element == null) {
+                    throw new IOException("class " + name + " not found");
+                }
+                return element;
+            }
+            case ELEMENT_LOCAL_TYPE:
+                return TreeUtils.elementFromDeclaration(
+                        (ClassTree) index.paths.get(readTreeNumber()).getLeaf());
+            case ELEMENT_ENCLOSING_TYPE: {
+                int depth = readVarInt(in);
+                for (TreePath path = index.paths.get(0); path != null;
+                        path = path.getParentPath()) {
+                    if (path.getLeaf() instanceof ClassTree && depth-- == 0) {
+                        return TreeUtils.elementFromDeclaration((ClassTree) path.getLeaf());
+                    }
+                }
+                throw new IOException("no enclosing class");
+            }
+            case ELEMENT_METHOD: {
+                TypeElement owner = (TypeElement) readElement();
+                String name = readString(in);
+                String[] parameters = new String[readVarInt(in)];
+                for (int i = 0; i < parameters.length; i++) {
+                    parameters[i] = readString(in);
+                }
+                for (Element member : owner.getEnclosedElements()) {
+                    if (member instanceof ExecutableElement
+                            && member.getSimpleName().contentEquals(name)
+                            && hasParameters((ExecutableElement) member, parameters)) {
+                        return member;
+                    }
+                }
+                throw new IOException("method " + owner + "." + name + " not found");
+            }
+            default:
+                throw new IOException("unknown element tag " + tag);
+            }
+        }
+
+        private boolean hasParameters(ExecutableElement method, String[] parameters) {
+            List<? extends VariableElement> actual = method.getParameters();
+            if (actual.size() != parameters.length) {
+                return false;
+            }
+            for (int i = 0; i < parameters.length; i++) {
+                if (!types.erasure(actual.get(i).asType()).toString().equals(parameters[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        protected Node readNodeEntry() throws IOException {
+            Node.Kind kind = NODE_KINDS[readVarInt(in)];
+            int flags = readVarInt(in);
+            int treeNumber = readOptionalTreeNumber();
+            Tree tree = treeNumber < 0 ? null : index.paths.get(treeNumber).getLeaf();
+            TypeMirror type = null;
+            int dimensions = 0;
+            String message = null;
+            switch (kind) {
+            case IMPLICIT_THIS_LITERAL:
+            case STRING_CONVERSION:
+            case NARROWING_CONVERSION:
+            case WIDENING_CONVERSION:
+            case TYPE_CAST:
+            case ASSERTION_ERROR:
+            case INSTANCE_OF:
+                type = typeTable[readVarInt(in)];
+                break;
+            case ARRAY_CREATION:
+                type = typeTable[readVarInt(in)];
+                dimensions = readVarInt(in);
+                break;
+            case MARKER:
+                message = readString(in);
+                break;
+            default:
+                break;
+            }
+            Node[] operands = new Node[readVarInt(in)];
+            for (int i = 0; i < operands.length; i++) {
+                int operand = readVarInt(in);
+                operands[i] = operand == 0 ? null : nodeTable[operand - 1];
+            }
+
+            Node node = createNode(kind, flags, tree, treeNumber, type, dimensions,
+                    message, operands);
+            if ((flags & LVALUE) != 0) {
+                node.setLValue();
+            }
+            if ((flags & NOT_IN_SOURCE) != 0) {
+                node.setInSource(false);
+            }
+            return node;
+        }
+
+        protected Node createNode(Node.Kind kind, int flags, /*@Nullable*/ Tree tree,
+                int treeNumber, /*@Nullable*/ TypeMirror type, int dimensions,
+                /*@Nullable*/ String message, Node[] operands) throws IOException {
+            switch (kind) {
+            case SHORT_LITERAL:
+                return new ShortLiteralNode((LiteralTree) tree);
+            case INTEGER_LITERAL:
+                return new IntegerLiteralNode((LiteralTree) tree);
+            case LONG_LITERAL:
+                return new LongLiteralNode((LiteralTree) tree);
+            case FLOAT_LITERAL:
+                return new FloatLiteralNode((LiteralTree) tree);
+            case DOUBLE_LITERAL:
+                return new DoubleLiteralNode((LiteralTree) tree);
+            case BOOLEAN_LITERAL:
+                return new BooleanLiteralNode((LiteralTree) tree);
+            case CHARACTER_LITERAL:
+                return new CharacterLiteralNode((LiteralTree) tree);
+            case STRING_LITERAL:
+                return new StringLiteralNode((LiteralTree) tree);
+            case NULL_LITERAL:
+                return new NullLiteralNode((LiteralTree) tree);
+            case NUMERICAL_MINUS:
+                return new NumericalMinusNode(tree, operands[0]);
+            case NUMERICAL_PLUS:
+                return new NumericalPlusNode(tree, operands[0]);
+            case BITWISE_COMPLEMENT:
+                return new BitwiseComplementNode(tree, operands[0]);
+            case NULL_CHK:
+                return new NullChkNode(tree, operands[0]);
+            case STRING_CONCATENATE:
+                return new StringConcatenateNode(tree, operands[0], operands[1]);
+            case NUMERICAL_ADDITION:
+                return new NumericalAdditionNode(tree, operands[0], operands[1]);
+            case NUMERICAL_SUBTRACTION:
+                return new NumericalSubtractionNode(tree, operands[0], operands[1]);
+            case NUMERICAL_MULTIPLICATION:
+                return new NumericalMultiplicationNode(tree, operands[0], operands[1]);
+            case INTEGER_DIVISION:
+                return new IntegerDivisionNode(tree, operands[0], operands[1]);
+            case FLOATING_DIVISION:
+                return new FloatingDivisionNode(tree, operands[0], operands[1]);
+            case INTEGER_REMAINDER:
+                return new IntegerRemainderNode(tree, operands[0], operands[1]);
+            case FLOATING_REMAINDER:
+                return new FloatingRemainderNode(tree, operands[0], operands[1]);
+            case LEFT_SHIFT:
+                return new LeftShiftNode(tree, operands[0], operands[1]);
+            case SIGNED_RIGHT_SHIFT:
+                return new SignedRightShiftNode(tree, operands[0], operands[1]);
+            case UNSIGNED_RIGHT_SHIFT:
+                return new UnsignedRightShiftNode(tree, operands[0], operands[1]);
+            case BITWISE_AND:
+                return new BitwiseAndNode(tree, operands[0], operands[1]);
+            case BITWISE_OR:
+                return new BitwiseOrNode(tree, operands[0], operands[1]);
+            case BITWISE_XOR:
+                return new BitwiseXorNode(tree, operands[0], operands[1]);
+            case STRING_CONCATENATE_ASSIGNMENT:
+                return new StringConcatenateAssignmentNode(tree, operands[0], operands[1]);
+            case LESS_THAN:
+                return new LessThanNode(tree, operands[0], operands[1]);
+            case LESS_THAN_OR_EQUAL:
+                return new LessThanOrEqualNode(tree, operands[0], operands[1]);
+            case GREATER_THAN:
+                return new GreaterThanNode(tree, operands[0], operands[1]);
+            case GREATER_THAN_OR_EQUAL:
+                return new GreaterThanOrEqualNode(tree, operands[0], operands[1]);
+            case EQUAL_TO:
+                return new EqualToNode((BinaryTree) tree, operands[0], operands[1]);
+            case NOT_EQUAL:
+                return new NotEqualNode(tree, operands[0], operands[1]);
+            case CONDITIONAL_AND:
+                return new ConditionalAndNode((BinaryTree) tree, operands[0], operands[1]);
+            case CONDITIONAL_OR:
+                return new ConditionalOrNode((BinaryTree) tree, operands[0], operands[1]);
+            case CONDITIONAL_NOT:
+                return new ConditionalNotNode((UnaryTree) tree, operands[0]);
+            case TERNARY_EXPRESSION:
+                return new TernaryExpressionNode((ConditionalExpressionTree) tree,
+                        operands[0], operands[1], operands[2]);
+            case ASSIGNMENT:
+                return new AssignmentNode(tree, operands[0], operands[1]);
+            case LOCAL_VARIABLE:
+                return new LocalVariableNode(tree, operands[0]);
+            case VARIABLE_DECLARATION:
+                return new VariableDeclarationNode((VariableTree) tree);
+            case FIELD_ACCESS:
+                if (tree.getKind() == Tree.Kind.VARIABLE) {
+                    // the initializer of a field
+                    return new FieldAccessNode(tree,
+                            TreeUtils.elementFromDeclaration((VariableTree) tree), operands[0]);
+                }
+                return new FieldAccessNode(tree, operands[0]);
+            case METHOD_ACCESS:
+                return new MethodAccessNode((ExpressionTree) tree, operands[0]);
+            case ARRAY_ACCESS:
+                return new ArrayAccessNode(tree, operands[0], operands[1]);
+            case IMPLICIT_THIS_LITERAL:
+                return new ImplicitThisLiteralNode(type);
+            case EXPLICIT_THIS_LITERAL:
+                return new ExplicitThisLiteralNode(tree);
+            case SUPER:
+                return new SuperNode(tree);
+            case RETURN:
+                return createReturnNode((ReturnTree) tree, treeNumber, operands[0]);
+            case STRING_CONVERSION:
+                return new StringConversionNode(tree, operands[0], type);
+            case NARROWING_CONVERSION:
+                return new NarrowingConversionNode(tree, operands[0], type);
+            case WIDENING_CONVERSION:
+                return new WideningConversionNode(tree, operands[0], type);
+            case INSTANCE_OF:
+                return new InstanceOfNode(tree, operands[0], type, types);
+            case TYPE_CAST:
+                return new TypeCastNode(tree, operands[0], type);
+            case SYNCHRONIZED:
+                return new SynchronizedNode(tree, operands[0],
+                        (flags & START_OF_BLOCK) != 0, types);
+            case ASSERTION_ERROR:
+                return new AssertionErrorNode(tree, operands[0], operands[1], type);
+            case THROW:
+                return new ThrowNode((ThrowTree) tree, operands[0], types);
+            case CASE:
+                return new CaseNode((CaseTree) tree, operands[0], operands[1], types);
+            case METHOD_INVOCATION:
+                return new MethodInvocationNode((MethodInvocationTree) tree,
+                        (MethodAccessNode) operands[0], rest(operands, 1, operands.length),
+                        (flags & HAS_TREE_PATH) != 0 ? index.paths.get(treeNumber) : null);
+            case OBJECT_CREATION:
+                return new ObjectCreationNode((NewClassTree) tree, operands[0],
+                        rest(operands, 1, operands.length));
+            case MEMBER_REFERENCE:
+                if (tree.getKind() == Tree.Kind.LAMBDA_EXPRESSION) {
+                    return new FunctionalInterfaceNode((LambdaExpressionTree) tree);
+                }
+                return new FunctionalInterfaceNode((MemberReferenceTree) tree);
+            case ARRAY_CREATION:
+                return new ArrayCreationNode((NewArrayTree) tree, type,
+                        rest(operands, 0, dimensions),
+                        rest(operands, dimensions, operands.length));
+            case ARRAY_TYPE:
+                return new ArrayTypeNode((ArrayTypeTree) tree);
+            case PRIMITIVE_TYPE:
+                return new PrimitiveTypeNode((PrimitiveTypeTree) tree);
+            case CLASS_NAME:
+                switch (tree.getKind()) {
+                case IDENTIFIER:
+                    return new ClassNameNode((IdentifierTree) tree);
+                case MEMBER_SELECT:
+                    return new ClassNameNode((MemberSelectTree) tree, operands[0]);
+                default:
+                    return new ClassNameNode((ClassTree) tree);
+                }
+            case PACKAGE_NAME:
+                if (tree.getKind() == Tree.Kind.MEMBER_SELECT) {
+                    return new PackageNameNode((MemberSelectTree) tree,
+                            (PackageNameNode) operands[0]);
+                }
+                return new PackageNameNode((IdentifierTree) tree);
+            case PARAMETERIZED_TYPE:
+                return new ParameterizedTypeNode(tree);
+            case MARKER:
+                return new MarkerNode(tree, message, types);
+            default:
+                throw new IOException("node of kind " + kind);
+            }
+        }
+
+        private List<Node> rest(Node[] operands, int from, int to) {
+            return new ArrayList<>(Arrays.asList(operands).subList(from, to));
+        }
+
+        /** Create a return node as {@link CFGBuilder} does. */
+        protected ReturnNode createReturnNode(ReturnTree tree, int treeNumber, Node result) {
+            TreePath path = index.paths.get(treeNumber);
+            Tree enclosing = TreeUtils.enclosingOfKind(path,
+                    EnumSet.of(Tree.Kind.METHOD, Tree.Kind.LAMBDA_EXPRESSION));
+            if (enclosing.getKind() == Tree.Kind.LAMBDA_EXPRESSION) {
+                TreePath lambdaPath = path;
+                while (lambdaPath.getLeaf() != enclosing) {
+                    lambdaPath = lambdaPath.getParentPath();
+                }
+                Element overriddenElement = com.sun.tools.javac.code.Types.instance(
+                        ((JavacProcessingEnvironment) env).getContext()).findDescriptorSymbol(
+                        ((Type) trees.getTypeMirror(lambdaPath)).tsym);
+                return new ReturnNode(tree, result, types, (LambdaExpressionTree) enclosing,
+                        (MethodSymbol) overriddenElement);
+            }
+            return new ReturnNode(tree, result, types, (MethodTree) enclosing);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package org.checkerframework.dataflow.cfg;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.javacutil.TreeUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+
+/**
+ * A file cache of control flow graphs, so that the graph of code that has
+ * not changed since an earlier compilation does not need to be built again.
+ * Install it with {@link ControlFlowGraphCache#setFileCache}; the in-memory
+ * cache then consults it before it runs the {@link CFGBuilder} and stores
+ * every graph it builds.
+ *
+ * <p>
+ *
+ * A graph is stored under a key computed from the source text of its
+ * {@link ControlFlowGraphCodec#scopeOf scope}, the text of its compilation
+ * unit before the first class (the package and the imports), the binary name of its enclosing class, the
+ * {@link CFGBuilder} options and a dependency signature. Like the one of
+ * {@link org.checkerframework.dataflow.analysis.AnalysisResultCache}, the
+ * dependency signature describes everything outside of the code that the
+ * graph depends on, in particular the exceptions that the called methods
+ * and constructors declare; {@link #dependencySignature} returns the one
+ * passed to the constructor for all code, and subclasses may compute a
+ * finer one per method.
+ *
+ * <p>
+ *
+ * Graphs are stored in the encoding of {@link ControlFlowGraphCodec}, one
+ * file per key, and files are memory-mapped when they are loaded. Graphs
+ * that cannot be encoded are not stored, and any problem while reading or
+ * writing makes the cache behave as if the key were absent.
+ */
+public class ControlFlowGraphFileCache {
+
+    /** The directory that holds one file per key. */
+    protected final File directory;
+
+    /** The dependency signature of all code. */
+    protected final String dependencySignature;
+
+    public ControlFlowGraphFileCache(File directory, String dependencySignature) {
+        this.directory = directory;
+        this.dependencySignature = dependencySignature;
+    }
+
+    /**
+     * @return a description of everything outside of {@code underlyingAST}
+     *         that its graph depends on
+     */
+    protected String dependencySignature(CompilationUnitTree root,
+            UnderlyingAST underlyingAST) {
+        return dependencySignature;
+    }
+
+    /**
+     * Compute the key of the graph of {@code underlyingAST} that was built
+     * with the given options.
+     *
+     * @param scopePath
+     *            the path to {@link ControlFlowGraphCodec#scopeOf the scope}
+     *            of {@code underlyingAST}
+     * @return the key, or {@code null} if the source of the code is not
+     *         available
+     */
+    public /*@Nullable*/ String computeKey(ProcessingEnvironment env,
+            UnderlyingAST underlyingAST, TreePath scopePath, int options) {
+        CompilationUnitTree root = scopePath.getCompilationUnit();
+        SourcePositions positions = Trees.instance(env).getSourcePositions();
+        UnitSource unit = unitSource(root, positions);
+        if (unit == null) {
+            return null;
+        }
+        long start = positions.getStartPosition(root, scopePath.getLeaf());
+        long end = positions.getEndPosition(root, scopePath.getLeaf());
+        if (start == Diagnostic.NOPOS || end == Diagnostic.NOPOS
+                || end > unit.source.length()) {
+            return null;
+        }
+
+        MessageDigest digest = newDigest();
+        if (digest == null) {
+            return null;
+        }
+        digest.update(unit.header);
+        update(digest, underlyingAST.getKind() + "/" + options);
+        ClassTree enclosingClass = TreeUtils.enclosingClass(scopePath);
+        if (enclosingClass != null) {
+            TypeElement element = TreeUtils.elementFromDeclaration(enclosingClass);
+            if (element != null) {
+                update(digest, env.getElementUtils().getBinaryName(element));
+            }
+        }
+        update(digest, CharBuffer.wrap(unit.source, (int) start, (int) end));
+        update(digest, dependencySignature(root, underlyingAST));
+
+        byte[] hash = digest.digest();
+        char[] key = new char[2 * hash.length];
+        for (int i = 0; i < hash.length; i++) {
+            key[2 * i] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+            key[2 * i + 1] = HEX_DIGITS[hash[i] & 0xf];
+        }
+        return new String(key);
+    }
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The source of a compilation unit, with a digest of everything in it
+     * before the first type declaration (the package and the imports) and of
+     * the versions that every key depends on.
+     */
+    protected static class UnitSource {
+        protected final CompilationUnitTree root;
+        protected final CharSequence source;
+        protected final byte[] header;
+
+        protected UnitSource(CompilationUnitTree root, CharSequence source, byte[] header) {
+            this.root = root;
+            this.source = source;
+            this.header = header;
+        }
+    }
+
+    /**
+     * The unit that was keyed last; consecutive keys are usually computed
+     * for code of the same compilation unit.
+     */
+    protected volatile /*@Nullable*/ UnitSource lastUnit;
+
+    protected /*@Nullable*/ UnitSource unitSource(CompilationUnitTree root,
+            SourcePositions positions) {
+        UnitSource unit = lastUnit;
+        if (unit != null && unit.root == root) {
+            return unit;
+        }
+        CharSequence source;
+        try {
+            source = root.getSourceFile().getCharContent(true);
+        } catch (IOException e) {
+            return null;
+        }
+        int headerEnd = source.length();
+        if (!root.getTypeDecls().isEmpty()) {
+            long start = positions.getStartPosition(root, root.getTypeDecls().get(0));
+            if (start != Diagnostic.NOPOS && start <= headerEnd) {
+                headerEnd = (int) start;
+            }
+        }
+        MessageDigest digest = newDigest();
+        if (digest == null) {
+            return null;
+        }
+        update(digest, "" + ControlFlowGraphCodec.FORMAT_VERSION);
+        update(digest, System.getProperty("java.version"));
+        update(digest, CharBuffer.wrap(source, 0, headerEnd));
+        unit = new UnitSource(root, source, digest.digest());
+        lastUnit = unit;
+        return unit;
+    }
+
+    private static /*@Nullable*/ MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    private static void update(MessageDigest digest, CharSequence value) {
+        digest.update(StandardCharsets.UTF_8.encode(CharBuffer.wrap(value)));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * @return the graph of {@code underlyingAST} stored under {@code key},
+     *         bound to the trees of the current compilation, or {@code null}
+     *         if there is none
+     */
+    public /*@Nullable*/ ControlFlowGraphCache.Entry load(String key,
+            ProcessingEnvironment env, UnderlyingAST underlyingAST, TreePath scopePath) {
+        File file = fileFor(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            MappedByteBuffer bytes = in.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    0, in.length());
+            return codecFor(env).decode(bytes, scopePath, underlyingAST);
+        } catch (IOException | RuntimeException | AssertionError e) {
+            // A damaged or outdated file is a cache miss.
+            return null;
+        }
+    }
+
+    /**
+     * Store {@code entry}, the graph of the code in the scope at the end of
+     * {@code scopePath}, under {@code key}. Does nothing if the graph cannot
+     * be encoded or written.
+     */
+    public void store(String key, ProcessingEnvironment env, TreePath scopePath,
+            ControlFlowGraphCache.Entry entry) {
+        Path temp = null;
+        try {
+            byte[] bytes = codecFor(env).encode(entry, scopePath);
+            if (bytes == null) {
+                return;
+            }
+
+            Files.createDirectories(directory.toPath());
+            temp = Files.createTempFile(directory.toPath(), key, ".tmp");
+            Files.write(temp, bytes);
+            Path target = fileFor(key).toPath();
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+        } catch (IOException | RuntimeException e) {
+            // Not caching a graph is always safe.
+        } finally {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+
+    /** The codec that was used last; it only depends on the environment. */
+    protected volatile /*@Nullable*/ ControlFlowGraphCodec lastCodec;
+
+    protected ControlFlowGraphCodec codecFor(ProcessingEnvironment env) {
+        ControlFlowGraphCodec codec = lastCodec;
+        if (codec == null || codec.env != env) {
+            codec = new ControlFlowGraphCodec(env);
+            lastCodec = codec;
+        }
+        return codec;
+    }
+
+    protected File fileFor(String key) {
+        return new File(directory, key + ".cfg");
+    }
+}
@@ -0,0 +1,206 @@
+package org.checkerframework.dataflow.cfg;
+
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.block.ConditionalBlock;
+import org.checkerframework.dataflow.cfg.block.ExceptionBlock;
+import org.checkerframework.dataflow.cfg.block.RegularBlock;
+import org.checkerframework.dataflow.cfg.block.SingleSuccessorBlock;
+import org.checkerframework.dataflow.cfg.node.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * A numbering of the blocks and nodes of a {@link ControlFlowGraph} that
+ * does not depend on object identity. Building the CFG of the same code
+ * twice, even in different compilations, gives the same numbering, so the
+ * numbers can be used to store information about blocks and nodes outside
+ * of the compilation that created them.
+ *
+ * <p>
+ *
+ * Blocks are numbered in breadth-first order from the entry block. The
+ * successors of a block are visited in a fixed order: the regular successor
+ * or the 'then' and 'else' successors, followed by the exceptional
+ * successors sorted by the name of the exception type. Several successors
+ * for the same exception type are visited in the order in which the
+ * {@link CFGBuilder} created them; only the relative order of the
+ * {@link Block#getId() ids} of the graph's own blocks is used, which does
+ * not depend on other graphs built before or at the same time. Nodes are
+ * numbered block by block, in the order in which they appear in their
+ * block. Nodes that are not part of any block, such as the parameter nodes
+ * of an initial store, have no number.
+ */
+public class ControlFlowGraphNumbering {
+
+    protected final Block[] blocks;
+    protected final Node[] nodes;
+    protected final Map<Block, Integer> blockNumbers;
+    protected final Map<Node, Integer> nodeNumbers;
+
+    /** See {@link #getFingerprint()}. */
+    protected final long fingerprint;
+
+    public ControlFlowGraphNumbering(ControlFlowGraph cfg) {
+        blockNumbers = new IdentityHashMap<>();
+        List<Block> blockList = new ArrayList<>();
+        visit(cfg.getEntryBlock(), blockList);
+        for (int i = 0; i < blockList.size(); i++) {
+            for (Block succ : successors(blockList.get(i))) {
+                visit(succ, blockList);
+            }
+        }
+        blocks = blockList.toArray(new Block[blockList.size()]);
+
+        List<Node> nodeList = new ArrayList<>();
+        for (int i = 0; i < blocks.length; i++) {
+            switch (blocks[i].getType()) {
+            case REGULAR_BLOCK:
+                nodeList.addAll(((RegularBlock) blocks[i]).getContents());
+                break;
+            case EXCEPTION_BLOCK:
+                nodeList.add(((ExceptionBlock) blocks[i]).getNode());
+                break;
+            default:
+                break;
+            }
+        }
+        nodes = nodeList.toArray(new Node[nodeList.size()]);
+        nodeNumbers = new IdentityHashMap<>(2 * nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            nodeNumbers.put(nodes[i], i);
+        }
+        fingerprint = computeFingerprint();
+    }
+
+    /** Number {@code block} if it has not been numbered yet. */
+    private void visit(Block block, List<Block> blockList) {
+        if (!blockNumbers.containsKey(block)) {
+            blockNumbers.put(block, blockList.size());
+            blockList.add(block);
+        }
+    }
+
+    /** @return the successors of {@code block} in traversal order */
+    protected static List<Block> successors(Block block) {
+        List<Block> result = new ArrayList<>();
+        if (block instanceof ConditionalBlock) {
+            ConditionalBlock cb = (ConditionalBlock) block;
+            result.add(cb.getThenSuccessor());
+            result.add(cb.getElseSuccessor());
+        } else if (block instanceof SingleSuccessorBlock) {
+            Block succ = ((SingleSuccessorBlock) block).getSuccessor();
+            if (succ != null) {
+                result.add(succ);
+            }
+        }
+        if (block instanceof ExceptionBlock) {
+            Map<TypeMirror, Set<Block>> exceptional =
+                    ((ExceptionBlock) block).getExceptionalSuccessors();
+            Map<String, TypeMirror> causes = new TreeMap<>();
+            for (TypeMirror cause : exceptional.keySet()) {
+                causes.put(cause.toString(), cause);
+            }
+            for (TypeMirror cause : causes.values()) {
+                Block[] succs = exceptional.get(cause).toArray(new Block[0]);
+                Arrays.sort(succs, CREATION_ORDER);
+                result.addAll(Arrays.asList(succs));
+            }
+        }
+        return result;
+    }
+
+    /** Orders the blocks of one graph by the order of their creation. */
+    private static final Comparator<Block> CREATION_ORDER = new Comparator<Block>() {
+        @Override
+        public int compare(Block b1, Block b2) {
+            return Long.compare(b1.getId(), b2.getId());
+        }
+    };
+
+    /** @return the number of blocks in the numbered graph */
+    public int getBlockCount() {
+        return blocks.length;
+    }
+
+    /** @return the number of nodes in the numbered graph */
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    /** @return the block with number {@code number} */
+    public Block getBlock(int number) {
+        return blocks[number];
+    }
+
+    /** @return the node with number {@code number} */
+    public Node getNode(int number) {
+        return nodes[number];
+    }
+
+    /**
+     * @return the number of {@code block}, or -1 if it is not part of the
+     *         numbered graph
+     */
+    public int getNumber(Block block) {
+        Integer number = blockNumbers.get(block);
+        return number == null ? -1 : number;
+    }
+
+    /**
+     * @return the number of {@code node}, or -1 if it is not part of any
+     *         block of the numbered graph
+     */
+    public int getNumber(Node node) {
+        Integer number = nodeNumbers.get(node);
+        return number == null ? -1 : number;
+    }
+
+    /**
+     * A hash of the shape of the graph: the block types, the successor
+     * numbers and the node kinds. Two graphs with the same numbering have
+     * the same fingerprint; a different fingerprint means that numbers of one
+     * graph cannot be applied to the other.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    protected long computeFingerprint() {
+        // 64-bit FNV-1a over a sequence of ints
+        long h = 0xcbf29ce484222325L;
+        h = mix(h, blocks.length);
+        h = mix(h, nodes.length);
+        for (Block b : blocks) {
+            h = mix(h, b.getType().ordinal());
+            if (b instanceof SingleSuccessorBlock) {
+                Block succ = ((SingleSuccessorBlock) b).getSuccessor();
+                h = mix(h, succ == null ? -1 : getNumber(succ));
+            } else if (b instanceof ConditionalBlock) {
+                ConditionalBlock cb = (ConditionalBlock) b;
+                h = mix(h, getNumber(cb.getThenSuccessor()));
+                h = mix(h, getNumber(cb.getElseSuccessor()));
+            }
+        }
+        for (Node n : nodes) {
+            h = mix(h, n.getKind().ordinal());
+        }
+        return h;
+    }
+
+    private static long mix(long h, int value) {
+        for (int i = 0; i < 4; i++) {
+            h ^= (value >>> (8 * i)) & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
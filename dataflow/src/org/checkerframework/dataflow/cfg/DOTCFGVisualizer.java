@@ -365,12 +365,12 @@ public class DOTCFGVisualizer<V extends AbstractValue<V>,
         this.sbStore.append("Before:");
         S thenStore = input.getThenStore();
         if (!input.containsTwoStores()) {
-            S regularStore = input.getRegularStore();
+            S regularStore = input.getRegularStoreForReading();
             this.sbStore.append('[');
             visualizeStore(regularStore);
             this.sbStore.append(']');
         } else {
-            S elseStore = input.getElseStore();
+            S elseStore = input.getElseStoreForReading();
             this.sbStore.append("[then=");
             visualizeStore(thenStore);
             this.sbStore.append(", else=");
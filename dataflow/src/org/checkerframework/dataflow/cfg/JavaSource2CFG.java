@@ -1,33 +1,29 @@
 package org.checkerframework.dataflow.cfg;
 
-import org.checkerframework.dataflow.cfg.CFGProcessor.CFGProcessResult;
-
 /*>>>
 import org.checkerframework.checker.nullness.qual.Nullable;
 */
 
+import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGMethod;
 import org.checkerframework.javacutil.BasicTypeProcessor;
 import org.checkerframework.javacutil.TreeUtils;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import javax.annotation.processing.SupportedAnnotationTypes;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
-import javax.tools.JavaFileManager;
+import javax.tools.Diagnostic;
 import javax.tools.JavaFileObject;
 
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.MethodTree;
 import com.sun.source.util.TreePathScanner;
-import com.sun.tools.javac.file.JavacFileManager;
-import com.sun.tools.javac.main.JavaCompiler;
-import com.sun.tools.javac.util.Context;
-import com.sun.tools.javac.util.List;
 
 /**
  * Class to generate the DOT representation of the control flow graph of a given
@@ -45,61 +41,85 @@ import com.sun.tools.javac.util.List;
 public class JavaSource2CFG {
 
     /**
-     * @return the AST of a specific method in a specific class as well as the
-     *         {@link CompilationUnitTree} in a specific file (or null they do
-     *         not exist).
+     * The service that compiles the files of all calls, so that the compiler
+     * stays warm from one call to the next.
+     */
+    protected static final CFGService service = new CFGService();
+
+    /**
+     * @return the control flow graph of the first method called
+     *         {@code method} in a class called {@code clas} in {@code file}.
+     *         Exits the JVM if the file cannot be read, if there is no such
+     *         method, or if the file has a compilation error that may affect
+     *         the method (see {@link CFGService.Batch#getErrorsAffecting});
+     *         errors in the bodies of other methods are ignored.
      */
     public static ControlFlowGraph generateMethodCFG(
             String file, String clas, final String method) {
 
-        CFGProcessor cfgProcessor = new CFGProcessor(clas, method);
-
-        Context context = new Context();
+        CFGService.Batch batch = compile(file);
+        CompilationUnitTree root = batch.getCompilationUnits().get(0);
+        CFGMethod found = batch.findMethod(root, clas, method);
+        if (found == null) {
+            printError("method " + method + " not found in class " + clas + "."
+                    + (batch.hasErrors() ? " " + batch.getDiagnostics() : ""));
+            // TODO: directly exit is not friendly, refactor this to using throw-catch
+            System.exit(1);
+        }
 
-        JavaCompiler javac = new JavaCompiler(context);
+        exitOnErrors(file, batch.getErrorsAffecting(root, found.getMethod()));
+        return batch.getMethodCFG(clas, method);
+    }
 
-        javac.attrParseOnly = true;
-        JavacFileManager fileManager = (JavacFileManager) context
-                .get(JavaFileManager.class);
+    /**
+     * @return the control flow graphs of all methods, initializer blocks and
+     *         lambdas in {@code file}, keyed by signature as described in
+     *         {@link BatchCFGProcessor}; the file is compiled only once
+     */
+    public static Map<String, ControlFlowGraph> generateAllCFGs(String file) {
+        return generateCFGs(file, null, null);
+    }
 
-        JavaFileObject l = fileManager
-                .getJavaFileObjectsFromStrings(List.of(file)).iterator().next();
+    /**
+     * @return the control flow graphs of the code in {@code file} that
+     *         matches {@code clas} and {@code method}, where {@code null}
+     *         matches everything, keyed by signature as described in
+     *         {@link BatchCFGProcessor}. Exits the JVM if the file cannot be
+     *         read or if it has a compilation error that may affect the
+     *         matching code (see {@link CFGService.Batch#getErrorsAffecting});
+     *         errors in the bodies of other methods are ignored.
+     */
+    public static Map<String, ControlFlowGraph> generateCFGs(String file,
+            /*@Nullable*/ String clas, /*@Nullable*/ String method) {
 
-        PrintStream err = System.err;
+        CFGService.Batch batch = compile(file);
+        exitOnErrors(file, batch.getErrorsAffecting(clas, method));
+        return batch.getCFGs(clas, method);
+    }
 
+    /** Compile {@code file}, or exit if it cannot be read. */
+    protected static CFGService.Batch compile(String file) {
+        CFGService.Batch batch = null;
         try {
-            // redirect syserr to nothing (and prevent the compiler from issuing
-            // warnings about our exception.
-            System.setErr(new PrintStream(new OutputStream() {
-                @Override
-                public void write(int b) throws IOException {
-                }
-            }));
-            javac.compile(List.of(l), List.of(clas), List.of(cfgProcessor));
-        } catch (Throwable e) {
-            // ok
-        } finally {
-            System.setErr(err);
-        }
-
-        CFGProcessResult res = cfgProcessor.getCFGProcessResult();
-
-        if (res == null) {
-            printError("internal error in type processor! method typeProcessOver() doesn't get called.");
+            batch = service.compile(Collections.singletonList(file));
+        } catch (IOException e) {
+            printError("cannot read " + file + ": " + e.getMessage());
             // TODO: directly exit is not friendly, refactor this to using throw-catch
             System.exit(1);
         }
+        return batch;
+    }
 
-        if (!res.isSuccess()) {
-            printError(res.getErrMsg());
+    /** Exit if {@code errors} is not empty. */
+    protected static void exitOnErrors(String file,
+            List<Diagnostic<? extends JavaFileObject>> errors) {
+        if (!errors.isEmpty()) {
+            printError("compilation of " + file + " failed: " + errors);
             // TODO: directly exit is not friendly, refactor this to using throw-catch
             System.exit(1);
         }
-
-        return res.getCFG();
     }
 
-
     /** Print an error message. */
     protected static void printError(String string) {
         System.err.println("ERROR: " + string);
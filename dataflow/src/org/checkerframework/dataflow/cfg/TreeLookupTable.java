@@ -0,0 +1,314 @@
+package org.checkerframework.dataflow.cfg;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.javacutil.ErrorReporter;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.sun.source.tree.Tree;
+
+/**
+ * An identity-keyed, open-addressing hash table from AST {@link Tree}s to
+ * {@link Node}s, used as the tree lookup of a {@link ControlFlowGraph}.
+ *
+ * <p>
+ *
+ * Every entry holds two nodes: the node for the pre-conversion value of the
+ * tree and, if the tree undergoes a conversion such as boxing or unboxing,
+ * the node for the post-conversion value. A lookup therefore needs a single
+ * probe sequence, instead of one probe into each of two maps.
+ *
+ * <p>
+ *
+ * Entries cannot be removed. Keys are compared by reference.
+ */
+public class TreeLookupTable {
+
+    /** Default number of entries the table can hold without resizing. */
+    protected static final int DEFAULT_EXPECTED_SIZE = 32;
+
+    /** The keys of the table; {@code null} marks a free slot. */
+    protected Tree[] trees;
+
+    /** The pre-conversion nodes, parallel to {@code trees}. */
+    protected Node[] nodes;
+
+    /** The post-conversion nodes (or {@code null}), parallel to {@code trees}. */
+    protected Node[] convertedNodes;
+
+    /** The number of keys in the table. */
+    protected int size;
+
+    public TreeLookupTable() {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+
+    /**
+     * Create a table that can hold {@code expectedSize} trees without
+     * resizing.
+     */
+    public TreeLookupTable(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Make sure that the table can hold {@code expectedSize} trees in total
+     * without resizing again. Clients that know (or can estimate) the number
+     * of trees up front should call this before adding them.
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        if (capacity > trees.length) {
+            rehash(capacity);
+        }
+    }
+
+    /** @return the number of trees in this table. */
+    public int size() {
+        return size;
+    }
+
+    /** @return whether this table contains no trees. */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return whether {@code tree} has a (pre-conversion) node in this table.
+     */
+    public boolean containsKey(Tree tree) {
+        return trees[indexOf(tree)] != null;
+    }
+
+    /**
+     * @return the node for the post-conversion value of {@code tree} if there
+     *         is one, otherwise the node for its pre-conversion value, or
+     *         {@code null} if {@code tree} is not in this table.
+     */
+    public /*@Nullable*/ Node get(Tree tree) {
+        int i = indexOf(tree);
+        Node converted = convertedNodes[i];
+        return converted != null ? converted : nodes[i];
+    }
+
+    /**
+     * @return the node for the pre-conversion value of {@code tree}, or
+     *         {@code null} if {@code tree} is not in this table.
+     */
+    public /*@Nullable*/ Node getPreConversion(Tree tree) {
+        return nodes[indexOf(tree)];
+    }
+
+    /**
+     * @return the node for the post-conversion value of {@code tree}, or
+     *         {@code null} if {@code tree} does not undergo a conversion.
+     */
+    public /*@Nullable*/ Node getConverted(Tree tree) {
+        return convertedNodes[indexOf(tree)];
+    }
+
+    /**
+     * Set the pre-conversion node of {@code tree}, replacing any existing
+     * one.
+     */
+    public void put(Tree tree, Node node) {
+        assert node != null;
+        // slotFor may replace the arrays, so it must run before nodes is read
+        int i = slotFor(tree);
+        nodes[i] = node;
+    }
+
+    /**
+     * Set the pre-conversion node of {@code tree}, unless it already has one.
+     *
+     * @return true if the node was added
+     */
+    public boolean putIfAbsent(Tree tree, Node node) {
+        assert node != null;
+        int i = slotFor(tree);
+        if (nodes[i] != null) {
+            return false;
+        }
+        nodes[i] = node;
+        return true;
+    }
+
+    /**
+     * Set the post-conversion node of {@code tree}, which must already have a
+     * pre-conversion node in this table.
+     */
+    public void putConverted(Tree tree, Node node) {
+        assert node != null;
+        int i = indexOf(tree);
+        if (trees[i] == null) {
+            ErrorReporter.errorAbort("TreeLookupTable: no pre-conversion node for " + tree);
+        }
+        convertedNodes[i] = node;
+    }
+
+    /**
+     * @return an unmodifiable {@link Map} view from trees to their
+     *         pre-conversion nodes. The view is backed by this table.
+     */
+    public Map<Tree, Node> asPreConversionMap() {
+        return new PreConversionMap();
+    }
+
+    /**
+     * @return the slot at which {@code tree} is stored, or the free slot at
+     *         which it would be stored.
+     */
+    protected int indexOf(Tree tree) {
+        Tree[] tab = trees;
+        int mask = tab.length - 1;
+        int i = hash(tree) & mask;
+        while (true) {
+            Tree t = tab[i];
+            if (t == tree || t == null) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * @return the slot for {@code tree}, inserting it as a key (without any
+     *         nodes) if it is not present yet.
+     */
+    protected int slotFor(Tree tree) {
+        assert tree != null;
+        int i = indexOf(tree);
+        if (trees[i] == null) {
+            if (2 * (size + 1) > trees.length) {
+                rehash(2 * trees.length);
+                i = indexOf(tree);
+            }
+            trees[i] = tree;
+            size++;
+        }
+        return i;
+    }
+
+    protected void rehash(int capacity) {
+        Tree[] oldTrees = trees;
+        Node[] oldNodes = nodes;
+        Node[] oldConverted = convertedNodes;
+        allocate(capacity);
+        for (int j = 0; j < oldTrees.length; j++) {
+            Tree t = oldTrees[j];
+            if (t != null) {
+                int i = indexOf(t);
+                trees[i] = t;
+                nodes[i] = oldNodes[j];
+                convertedNodes[i] = oldConverted[j];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        trees = new Tree[capacity];
+        nodes = new Node[capacity];
+        convertedNodes = new Node[capacity];
+    }
+
+    /**
+     * @return the smallest power of two that keeps the load factor of a table
+     *         with {@code expectedSize} entries at or below one half.
+     */
+    protected static int capacityFor(int expectedSize) {
+        int capacity = 4;
+        while (capacity < 2 * expectedSize && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /** Spread the identity hash so that linear probing works well. */
+    protected static int hash(Tree tree) {
+        int h = System.identityHashCode(tree);
+        // Multiply by the golden ratio and use the high bits.
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return asPreConversionMap().toString();
+    }
+
+    /** Read-only map view of the pre-conversion nodes. */
+    protected class PreConversionMap extends AbstractMap<Tree, Node> {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Tree && TreeLookupTable.this.containsKey((Tree) key);
+        }
+
+        @Override
+        public Node get(Object key) {
+            if (!(key instanceof Tree)) {
+                return null;
+            }
+            return getPreConversion((Tree) key);
+        }
+
+        @Override
+        public Set<Entry<Tree, Node>> entrySet() {
+            return new AbstractSet<Entry<Tree, Node>>() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Entry<Tree, Node>> iterator() {
+                    return new Iterator<Entry<Tree, Node>>() {
+                        private int next = advance(0);
+
+                        private int advance(int i) {
+                            while (i < trees.length && trees[i] == null) {
+                                i++;
+                            }
+                            return i;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < trees.length;
+                        }
+
+                        @Override
+                        public Entry<Tree, Node> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<Tree, Node> e =
+                                    new SimpleImmutableEntry<>(trees[next], nodes[next]);
+                            next = advance(next + 1);
+                            return e;
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
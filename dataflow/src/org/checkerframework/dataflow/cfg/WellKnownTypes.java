@@ -0,0 +1,100 @@
+package org.checkerframework.dataflow.cfg;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+
+/**
+ * The types from {@code java.lang} that the CFG translation refers to over
+ * and over again, such as {@link Throwable} for the unchecked exceptions of
+ * every method invocation.
+ *
+ * <p>
+ *
+ * Looking up a type element by name goes through the symbol table. Instead,
+ * there is one {@code WellKnownTypes} per compilation context, which looks
+ * up each type once and is shared by all CFGs built in that context. Use
+ * {@link #instance(ProcessingEnvironment)} to obtain it.
+ */
+public class WellKnownTypes {
+
+    protected static final Context.Key<WellKnownTypes> wellKnownTypesKey =
+            new Context.Key<>();
+
+    protected final TypeMirror throwableType;
+    protected final TypeMirror nullPointerExceptionType;
+    protected final TypeMirror classCastExceptionType;
+    protected final TypeMirror assertionErrorType;
+    protected final TypeMirror stringType;
+    protected final TypeMirror iterableType;
+    protected final TypeMirror erasedIterableType;
+
+    protected WellKnownTypes(ProcessingEnvironment env) {
+        Elements elements = env.getElementUtils();
+        Types types = env.getTypeUtils();
+        throwableType = elements.getTypeElement("java.lang.Throwable").asType();
+        nullPointerExceptionType =
+            elements.getTypeElement("java.lang.NullPointerException").asType();
+        classCastExceptionType =
+            elements.getTypeElement("java.lang.ClassCastException").asType();
+        assertionErrorType = elements.getTypeElement("java.lang.AssertionError").asType();
+        stringType = elements.getTypeElement("java.lang.String").asType();
+        iterableType = elements.getTypeElement("java.lang.Iterable").asType();
+        erasedIterableType = types.erasure(iterableType);
+    }
+
+    /**
+     * @return the {@code WellKnownTypes} of the compilation context of
+     *         {@code env}, creating it on first use
+     */
+    public static WellKnownTypes instance(ProcessingEnvironment env) {
+        Context context = ((JavacProcessingEnvironment) env).getContext();
+        synchronized (context) {
+            WellKnownTypes instance = context.get(wellKnownTypesKey);
+            if (instance == null) {
+                instance = new WellKnownTypes(env);
+                context.put(wellKnownTypesKey, instance);
+            }
+            return instance;
+        }
+    }
+
+    /** @return the type {@code java.lang.Throwable} */
+    public TypeMirror getThrowableType() {
+        return throwableType;
+    }
+
+    /** @return the type {@code java.lang.NullPointerException} */
+    public TypeMirror getNullPointerExceptionType() {
+        return nullPointerExceptionType;
+    }
+
+    /** @return the type {@code java.lang.ClassCastException} */
+    public TypeMirror getClassCastExceptionType() {
+        return classCastExceptionType;
+    }
+
+    /** @return the type {@code java.lang.AssertionError} */
+    public TypeMirror getAssertionErrorType() {
+        return assertionErrorType;
+    }
+
+    /** @return the type {@code java.lang.String} */
+    public TypeMirror getStringType() {
+        return stringType;
+    }
+
+    /** @return the declared type {@code java.lang.Iterable<T>} */
+    public TypeMirror getIterableType() {
+        return iterableType;
+    }
+
+    /** @return the erasure of {@code java.lang.Iterable} */
+    public TypeMirror getErasedIterableType() {
+        return erasedIterableType;
+    }
+}
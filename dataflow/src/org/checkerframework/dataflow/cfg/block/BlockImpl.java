@@ -3,6 +3,7 @@ package org.checkerframework.dataflow.cfg.block;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Base class of the {@link Block} implementation hierarchy.
@@ -16,7 +17,7 @@ public abstract class BlockImpl implements Block {
     protected long id = BlockImpl.uniqueID();
 
     /** The last ID that has already been used. */
-    protected static long lastId = 0;
+    private static final AtomicLong lastId = new AtomicLong();
 
     /** The type of this basic block. */
     protected BlockType type;
@@ -28,7 +29,8 @@ public abstract class BlockImpl implements Block {
      * @return a fresh identifier
      */
     private static long uniqueID() {
-        return lastId++;
+        // atomic, since graphs may be built by several threads at once
+        return lastId.getAndIncrement();
     }
 
     public BlockImpl() {
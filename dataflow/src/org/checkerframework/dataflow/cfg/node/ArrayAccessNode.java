@@ -31,7 +31,7 @@ public class ArrayAccessNode extends Node {
     protected Node index;
 
     public ArrayAccessNode(Tree t, Node array, Node index) {
-        super(InternalUtils.typeOf(t));
+        super(InternalUtils.typeOf(t), Kind.ARRAY_ACCESS);
         assert t instanceof ArrayAccessTree;
         this.tree = t;
         this.array = array;
@@ -39,7 +39,7 @@ public class ArrayCreationNode extends Node {
             TypeMirror type,
             List<Node> dimensions,
             List<Node> initializers) {
-        super(type);
+        super(type, Kind.ARRAY_CREATION);
         this.tree = tree;
         this.dimensions = dimensions;
         this.initializers = initializers;
@@ -25,7 +25,7 @@ public class ArrayTypeNode extends Node {
     protected final ArrayTypeTree tree;
 
     public ArrayTypeNode(ArrayTypeTree tree) {
-        super(InternalUtils.typeOf(tree));
+        super(InternalUtils.typeOf(tree), Kind.ARRAY_TYPE);
         this.tree = tree;
     }
 
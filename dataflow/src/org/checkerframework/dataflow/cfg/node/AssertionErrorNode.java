@@ -8,7 +8,6 @@ import javax.lang.model.type.TypeMirror;
 import org.checkerframework.dataflow.util.HashCodeUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the {@link AssertionError} when an assertion fails.
@@ -30,8 +29,8 @@ public class AssertionErrorNode extends Node {
     public AssertionErrorNode(Tree tree, Node condition, Node detail, TypeMirror type) {
         // TODO: Find out the correct "type" for statements.
         // Is it TypeKind.NONE?
-        super(type);
-        assert tree.getKind() == Kind.ASSERT;
+        super(type, Kind.ASSERTION_ERROR);
+        assert tree.getKind() == Tree.Kind.ASSERT;
         this.tree = tree;
         this.condition = condition;
         this.detail = detail;
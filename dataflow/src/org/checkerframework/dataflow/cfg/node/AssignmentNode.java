@@ -35,7 +35,7 @@ public class AssignmentNode extends Node {
     protected Node rhs;
 
     public AssignmentNode(Tree tree, Node target, Node expression) {
-        super(InternalUtils.typeOf(tree));
+        super(InternalUtils.typeOf(tree), Kind.ASSIGNMENT);
         assert tree instanceof AssignmentTree || tree instanceof VariableTree
                 || tree instanceof CompoundAssignmentTree || tree instanceof UnaryTree;
         assert target instanceof FieldAccessNode
@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the bitwise or logical (single bit) and operation:
@@ -28,8 +27,8 @@ public class BitwiseAndNode extends Node {
     protected Node right;
 
     public BitwiseAndNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.AND;
+        super(InternalUtils.typeOf(tree), Kind.BITWISE_AND);
+        assert tree.getKind() == Tree.Kind.AND;
         this.tree = tree;
         this.left = left;
         this.right = right;
@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the bitwise complement operation:
@@ -27,8 +26,8 @@ public class BitwiseComplementNode extends Node {
     protected Node operand;
 
     public BitwiseComplementNode(Tree tree, Node operand) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.BITWISE_COMPLEMENT;
+        super(InternalUtils.typeOf(tree), Kind.BITWISE_COMPLEMENT);
+        assert tree.getKind() == Tree.Kind.BITWISE_COMPLEMENT;
         this.tree = tree;
         this.operand = operand;
     }
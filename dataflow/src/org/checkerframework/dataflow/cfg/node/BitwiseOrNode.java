@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the bitwise or logical (single bit) or operation:
@@ -28,8 +27,8 @@ public class BitwiseOrNode extends Node {
     protected Node right;
 
     public BitwiseOrNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.OR;
+        super(InternalUtils.typeOf(tree), Kind.BITWISE_OR);
+        assert tree.getKind() == Tree.Kind.OR;
         this.tree = tree;
         this.left = left;
         this.right = right;
@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the bitwise or logical (single bit) xor operation:
@@ -28,8 +27,8 @@ public class BitwiseXorNode extends Node {
     protected Node right;
 
     public BitwiseXorNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.XOR;
+        super(InternalUtils.typeOf(tree), Kind.BITWISE_XOR);
+        assert tree.getKind() == Tree.Kind.XOR;
         this.tree = tree;
         this.left = left;
         this.right = right;
@@ -20,7 +20,7 @@ import com.sun.source.tree.Tree;
 public class BooleanLiteralNode extends ValueLiteralNode {
 
     public BooleanLiteralNode(LiteralTree t) {
-        super(t);
+        super(t, Kind.BOOLEAN_LITERAL);
         assert t.getKind().equals(Tree.Kind.BOOLEAN_LITERAL);
     }
 
@@ -9,7 +9,7 @@ import javax.lang.model.util.Types;
 import org.checkerframework.dataflow.util.HashCodeUtils;
 
 import com.sun.source.tree.CaseTree;
-import com.sun.source.tree.Tree.Kind;
+import com.sun.source.tree.Tree;
 
 /**
  * A node for a case in a switch statement.  Although
@@ -31,8 +31,8 @@ public class CaseNode extends Node {
     protected Node caseExpr;
 
     public CaseNode(CaseTree tree, Node switchExpr, Node caseExpr, Types types) {
-        super(types.getNoType(TypeKind.NONE));
-        assert tree.getKind().equals(Kind.CASE);
+        super(types.getNoType(TypeKind.NONE), Kind.CASE);
+        assert tree.getKind().equals(Tree.Kind.CASE);
         this.tree = tree;
         this.switchExpr = switchExpr;
         this.caseExpr = caseExpr;
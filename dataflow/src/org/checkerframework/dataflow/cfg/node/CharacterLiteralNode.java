@@ -22,7 +22,7 @@ import com.sun.source.tree.Tree;
 public class CharacterLiteralNode extends ValueLiteralNode {
 
     public CharacterLiteralNode(LiteralTree t) {
-        super(t);
+        super(t, Kind.CHARACTER_LITERAL);
         assert t.getKind().equals(Tree.Kind.CHAR_LITERAL);
     }
 
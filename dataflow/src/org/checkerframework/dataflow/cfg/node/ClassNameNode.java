@@ -39,7 +39,7 @@ public class ClassNameNode extends Node {
     protected final /*@Nullable*/ Node parent;
 
     public ClassNameNode(IdentifierTree tree) {
-        super(InternalUtils.typeOf(tree));
+        super(InternalUtils.typeOf(tree), Kind.CLASS_NAME);
         assert tree.getKind() == Tree.Kind.IDENTIFIER;
         this.tree = tree;
         this.element = TreeUtils.elementFromUse(tree);
@@ -47,7 +47,7 @@ public class ClassNameNode extends Node {
     }
 
     public ClassNameNode(ClassTree tree) {
-        super(InternalUtils.typeOf(tree));
+        super(InternalUtils.typeOf(tree), Kind.CLASS_NAME);
         assert tree.getKind() == Tree.Kind.CLASS || tree.getKind() == Tree.Kind.ENUM || tree.getKind() == Tree.Kind.INTERFACE || tree.getKind() == Tree.Kind.ANNOTATION_TYPE;
         this.tree = tree;
         this.element = TreeUtils.elementFromDeclaration(tree);
@@ -55,7 +55,7 @@ public class ClassNameNode extends Node {
     }
 
     public ClassNameNode(MemberSelectTree tree, Node parent) {
-        super(InternalUtils.typeOf(tree));
+        super(InternalUtils.typeOf(tree), Kind.CLASS_NAME);
         this.tree = tree;
         this.element = TreeUtils.elementFromUse(tree);
         this.parent = parent;
@@ -8,7 +8,7 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.BinaryTree;
-import com.sun.source.tree.Tree.Kind;
+import com.sun.source.tree.Tree;
 
 /**
  * A node for a conditional and expression:
@@ -28,8 +28,8 @@ public class ConditionalAndNode extends Node {
     protected Node rhs;
 
     public ConditionalAndNode(BinaryTree tree, Node lhs, Node rhs) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind().equals(Kind.CONDITIONAL_AND);
+        super(InternalUtils.typeOf(tree), Kind.CONDITIONAL_AND);
+        assert tree.getKind().equals(Tree.Kind.CONDITIONAL_AND);
         this.tree = tree;
         this.lhs = lhs;
         this.rhs = rhs;
@@ -7,7 +7,7 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 
 import org.checkerframework.javacutil.InternalUtils;
 
-import com.sun.source.tree.Tree.Kind;
+import com.sun.source.tree.Tree;
 import com.sun.source.tree.UnaryTree;
 
 /**
@@ -27,8 +27,8 @@ public class ConditionalNotNode extends Node {
     protected Node operand;
 
     public ConditionalNotNode(UnaryTree tree, Node operand) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind().equals(Kind.LOGICAL_COMPLEMENT);
+        super(InternalUtils.typeOf(tree), Kind.CONDITIONAL_NOT);
+        assert tree.getKind().equals(Tree.Kind.LOGICAL_COMPLEMENT);
         this.tree = tree;
         this.operand = operand;
     }
@@ -8,7 +8,7 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.BinaryTree;
-import com.sun.source.tree.Tree.Kind;
+import com.sun.source.tree.Tree;
 
 /**
  * A node for a conditional or expression:
@@ -27,8 +27,8 @@ public class ConditionalOrNode extends Node {
     protected Node rhs;
 
     public ConditionalOrNode(BinaryTree tree, Node lhs, Node rhs) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind().equals(Kind.CONDITIONAL_OR);
+        super(InternalUtils.typeOf(tree), Kind.CONDITIONAL_OR);
+        assert tree.getKind().equals(Tree.Kind.CONDITIONAL_OR);
         this.tree = tree;
         this.lhs = lhs;
         this.rhs = rhs;
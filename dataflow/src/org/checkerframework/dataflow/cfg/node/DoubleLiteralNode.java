@@ -21,7 +21,7 @@ import com.sun.source.tree.Tree;
 public class DoubleLiteralNode extends ValueLiteralNode {
 
     public DoubleLiteralNode(LiteralTree t) {
-        super(t);
+        super(t, Kind.DOUBLE_LITERAL);
         assert t.getKind().equals(Tree.Kind.DOUBLE_LITERAL);
     }
 
@@ -8,7 +8,7 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.BinaryTree;
-import com.sun.source.tree.Tree.Kind;
+import com.sun.source.tree.Tree;
 
 /**
  * A node for an equality check:
@@ -27,8 +27,8 @@ public class EqualToNode extends Node {
     protected Node rhs;
 
     public EqualToNode(BinaryTree tree, Node lhs, Node rhs) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind().equals(Kind.EQUAL_TO);
+        super(InternalUtils.typeOf(tree), Kind.EQUAL_TO);
+        assert tree.getKind().equals(Tree.Kind.EQUAL_TO);
         this.tree = tree;
         this.lhs = lhs;
         this.rhs = rhs;
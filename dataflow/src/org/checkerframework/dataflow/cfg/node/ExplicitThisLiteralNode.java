@@ -21,7 +21,7 @@ public class ExplicitThisLiteralNode extends ThisLiteralNode {
     protected Tree tree;
 
     public ExplicitThisLiteralNode(Tree t) {
-        super(InternalUtils.typeOf(t));
+        super(InternalUtils.typeOf(t), Kind.EXPLICIT_THIS_LITERAL);
         assert t instanceof IdentifierTree
                 && ((IdentifierTree) t).getName().contentEquals("this");
         tree = t;
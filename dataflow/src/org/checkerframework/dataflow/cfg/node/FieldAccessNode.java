@@ -35,7 +35,7 @@ public class FieldAccessNode extends Node {
     // TODO: add method to get modifiers (static, access level, ..)
 
     public FieldAccessNode(Tree tree, Node receiver) {
-        super(InternalUtils.typeOf(tree));
+        super(InternalUtils.typeOf(tree), Kind.FIELD_ACCESS);
         assert TreeUtils.isFieldAccess(tree);
         this.tree = tree;
         this.receiver = receiver;
@@ -50,7 +50,7 @@ public class FieldAccessNode extends Node {
     }
 
     public FieldAccessNode(Tree tree, VariableElement element, Node receiver) {
-        super(element.asType());
+        super(element.asType(), Kind.FIELD_ACCESS);
         this.tree = tree;
         this.element = element;
         this.receiver = receiver;
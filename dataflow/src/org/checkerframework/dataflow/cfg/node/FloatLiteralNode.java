@@ -21,7 +21,7 @@ import com.sun.source.tree.Tree;
 public class FloatLiteralNode extends ValueLiteralNode {
 
     public FloatLiteralNode(LiteralTree t) {
-        super(t);
+        super(t, Kind.FLOAT_LITERAL);
         assert t.getKind().equals(Tree.Kind.FLOAT_LITERAL);
     }
 
@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the floating-point division:
@@ -28,8 +27,8 @@ public class FloatingDivisionNode extends Node {
     protected Node right;
 
     public FloatingDivisionNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.DIVIDE;
+        super(InternalUtils.typeOf(tree), Kind.FLOATING_DIVISION);
+        assert tree.getKind() == Tree.Kind.DIVIDE;
         this.tree = tree;
         this.left = left;
         this.right = right;
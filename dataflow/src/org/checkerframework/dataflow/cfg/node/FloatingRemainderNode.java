@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the floating-point remainder:
@@ -28,8 +27,8 @@ public class FloatingRemainderNode extends Node {
     protected Node right;
 
     public FloatingRemainderNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.REMAINDER;
+        super(InternalUtils.typeOf(tree), Kind.FLOATING_REMAINDER);
+        assert tree.getKind() == Tree.Kind.REMAINDER;
         this.tree = tree;
         this.left = left;
         this.right = right;
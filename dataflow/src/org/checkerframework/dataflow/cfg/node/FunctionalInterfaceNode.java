@@ -36,12 +36,12 @@ public class FunctionalInterfaceNode extends Node {
     protected Tree tree;
 
     public FunctionalInterfaceNode(MemberReferenceTree tree) {
-        super(InternalUtils.typeOf(tree));
+        super(InternalUtils.typeOf(tree), Kind.MEMBER_REFERENCE);
         this.tree = tree;
     }
 
     public FunctionalInterfaceNode(LambdaExpressionTree tree) {
-        super(InternalUtils.typeOf(tree));
+        super(InternalUtils.typeOf(tree), Kind.MEMBER_REFERENCE);
         this.tree = tree;
     }
 
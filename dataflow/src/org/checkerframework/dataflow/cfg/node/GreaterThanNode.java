@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the greater than comparison:
@@ -28,8 +27,8 @@ public class GreaterThanNode extends Node {
     protected Node right;
 
     public GreaterThanNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.GREATER_THAN;
+        super(InternalUtils.typeOf(tree), Kind.GREATER_THAN);
+        assert tree.getKind() == Tree.Kind.GREATER_THAN;
         this.tree = tree;
         this.left = left;
         this.right = right;
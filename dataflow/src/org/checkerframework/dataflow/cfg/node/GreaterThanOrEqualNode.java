@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the greater than or equal comparison:
@@ -28,8 +27,8 @@ public class GreaterThanOrEqualNode extends Node {
     protected Node right;
 
     public GreaterThanOrEqualNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.GREATER_THAN_EQUAL;
+        super(InternalUtils.typeOf(tree), Kind.GREATER_THAN_OR_EQUAL);
+        assert tree.getKind() == Tree.Kind.GREATER_THAN_EQUAL;
         this.tree = tree;
         this.left = left;
         this.right = right;
@@ -33,7 +33,7 @@ public class InstanceOfNode extends Node {
     protected final InstanceOfTree tree;
 
     public InstanceOfNode(Tree tree, Node operand, TypeMirror refType, Types types) {
-        super(types.getPrimitiveType(TypeKind.BOOLEAN));
+        super(types.getPrimitiveType(TypeKind.BOOLEAN), Kind.INSTANCE_OF);
         assert tree.getKind() == Tree.Kind.INSTANCE_OF;
         this.tree = (InstanceOfTree) tree;
         this.operand = operand;
@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the integer division:
@@ -28,8 +27,8 @@ public class IntegerDivisionNode extends Node {
     protected Node right;
 
     public IntegerDivisionNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.DIVIDE;
+        super(InternalUtils.typeOf(tree), Kind.INTEGER_DIVISION);
+        assert tree.getKind() == Tree.Kind.DIVIDE;
         this.tree = tree;
         this.left = left;
         this.right = right;
@@ -21,7 +21,7 @@ public class IntegerLiteralNode extends ValueLiteralNode {
     int value;
 
     public IntegerLiteralNode(LiteralTree t) {
-        super(t);
+        super(t, Kind.INTEGER_LITERAL);
         assert t.getKind().equals(Tree.Kind.INT_LITERAL);
         value = (Integer) tree.getValue();
     }
@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for bitwise left shift operations:
@@ -28,8 +27,8 @@ public class LeftShiftNode extends Node {
     protected Node right;
 
     public LeftShiftNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.LEFT_SHIFT;
+        super(InternalUtils.typeOf(tree), Kind.LEFT_SHIFT);
+        assert tree.getKind() == Tree.Kind.LEFT_SHIFT;
         this.tree = tree;
         this.left = left;
         this.right = right;
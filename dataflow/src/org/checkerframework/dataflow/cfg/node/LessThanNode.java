@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the less than comparison:
@@ -30,8 +29,8 @@ public class LessThanNode extends Node {
     protected Node right;
 
     public LessThanNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.LESS_THAN;
+        super(InternalUtils.typeOf(tree), Kind.LESS_THAN);
+        assert tree.getKind() == Tree.Kind.LESS_THAN;
         this.tree = tree;
         this.left = left;
         this.right = right;
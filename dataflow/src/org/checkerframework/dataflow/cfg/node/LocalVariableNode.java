@@ -34,7 +34,7 @@ public class LocalVariableNode extends Node {
     protected Node receiver;
 
     public LocalVariableNode(Tree t) {
-        super(InternalUtils.typeOf(t));
+        super(InternalUtils.typeOf(t), Kind.LOCAL_VARIABLE);
         // IdentifierTree for normal uses of the local variable or parameter,
         // and VariableTree for the translation of an initializer block
         assert t != null;
@@ -21,7 +21,7 @@ import com.sun.source.tree.Tree;
 public class LongLiteralNode extends ValueLiteralNode {
 
     public LongLiteralNode(LiteralTree t) {
-        super(t);
+        super(t, Kind.LONG_LITERAL);
         assert t.getKind().equals(Tree.Kind.LONG_LITERAL);
     }
 
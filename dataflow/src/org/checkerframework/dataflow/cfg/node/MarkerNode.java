@@ -32,7 +32,7 @@ public class MarkerNode extends Node {
     protected String message;
 
     public MarkerNode(/*@Nullable*/ Tree tree, String message, Types types) {
-        super(types.getNoType(TypeKind.NONE));
+        super(types.getNoType(TypeKind.NONE), Kind.MARKER);
         this.tree = tree;
         this.message = message;
     }
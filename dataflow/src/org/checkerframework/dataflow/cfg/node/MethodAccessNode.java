@@ -32,7 +32,7 @@ public class MethodAccessNode extends Node {
     // TODO: add method to get modifiers (static, access level, ..)
 
     public MethodAccessNode(ExpressionTree tree, Node receiver) {
-        super(InternalUtils.typeOf(tree));
+        super(InternalUtils.typeOf(tree), Kind.METHOD_ACCESS);
         assert TreeUtils.isMethodAccess(tree);
         this.tree = tree;
         this.method = (ExecutableElement) TreeUtils.elementFromUse(tree);
@@ -36,7 +36,7 @@ public class MethodInvocationNode extends Node {
 
     public MethodInvocationNode(MethodInvocationTree tree,
             MethodAccessNode target, List<Node> arguments, TreePath treePath) {
-        super(tree != null ? InternalUtils.typeOf(tree) : target.getMethod().getReturnType());
+        super(tree != null ? InternalUtils.typeOf(tree) : target.getMethod().getReturnType(), Kind.METHOD_INVOCATION);
         this.tree = tree;
         this.target = target;
         this.arguments = arguments;
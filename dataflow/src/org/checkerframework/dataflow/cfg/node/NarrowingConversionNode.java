@@ -29,7 +29,7 @@ public class NarrowingConversionNode extends Node {
     protected Node operand;
 
     public NarrowingConversionNode(Tree tree, Node operand, TypeMirror type) {
-        super(type);
+        super(type, Kind.NARROWING_CONVERSION);
         assert TypesUtils.isPrimitive(type) : "non-primitive type in narrowing conversion";
         this.tree = tree;
         this.operand = operand;
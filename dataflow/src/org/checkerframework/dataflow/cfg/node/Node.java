@@ -68,9 +68,138 @@ public abstract class Node {
      */
     protected final TypeMirror type;
 
-    public Node(TypeMirror type) {
+    /**
+     * The kind of this node, which identifies its concrete class and the
+     * {@link NodeVisitor} method that {@link #accept} calls.
+     */
+    protected final Kind kind;
+
+    /**
+     * The kinds of nodes. There is one kind per concrete subclass of
+     * {@link Node}, in the same order as the methods of {@link NodeVisitor}.
+     * The kind of a node is fixed at construction and allows switching on
+     * nodes (see {@link NodeKindDispatcher}) without a chain of
+     * {@code instanceof} tests.
+     */
+    public static enum Kind {
+        // Literals
+        SHORT_LITERAL,
+        INTEGER_LITERAL,
+        LONG_LITERAL,
+        FLOAT_LITERAL,
+        DOUBLE_LITERAL,
+        BOOLEAN_LITERAL,
+        CHARACTER_LITERAL,
+        STRING_LITERAL,
+        NULL_LITERAL,
+
+        // Unary operations
+        NUMERICAL_MINUS,
+        NUMERICAL_PLUS,
+        BITWISE_COMPLEMENT,
+        NULL_CHK,
+
+        // Binary operations
+        STRING_CONCATENATE,
+        NUMERICAL_ADDITION,
+        NUMERICAL_SUBTRACTION,
+        NUMERICAL_MULTIPLICATION,
+        INTEGER_DIVISION,
+        FLOATING_DIVISION,
+        INTEGER_REMAINDER,
+        FLOATING_REMAINDER,
+        LEFT_SHIFT,
+        SIGNED_RIGHT_SHIFT,
+        UNSIGNED_RIGHT_SHIFT,
+        BITWISE_AND,
+        BITWISE_OR,
+        BITWISE_XOR,
+
+        // Compound assignments
+        STRING_CONCATENATE_ASSIGNMENT,
+
+        // Comparison operations
+        LESS_THAN,
+        LESS_THAN_OR_EQUAL,
+        GREATER_THAN,
+        GREATER_THAN_OR_EQUAL,
+        EQUAL_TO,
+        NOT_EQUAL,
+
+        // Conditional operations
+        CONDITIONAL_AND,
+        CONDITIONAL_OR,
+        CONDITIONAL_NOT,
+        TERNARY_EXPRESSION,
+        ASSIGNMENT,
+        LOCAL_VARIABLE,
+        VARIABLE_DECLARATION,
+        FIELD_ACCESS,
+        METHOD_ACCESS,
+        ARRAY_ACCESS,
+        IMPLICIT_THIS_LITERAL,
+        EXPLICIT_THIS_LITERAL,
+        SUPER,
+        RETURN,
+        STRING_CONVERSION,
+        NARROWING_CONVERSION,
+        WIDENING_CONVERSION,
+        INSTANCE_OF,
+        TYPE_CAST,
+
+        // Blocks
+        SYNCHRONIZED,
+
+        // Statements
+        ASSERTION_ERROR,
+        THROW,
+
+        // Cases
+        CASE,
+
+        // Method and constructor invocations
+        METHOD_INVOCATION,
+        OBJECT_CREATION,
+        MEMBER_REFERENCE,
+        ARRAY_CREATION,
+
+        // Type, package and class names
+        ARRAY_TYPE,
+        PRIMITIVE_TYPE,
+        CLASS_NAME,
+        PACKAGE_NAME,
+
+        // Parameterized types
+        PARAMETERIZED_TYPE,
+
+        // Marker nodes
+        MARKER,
+
+        /**
+         * A node of a class that does not declare its kind, such as a node
+         * class outside this package. Such nodes are visited through
+         * {@link Node#accept}.
+         */
+        OTHER;
+    }
+
+    public Node(TypeMirror type, Kind kind) {
         assert type != null;
+        assert kind != null;
         this.type = type;
+        this.kind = kind;
+    }
+
+    /**
+     * Create a node of kind {@link Kind#OTHER}.
+     *
+     * @deprecated use {@link #Node(TypeMirror, Kind)}; this constructor
+     *             remains for node classes that were written before nodes had
+     *             kinds
+     */
+    @Deprecated
+    public Node(TypeMirror type) {
+        this(type, Kind.OTHER);
     }
 
     /**
@@ -105,6 +234,13 @@ public abstract class Node {
         return type;
     }
 
+    /**
+     * @return the kind of this node.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
     /**
      * Accept method of the visitor pattern
      *
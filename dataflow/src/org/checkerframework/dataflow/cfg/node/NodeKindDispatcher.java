@@ -0,0 +1,209 @@
+package org.checkerframework.dataflow.cfg.node;
+
+/**
+ * Dispatches a {@link Node} to the matching method of a {@link NodeVisitor}
+ * by switching on {@link Node#getKind()}.
+ *
+ * <p>
+ *
+ * {@code dispatch(node, visitor, p)} has the same effect as
+ * {@code node.accept(visitor, p)}. It is not faster than {@code accept}:
+ * the method is too large to be inlined, so the table jump of its
+ * {@code switch} merely replaces the virtual call, and the class check
+ * described below costs extra (see {@code NodeDispatchPlayground}). Hot call
+ * sites, such as the one that invokes the transfer function of an analysis,
+ * therefore call {@code accept}.
+ *
+ * <p>
+ *
+ * Nodes of kind {@link Node.Kind#OTHER} and nodes of classes declared
+ * outside this package, which may override {@code accept} to call a
+ * different visitor method, are dispatched by calling {@code accept}.
+ */
+public final class NodeKindDispatcher {
+
+    /** The package of the node classes whose kind determines their visitor method. */
+    private static final String NODE_PACKAGE = Node.class.getName().substring(
+            0, Node.class.getName().lastIndexOf('.'));
+
+    /**
+     * Whether nodes of a class can be dispatched by their kind, which is the
+     * case for the classes of this package.
+     */
+    private static final ClassValue<Boolean> dispatchByKind = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            String name = type.getName();
+            int dot = name.lastIndexOf('.');
+            return dot >= 0 && name.substring(0, dot).equals(NODE_PACKAGE);
+        }
+    };
+
+    // Class cannot be instantiated.
+    private NodeKindDispatcher() { throw new AssertionError("Class NodeKindDispatcher cannot be instantiated."); }
+
+    /**
+     * Call the method of {@code visitor} that corresponds to the kind of
+     * {@code node}.
+     *
+     * @return the result of the visitor method
+     */
+    public static <R, P> R dispatch(Node node, NodeVisitor<R, P> visitor, P p) {
+        if (!dispatchByKind.get(node.getClass())) {
+            return node.accept(visitor, p);
+        }
+        switch (node.getKind()) {
+        // Literals
+        case SHORT_LITERAL:
+            return visitor.visitShortLiteral((ShortLiteralNode) node, p);
+        case INTEGER_LITERAL:
+            return visitor.visitIntegerLiteral((IntegerLiteralNode) node, p);
+        case LONG_LITERAL:
+            return visitor.visitLongLiteral((LongLiteralNode) node, p);
+        case FLOAT_LITERAL:
+            return visitor.visitFloatLiteral((FloatLiteralNode) node, p);
+        case DOUBLE_LITERAL:
+            return visitor.visitDoubleLiteral((DoubleLiteralNode) node, p);
+        case BOOLEAN_LITERAL:
+            return visitor.visitBooleanLiteral((BooleanLiteralNode) node, p);
+        case CHARACTER_LITERAL:
+            return visitor.visitCharacterLiteral((CharacterLiteralNode) node, p);
+        case STRING_LITERAL:
+            return visitor.visitStringLiteral((StringLiteralNode) node, p);
+        case NULL_LITERAL:
+            return visitor.visitNullLiteral((NullLiteralNode) node, p);
+        // Unary operations
+        case NUMERICAL_MINUS:
+            return visitor.visitNumericalMinus((NumericalMinusNode) node, p);
+        case NUMERICAL_PLUS:
+            return visitor.visitNumericalPlus((NumericalPlusNode) node, p);
+        case BITWISE_COMPLEMENT:
+            return visitor.visitBitwiseComplement((BitwiseComplementNode) node, p);
+        case NULL_CHK:
+            return visitor.visitNullChk((NullChkNode) node, p);
+        // Binary operations
+        case STRING_CONCATENATE:
+            return visitor.visitStringConcatenate((StringConcatenateNode) node, p);
+        case NUMERICAL_ADDITION:
+            return visitor.visitNumericalAddition((NumericalAdditionNode) node, p);
+        case NUMERICAL_SUBTRACTION:
+            return visitor.visitNumericalSubtraction((NumericalSubtractionNode) node, p);
+        case NUMERICAL_MULTIPLICATION:
+            return visitor.visitNumericalMultiplication((NumericalMultiplicationNode) node, p);
+        case INTEGER_DIVISION:
+            return visitor.visitIntegerDivision((IntegerDivisionNode) node, p);
+        case FLOATING_DIVISION:
+            return visitor.visitFloatingDivision((FloatingDivisionNode) node, p);
+        case INTEGER_REMAINDER:
+            return visitor.visitIntegerRemainder((IntegerRemainderNode) node, p);
+        case FLOATING_REMAINDER:
+            return visitor.visitFloatingRemainder((FloatingRemainderNode) node, p);
+        case LEFT_SHIFT:
+            return visitor.visitLeftShift((LeftShiftNode) node, p);
+        case SIGNED_RIGHT_SHIFT:
+            return visitor.visitSignedRightShift((SignedRightShiftNode) node, p);
+        case UNSIGNED_RIGHT_SHIFT:
+            return visitor.visitUnsignedRightShift((UnsignedRightShiftNode) node, p);
+        case BITWISE_AND:
+            return visitor.visitBitwiseAnd((BitwiseAndNode) node, p);
+        case BITWISE_OR:
+            return visitor.visitBitwiseOr((BitwiseOrNode) node, p);
+        case BITWISE_XOR:
+            return visitor.visitBitwiseXor((BitwiseXorNode) node, p);
+        // Compound assignments
+        case STRING_CONCATENATE_ASSIGNMENT:
+            return visitor.visitStringConcatenateAssignment((StringConcatenateAssignmentNode) node, p);
+        // Comparison operations
+        case LESS_THAN:
+            return visitor.visitLessThan((LessThanNode) node, p);
+        case LESS_THAN_OR_EQUAL:
+            return visitor.visitLessThanOrEqual((LessThanOrEqualNode) node, p);
+        case GREATER_THAN:
+            return visitor.visitGreaterThan((GreaterThanNode) node, p);
+        case GREATER_THAN_OR_EQUAL:
+            return visitor.visitGreaterThanOrEqual((GreaterThanOrEqualNode) node, p);
+        case EQUAL_TO:
+            return visitor.visitEqualTo((EqualToNode) node, p);
+        case NOT_EQUAL:
+            return visitor.visitNotEqual((NotEqualNode) node, p);
+        // Conditional operations
+        case CONDITIONAL_AND:
+            return visitor.visitConditionalAnd((ConditionalAndNode) node, p);
+        case CONDITIONAL_OR:
+            return visitor.visitConditionalOr((ConditionalOrNode) node, p);
+        case CONDITIONAL_NOT:
+            return visitor.visitConditionalNot((ConditionalNotNode) node, p);
+        case TERNARY_EXPRESSION:
+            return visitor.visitTernaryExpression((TernaryExpressionNode) node, p);
+        case ASSIGNMENT:
+            return visitor.visitAssignment((AssignmentNode) node, p);
+        case LOCAL_VARIABLE:
+            return visitor.visitLocalVariable((LocalVariableNode) node, p);
+        case VARIABLE_DECLARATION:
+            return visitor.visitVariableDeclaration((VariableDeclarationNode) node, p);
+        case FIELD_ACCESS:
+            return visitor.visitFieldAccess((FieldAccessNode) node, p);
+        case METHOD_ACCESS:
+            return visitor.visitMethodAccess((MethodAccessNode) node, p);
+        case ARRAY_ACCESS:
+            return visitor.visitArrayAccess((ArrayAccessNode) node, p);
+        case IMPLICIT_THIS_LITERAL:
+            return visitor.visitImplicitThisLiteral((ImplicitThisLiteralNode) node, p);
+        case EXPLICIT_THIS_LITERAL:
+            return visitor.visitExplicitThisLiteral((ExplicitThisLiteralNode) node, p);
+        case SUPER:
+            return visitor.visitSuper((SuperNode) node, p);
+        case RETURN:
+            return visitor.visitReturn((ReturnNode) node, p);
+        case STRING_CONVERSION:
+            return visitor.visitStringConversion((StringConversionNode) node, p);
+        case NARROWING_CONVERSION:
+            return visitor.visitNarrowingConversion((NarrowingConversionNode) node, p);
+        case WIDENING_CONVERSION:
+            return visitor.visitWideningConversion((WideningConversionNode) node, p);
+        case INSTANCE_OF:
+            return visitor.visitInstanceOf((InstanceOfNode) node, p);
+        case TYPE_CAST:
+            return visitor.visitTypeCast((TypeCastNode) node, p);
+        // Blocks
+        case SYNCHRONIZED:
+            return visitor.visitSynchronized((SynchronizedNode) node, p);
+        // Statements
+        case ASSERTION_ERROR:
+            return visitor.visitAssertionError((AssertionErrorNode) node, p);
+        case THROW:
+            return visitor.visitThrow((ThrowNode) node, p);
+        // Cases
+        case CASE:
+            return visitor.visitCase((CaseNode) node, p);
+        // Method and constructor invocations
+        case METHOD_INVOCATION:
+            return visitor.visitMethodInvocation((MethodInvocationNode) node, p);
+        case OBJECT_CREATION:
+            return visitor.visitObjectCreation((ObjectCreationNode) node, p);
+        case MEMBER_REFERENCE:
+            return visitor.visitMemberReference((FunctionalInterfaceNode) node, p);
+        case ARRAY_CREATION:
+            return visitor.visitArrayCreation((ArrayCreationNode) node, p);
+        // Type, package and class names
+        case ARRAY_TYPE:
+            return visitor.visitArrayType((ArrayTypeNode) node, p);
+        case PRIMITIVE_TYPE:
+            return visitor.visitPrimitiveType((PrimitiveTypeNode) node, p);
+        case CLASS_NAME:
+            return visitor.visitClassName((ClassNameNode) node, p);
+        case PACKAGE_NAME:
+            return visitor.visitPackageName((PackageNameNode) node, p);
+        // Parameterized types
+        case PARAMETERIZED_TYPE:
+            return visitor.visitParameterizedType((ParameterizedTypeNode) node, p);
+        // Marker nodes
+        case MARKER:
+            return visitor.visitMarker((MarkerNode) node, p);
+        case OTHER:
+            return node.accept(visitor, p);
+        default:
+            throw new AssertionError("Unexpected node kind: " + node.getKind());
+        }
+    }
+}
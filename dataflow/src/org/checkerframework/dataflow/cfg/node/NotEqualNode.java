@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the not equal comparison:
@@ -28,8 +27,8 @@ public class NotEqualNode extends Node {
     protected Node right;
 
     public NotEqualNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.NOT_EQUAL_TO;
+        super(InternalUtils.typeOf(tree), Kind.NOT_EQUAL);
+        assert tree.getKind() == Tree.Kind.NOT_EQUAL_TO;
         this.tree = tree;
         this.left = left;
         this.right = right;
@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the unary 'nullchk' operation (generated by the Java compiler):
@@ -26,8 +25,8 @@ public class NullChkNode extends Node {
         protected Node operand;
 
         public NullChkNode(Tree tree, Node operand) {
-            super(InternalUtils.typeOf(tree));
-            assert tree.getKind() == Kind.OTHER;
+            super(InternalUtils.typeOf(tree), Kind.NULL_CHK);
+            assert tree.getKind() == Tree.Kind.OTHER;
             this.tree = tree;
             this.operand = operand;
         }
@@ -20,7 +20,7 @@ import com.sun.source.tree.Tree;
 public class NullLiteralNode extends ValueLiteralNode {
 
     public NullLiteralNode(LiteralTree t) {
-        super(t);
+        super(t, Kind.NULL_LITERAL);
         assert t.getKind().equals(Tree.Kind.NULL_LITERAL);
     }
 
@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the numerical addition:
@@ -27,9 +26,9 @@ public class NumericalAdditionNode extends Node {
     protected Node right;
 
     public NumericalAdditionNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.PLUS
-                || tree.getKind() == Kind.PLUS_ASSIGNMENT;
+        super(InternalUtils.typeOf(tree), Kind.NUMERICAL_ADDITION);
+        assert tree.getKind() == Tree.Kind.PLUS
+                || tree.getKind() == Tree.Kind.PLUS_ASSIGNMENT;
         this.tree = tree;
         this.left = left;
         this.right = right;
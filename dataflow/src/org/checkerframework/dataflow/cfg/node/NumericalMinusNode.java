@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the unary minus operation:
@@ -27,8 +26,8 @@ public class NumericalMinusNode extends Node {
     protected Node operand;
 
     public NumericalMinusNode(Tree tree, Node operand) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.UNARY_MINUS;
+        super(InternalUtils.typeOf(tree), Kind.NUMERICAL_MINUS);
+        assert tree.getKind() == Tree.Kind.UNARY_MINUS;
         this.tree = tree;
         this.operand = operand;
     }
@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the numerical multiplication:
@@ -28,8 +27,8 @@ public class NumericalMultiplicationNode extends Node {
     protected Node right;
 
     public NumericalMultiplicationNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.MULTIPLY;
+        super(InternalUtils.typeOf(tree), Kind.NUMERICAL_MULTIPLICATION);
+        assert tree.getKind() == Tree.Kind.MULTIPLY;
         this.tree = tree;
         this.left = left;
         this.right = right;
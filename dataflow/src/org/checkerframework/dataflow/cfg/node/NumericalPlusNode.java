@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the unary plus operation:
@@ -27,8 +26,8 @@ public class NumericalPlusNode extends Node {
     protected Node operand;
 
     public NumericalPlusNode(Tree tree, Node operand) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.UNARY_PLUS;
+        super(InternalUtils.typeOf(tree), Kind.NUMERICAL_PLUS);
+        assert tree.getKind() == Tree.Kind.UNARY_PLUS;
         this.tree = tree;
         this.operand = operand;
     }
@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the numerical subtraction:
@@ -28,8 +27,8 @@ public class NumericalSubtractionNode extends Node {
     protected Node right;
 
     public NumericalSubtractionNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.MINUS;
+        super(InternalUtils.typeOf(tree), Kind.NUMERICAL_SUBTRACTION);
+        assert tree.getKind() == Tree.Kind.MINUS;
         this.tree = tree;
         this.left = left;
         this.right = right;
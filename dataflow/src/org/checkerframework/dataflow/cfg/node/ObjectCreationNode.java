@@ -29,7 +29,7 @@ public class ObjectCreationNode extends Node {
     public ObjectCreationNode(NewClassTree tree,
             Node constructor,
             List<Node> arguments) {
-        super(InternalUtils.typeOf(tree));
+        super(InternalUtils.typeOf(tree), Kind.OBJECT_CREATION);
         this.tree = tree;
         this.constructor = constructor;
         this.arguments = arguments;
@@ -41,14 +41,14 @@ public class PackageNameNode extends Node {
     protected final /*@Nullable*/ PackageNameNode parent;
 
     public PackageNameNode(IdentifierTree tree) {
-        super(InternalUtils.typeOf(tree));
+        super(InternalUtils.typeOf(tree), Kind.PACKAGE_NAME);
         this.tree = tree;
         this.element = TreeUtils.elementFromUse(tree);
         this.parent = null;
     }
 
     public PackageNameNode(MemberSelectTree tree, PackageNameNode parent) {
-        super(InternalUtils.typeOf(tree));
+        super(InternalUtils.typeOf(tree), Kind.PACKAGE_NAME);
         this.tree = tree;
         this.element = TreeUtils.elementFromUse(tree);
         this.parent = parent;
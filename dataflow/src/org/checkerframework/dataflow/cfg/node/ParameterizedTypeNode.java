@@ -32,7 +32,7 @@ public class ParameterizedTypeNode extends Node {
     protected Tree tree;
 
     public ParameterizedTypeNode(Tree t) {
-        super(InternalUtils.typeOf(t));
+        super(InternalUtils.typeOf(t), Kind.PARAMETERIZED_TYPE);
         assert t instanceof ParameterizedTypeTree;
         tree = t;
     }
@@ -25,7 +25,7 @@ public class PrimitiveTypeNode extends Node {
     protected final PrimitiveTypeTree tree;
 
     public PrimitiveTypeNode(PrimitiveTypeTree tree) {
-        super(InternalUtils.typeOf(tree));
+        super(InternalUtils.typeOf(tree), Kind.PRIMITIVE_TYPE);
         this.tree = tree;
     }
 
@@ -36,14 +36,14 @@ public class ReturnNode extends Node {
     protected /*@Nullable*/ Node result;
 
     public ReturnNode(ReturnTree t, /*@Nullable*/ Node result, Types types, MethodTree methodTree) {
-        super(types.getNoType(TypeKind.NONE));
+        super(types.getNoType(TypeKind.NONE), Kind.RETURN);
         this.result = result;
         tree = t;
         result.setAssignmentContext(new MethodReturnContext(methodTree));
     }
 
     public ReturnNode(ReturnTree t, /*@Nullable*/ Node result, Types types, LambdaExpressionTree lambda, MethodSymbol methodSymbol) {
-        super(types.getNoType(TypeKind.NONE));
+        super(types.getNoType(TypeKind.NONE), Kind.RETURN);
         this.result = result;
         tree = t;
         result.setAssignmentContext(new LambdaReturnContext(methodSymbol));
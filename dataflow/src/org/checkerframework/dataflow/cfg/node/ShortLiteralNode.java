@@ -26,7 +26,7 @@ import com.sun.source.tree.Tree;
 public class ShortLiteralNode extends ValueLiteralNode {
 
     public ShortLiteralNode(LiteralTree t) {
-        super(t);
+        super(t, Kind.SHORT_LITERAL);
         assert t.getKind().equals(Tree.Kind.INT_LITERAL);
     }
 
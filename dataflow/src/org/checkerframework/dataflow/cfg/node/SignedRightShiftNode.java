@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for bitwise right shift operations with sign extension:
@@ -28,8 +27,8 @@ public class SignedRightShiftNode extends Node {
     protected Node right;
 
     public SignedRightShiftNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.RIGHT_SHIFT;
+        super(InternalUtils.typeOf(tree), Kind.SIGNED_RIGHT_SHIFT);
+        assert tree.getKind() == Tree.Kind.RIGHT_SHIFT;
         this.tree = tree;
         this.left = left;
         this.right = right;
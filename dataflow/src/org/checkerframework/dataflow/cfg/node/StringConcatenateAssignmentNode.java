@@ -6,7 +6,6 @@ import java.util.LinkedList;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for the string concatenation compound assignment:
@@ -25,8 +24,8 @@ public class StringConcatenateAssignmentNode extends Node {
     protected Node right;
 
     public StringConcatenateAssignmentNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.PLUS_ASSIGNMENT;
+        super(InternalUtils.typeOf(tree), Kind.STRING_CONCATENATE_ASSIGNMENT);
+        assert tree.getKind() == Tree.Kind.PLUS_ASSIGNMENT;
         this.tree = tree;
         this.left = left;
         this.right = right;
@@ -8,7 +8,6 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.Tree;
-import com.sun.source.tree.Tree.Kind;
 
 /**
  * A node for string concatenation:
@@ -28,8 +27,8 @@ public class StringConcatenateNode extends Node {
     protected Node right;
 
     public StringConcatenateNode(Tree tree, Node left, Node right) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind() == Kind.PLUS;
+        super(InternalUtils.typeOf(tree), Kind.STRING_CONCATENATE);
+        assert tree.getKind() == Tree.Kind.PLUS;
         this.tree = tree;
         this.left = left;
         this.right = right;
@@ -37,7 +37,7 @@ public class StringConversionNode extends Node {
     // the caller to pass in a TypeMirror instead of creating one
     // through the javax.lang.model.type.Types interface.
     public StringConversionNode(Tree tree, Node operand, TypeMirror type) {
-        super(type);
+        super(type, Kind.STRING_CONVERSION);
         this.tree = tree;
         this.operand = operand;
     }
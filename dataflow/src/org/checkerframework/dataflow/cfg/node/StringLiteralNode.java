@@ -19,7 +19,7 @@ import com.sun.source.tree.Tree;
 public class StringLiteralNode extends ValueLiteralNode {
 
     public StringLiteralNode(LiteralTree t) {
-        super(t);
+        super(t, Kind.STRING_LITERAL);
         assert t.getKind().equals(Tree.Kind.STRING_LITERAL);
     }
 
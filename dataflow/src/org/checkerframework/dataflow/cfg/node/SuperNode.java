@@ -26,7 +26,7 @@ public class SuperNode extends Node {
     protected Tree tree;
 
     public SuperNode(Tree t) {
-        super(InternalUtils.typeOf(t));
+        super(InternalUtils.typeOf(t), Kind.SUPER);
         assert t instanceof IdentifierTree
                 && ((IdentifierTree) t).getName().contentEquals("super");
         tree = t;
@@ -27,7 +27,7 @@ public class SynchronizedNode extends Node {
     protected boolean startOfBlock;
 
     public SynchronizedNode(/*@Nullable*/ Tree tree, Node expression, boolean startOfBlock, Types types) {
-        super(types.getNoType(TypeKind.NONE));
+        super(types.getNoType(TypeKind.NONE), Kind.SYNCHRONIZED);
         this.tree = tree;
         this.expression = expression;
         this.startOfBlock = startOfBlock;
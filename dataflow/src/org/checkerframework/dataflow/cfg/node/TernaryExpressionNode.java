@@ -8,7 +8,7 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
 import org.checkerframework.javacutil.InternalUtils;
 
 import com.sun.source.tree.ConditionalExpressionTree;
-import com.sun.source.tree.Tree.Kind;
+import com.sun.source.tree.Tree;
 
 /**
  * A node for a conditional expression:
@@ -30,8 +30,8 @@ public class TernaryExpressionNode extends Node {
 
     public TernaryExpressionNode(ConditionalExpressionTree tree, Node condition,
             Node thenOperand, Node elseOperand) {
-        super(InternalUtils.typeOf(tree));
-        assert tree.getKind().equals(Kind.CONDITIONAL_EXPRESSION);
+        super(InternalUtils.typeOf(tree), Kind.TERNARY_EXPRESSION);
+        assert tree.getKind().equals(Tree.Kind.CONDITIONAL_EXPRESSION);
         this.tree = tree;
         this.condition = condition;
         this.thenOperand = thenOperand;
@@ -20,8 +20,8 @@ import org.checkerframework.dataflow.util.HashCodeUtils;
  */
 public abstract class ThisLiteralNode extends Node {
 
-    public ThisLiteralNode(TypeMirror type) {
-        super(type);
+    public ThisLiteralNode(TypeMirror type, Kind kind) {
+        super(type, kind);
     }
 
     public String getName() {
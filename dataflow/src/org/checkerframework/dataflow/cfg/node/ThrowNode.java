@@ -29,7 +29,7 @@ public class ThrowNode extends Node {
 
     public ThrowNode(ThrowTree tree,
             Node expression, Types types) {
-        super(types.getNoType(TypeKind.NONE));
+        super(types.getNoType(TypeKind.NONE), Kind.THROW);
         this.tree = tree;
         this.expression = expression;
     }
@@ -24,7 +24,7 @@ public class TypeCastNode extends Node {
     protected Node operand;
 
     public TypeCastNode(Tree tree, Node operand, TypeMirror type) {
-        super(type);
+        super(type, Kind.TYPE_CAST);
         this.tree = tree;
         this.operand = operand;
     }
@@ -38,8 +38,8 @@ public abstract class ValueLiteralNode extends Node {
      */
     abstract public /*@Nullable*/ Object getValue();
 
-    public ValueLiteralNode(LiteralTree tree) {
-        super(InternalUtils.typeOf(tree));
+    public ValueLiteralNode(LiteralTree tree, Kind kind) {
+        super(InternalUtils.typeOf(tree), kind);
         this.tree = tree;
     }
 
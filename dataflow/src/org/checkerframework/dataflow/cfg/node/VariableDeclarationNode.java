@@ -30,7 +30,7 @@ public class VariableDeclarationNode extends Node {
     // TODO: make modifier accessible
 
     public VariableDeclarationNode(VariableTree t) {
-        super(InternalUtils.typeOf(t));
+        super(InternalUtils.typeOf(t), Kind.VARIABLE_DECLARATION);
         tree = t;
         name = tree.getName().toString();
     }
@@ -29,7 +29,7 @@ public class WideningConversionNode extends Node {
     protected Node operand;
 
     public WideningConversionNode(Tree tree, Node operand, TypeMirror type) {
-        super(type);
+        super(type, Kind.WIDENING_CONVERSION);
         assert TypesUtils.isPrimitive(type) : "non-primitive type in widening conversion";
         this.tree = tree;
         this.operand = operand;
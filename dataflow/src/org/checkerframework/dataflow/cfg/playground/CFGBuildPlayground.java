@@ -0,0 +1,111 @@
+package org.checkerframework.dataflow.cfg.playground;
+
+import org.checkerframework.dataflow.cfg.CFGService;
+import org.checkerframework.dataflow.cfg.ControlFlowGraphCache;
+import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGMethod;
+import org.checkerframework.dataflow.cfg.WellKnownTypes;
+import org.checkerframework.javacutil.TreeUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.util.TreePathScanner;
+
+public class CFGBuildPlayground {
+
+    /** The number of lookups per round of the lookup comparison. */
+    protected static final int LOOKUPS = 1000000;
+
+    /**
+     * Print the time it takes to build the control flow graph of every method
+     * in the given files, and the time of a lookup of {@code Throwable}
+     * through {@link WellKnownTypes} and through
+     * {@link Elements#getTypeElement}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: CFGBuildPlayground <file.java>...");
+            System.exit(1);
+        }
+
+        try (CFGService service = new CFGService(Arrays.asList("-encoding", "UTF-8",
+                "-classpath", System.getProperty("java.class.path")))) {
+            CFGService.Batch batch = service.compile(Arrays.asList(args));
+            if (batch.hasErrors()) {
+                System.err.println("ERROR: compilation failed: " + batch.getDiagnostics());
+                System.exit(1);
+            }
+            final ProcessingEnvironment env = batch.getProcessingEnvironment();
+            final List<CompilationUnitTree> roots = new ArrayList<>();
+            final List<CFGMethod> methods = new ArrayList<>();
+            for (final CompilationUnitTree root : batch.getCompilationUnits()) {
+                new TreePathScanner<Void, Void>() {
+                    @Override
+                    public Void visitMethod(MethodTree node, Void p) {
+                        if (node.getBody() != null) {
+                            roots.add(root);
+                            methods.add(new CFGMethod(node,
+                                    TreeUtils.enclosingClass(getCurrentPath())));
+                        }
+                        return super.visitMethod(node, p);
+                    }
+                }.scan(root, null);
+            }
+
+            // The first rounds warm up the JIT; the fastest round is reported.
+            ControlFlowGraphCache cache = ControlFlowGraphCache.instance(env);
+            long buildNanos = Long.MAX_VALUE;
+            for (int round = 0; round < 10; round++) {
+                cache.clear();
+                long start = System.nanoTime();
+                for (int i = 0; i < methods.size(); i++) {
+                    cache.getOrBuild(roots.get(i), env, methods.get(i), false, false, false);
+                }
+                buildNanos = Math.min(buildNanos, System.nanoTime() - start);
+            }
+
+            Elements elements = env.getElementUtils();
+            long[] lookupNanos = { Long.MAX_VALUE, Long.MAX_VALUE };
+            int check = 0;
+            for (int round = 0; round < 10; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++) {
+                    check += lookUpCached(env).hashCode() & 1;
+                }
+                lookupNanos[0] = Math.min(lookupNanos[0], System.nanoTime() - start);
+                start = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++) {
+                    check += lookUpByName(elements).hashCode() & 1;
+                }
+                lookupNanos[1] = Math.min(lookupNanos[1], System.nanoTime() - start);
+            }
+
+            System.out.printf("build %d methods: %.1f ms%n", methods.size(), buildNanos / 1e6);
+            System.out.printf("Throwable through WellKnownTypes: %6.1f ns/lookup (checksum %d)%n",
+                    (double) lookupNanos[0] / LOOKUPS, check);
+            System.out.printf("Throwable through getTypeElement: %6.1f ns/lookup%n",
+                    (double) lookupNanos[1] / LOOKUPS);
+        }
+    }
+
+    /**
+     * Look up {@code Throwable} through the {@link WellKnownTypes} of the
+     * context, which a {@code CFGBuilder} obtains once per graph.
+     */
+    protected static TypeMirror lookUpCached(ProcessingEnvironment env) {
+        return WellKnownTypes.instance(env).getThrowableType();
+    }
+
+    /** Look up {@code Throwable} by name. */
+    protected static TypeMirror lookUpByName(Elements elements) {
+        return elements.getTypeElement("java.lang.Throwable").asType();
+    }
+}
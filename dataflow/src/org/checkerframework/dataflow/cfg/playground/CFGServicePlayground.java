@@ -0,0 +1,155 @@
+package org.checkerframework.dataflow.cfg.playground;
+
+import org.checkerframework.dataflow.cfg.CFGServer;
+import org.checkerframework.dataflow.cfg.CFGService;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CFGServicePlayground {
+
+    /** The number of client threads of the socket run. */
+    protected static final int CLIENTS = 4;
+
+    /**
+     * Print the throughput of building the control flow graphs of all methods
+     * in the given files, one file per request: with a new {@link CFGService}
+     * per file, as a one-shot tool would, with one warm service, and through
+     * a {@link CFGServer} with several clients.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: CFGServicePlayground <file.java>...");
+            System.exit(1);
+        }
+        final List<String> files = Arrays.asList(args);
+        List<String> options = Arrays.asList("-encoding", "UTF-8",
+                "-classpath", System.getProperty("java.class.path"));
+
+        // warm up the JIT so that the first mode is not penalized
+        try (CFGService service = new CFGService(options)) {
+            build(service, files);
+        }
+
+        long start = System.nanoTime();
+        int graphs = 0;
+        for (String file : files) {
+            try (CFGService service = new CFGService(options)) {
+                graphs += build(service, Collections.singletonList(file));
+            }
+        }
+        report("one-shot", files.size(), graphs, System.nanoTime() - start);
+
+        try (CFGService service = new CFGService(options)) {
+            start = System.nanoTime();
+            graphs = build(service, files);
+            report("warm service", files.size(), graphs, System.nanoTime() - start);
+        }
+
+        try (CFGService service = new CFGService(options);
+                final CFGServer server = new CFGServer(service, 0, CLIENTS)) {
+            Thread serving = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        server.serve();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            serving.setDaemon(true);
+            serving.start();
+
+            final AtomicInteger next = new AtomicInteger();
+            final AtomicInteger received = new AtomicInteger();
+            List<Thread> clients = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.add(new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            received.addAndGet(request(server.getPort(), files, next));
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                });
+            }
+            start = System.nanoTime();
+            for (Thread client : clients) {
+                client.start();
+            }
+            for (Thread client : clients) {
+                client.join();
+            }
+            report("server, " + CLIENTS + " clients", files.size(), received.get(),
+                    System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Build the graphs of all methods, one file per batch.
+     *
+     * @return the number of graphs
+     */
+    protected static int build(CFGService service, List<String> files) throws IOException {
+        int graphs = 0;
+        for (String file : files) {
+            CFGService.Batch batch = service.compile(Collections.singletonList(file));
+            if (!batch.getErrorsAffecting((String) null, null).isEmpty()) {
+                throw new IllegalArgumentException("compilation of " + file + " failed: " + batch.getDiagnostics());
+            }
+            graphs += batch.getCFGs(null, null).size();
+        }
+        return graphs;
+    }
+
+    /**
+     * Request the files of {@code files} from the server, taking the next
+     * index from {@code next}, until all files have been requested.
+     *
+     * @return the number of graphs received
+     */
+    protected static int request(int port, List<String> files, AtomicInteger next)
+            throws IOException {
+        int graphs = 0;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(
+                    socket.getOutputStream(), StandardCharsets.UTF_8));
+            int i;
+            while ((i = next.getAndIncrement()) < files.size()) {
+                out.write(files.get(i) + "\n");
+                out.flush();
+                String line;
+                while ((line = in.readLine()) != null && !line.startsWith("OK\t")) {
+                    if (line.startsWith("ERROR\t")) {
+                        throw new IllegalArgumentException(files.get(i) + ": " + line);
+                    }
+                    graphs++;
+                }
+            }
+        }
+        return graphs;
+    }
+
+    protected static void report(String mode, int files, int graphs, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%-20s %6.2f s %8.1f files/s %9.1f graphs/s (%d graphs)%n",
+                mode, seconds, files / seconds, graphs / seconds, graphs);
+    }
+}
@@ -0,0 +1,77 @@
+package org.checkerframework.dataflow.cfg.playground;
+
+import org.checkerframework.dataflow.analysis.ForwardAnalysisImpl;
+import org.checkerframework.dataflow.cfg.CFGService;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.constantpropagation.Constant;
+import org.checkerframework.dataflow.constantpropagation.ConstantPropagationStore;
+import org.checkerframework.dataflow.constantpropagation.ConstantPropagationTransfer;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+import com.sun.management.ThreadMXBean;
+
+public class ConstantStorePlayground {
+
+    /**
+     * Run constant propagation on the control flow graph of every method in
+     * the given files and print the number of bytes it allocated, the number
+     * of garbage collections during the run and the time it took.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: ConstantStorePlayground <file.java>...");
+            System.exit(1);
+        }
+
+        try (CFGService service = new CFGService(Arrays.asList("-encoding", "UTF-8",
+                "-classpath", System.getProperty("java.class.path")))) {
+            CFGService.Batch batch = service.compile(Arrays.asList(args));
+            if (batch.hasErrors()) {
+                System.err.println("ERROR: compilation failed: " + batch.getDiagnostics());
+                System.exit(1);
+            }
+            List<ControlFlowGraph> cfgs = batch.getAllMethodCFGs();
+
+            ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long threadId = Thread.currentThread().getId();
+            // The first rounds warm up the JIT; the fastest round is reported.
+            long bytes = 0;
+            long collections = 0;
+            long nanos = Long.MAX_VALUE;
+            for (int round = 0; round < 10; round++) {
+                long startBytes = threads.getThreadAllocatedBytes(threadId);
+                long startCollections = countCollections();
+                long start = System.nanoTime();
+                for (ControlFlowGraph cfg : cfgs) {
+                    new ForwardAnalysisImpl<Constant, ConstantPropagationStore,
+                            ConstantPropagationTransfer>(new ConstantPropagationTransfer())
+                        .performAnalysis(cfg);
+                }
+                long time = System.nanoTime() - start;
+                if (time < nanos) {
+                    nanos = time;
+                    bytes = threads.getThreadAllocatedBytes(threadId) - startBytes;
+                    collections = countCollections() - startCollections;
+                }
+            }
+
+            System.out.printf("constant propagation of %d methods: %.1f ms, %.1f MB allocated"
+                    + " (%.0f bytes/method), %d collections%n", cfgs.size(), nanos / 1e6,
+                    bytes / 1e6, (double) bytes / cfgs.size(), collections);
+        }
+    }
+
+    /** @return the number of garbage collections so far */
+    protected static long countCollections() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+}
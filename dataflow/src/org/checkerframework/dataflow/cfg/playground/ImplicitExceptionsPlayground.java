@@ -0,0 +1,130 @@
+package org.checkerframework.dataflow.cfg.playground;
+
+import org.checkerframework.dataflow.cfg.CFGService;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.ControlFlowGraphCache;
+import org.checkerframework.dataflow.cfg.ControlFlowGraphNumbering;
+import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGMethod;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.block.ConditionalBlock;
+import org.checkerframework.dataflow.cfg.block.ExceptionBlock;
+import org.checkerframework.dataflow.cfg.block.SingleSuccessorBlock;
+import org.checkerframework.javacutil.TreeUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.util.TreePathScanner;
+
+public class ImplicitExceptionsPlayground {
+
+    /**
+     * Print the number of blocks and edges of the control flow graph of every
+     * method in the given files, once with implicit exception edges and once
+     * with {@code collapseImplicitExceptions}, together with the time it took
+     * to build the graphs of each mode.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: ImplicitExceptionsPlayground <file.java>...");
+            System.exit(1);
+        }
+
+        try (CFGService service = new CFGService(Arrays.asList(
+                "-classpath", System.getProperty("java.class.path")))) {
+            CFGService.Batch batch = service.compile(Arrays.asList(args));
+            if (batch.hasErrors()) {
+                System.err.println("ERROR: compilation failed: " + batch.getDiagnostics());
+                System.exit(1);
+            }
+            final ProcessingEnvironment env = batch.getProcessingEnvironment();
+            final List<CompilationUnitTree> roots = new ArrayList<>();
+            final List<CFGMethod> methods = new ArrayList<>();
+            for (final CompilationUnitTree root : batch.getCompilationUnits()) {
+                new TreePathScanner<Void, Void>() {
+                    @Override
+                    public Void visitMethod(MethodTree node, Void p) {
+                        if (node.getBody() != null) {
+                            roots.add(root);
+                            methods.add(new CFGMethod(node,
+                                    TreeUtils.enclosingClass(getCurrentPath())));
+                        }
+                        return super.visitMethod(node, p);
+                    }
+                }.scan(root, null);
+            }
+
+            ControlFlowGraphCache cache = ControlFlowGraphCache.instance(env);
+            long[] nanos = new long[2];
+            for (int mode = 0; mode < 2; mode++) {
+                // build everything once before timing, so that the JIT has
+                // warmed up for both modes
+                for (int round = 0; round < 2; round++) {
+                    cache.clear();
+                    long start = System.nanoTime();
+                    for (int i = 0; i < methods.size(); i++) {
+                        cache.getOrBuild(roots.get(i), env, methods.get(i),
+                                false, false, mode == 1);
+                    }
+                    nanos[mode] = System.nanoTime() - start;
+                }
+            }
+
+            System.out.println("counts with implicit exceptions -> with collapseImplicitExceptions");
+            System.out.printf("%-40s %14s %14s%n", "method", "blocks", "edges");
+            int[] totals = new int[4];
+            for (int i = 0; i < methods.size(); i++) {
+                CFGMethod method = methods.get(i);
+                int[] counts = new int[4];
+                for (int mode = 0; mode < 2; mode++) {
+                    ControlFlowGraph cfg = cache.getOrBuild(roots.get(i), env, method,
+                            false, false, mode == 1);
+                    ControlFlowGraphNumbering numbering = new ControlFlowGraphNumbering(cfg);
+                    counts[mode] = numbering.getBlockCount();
+                    for (int b = 0; b < numbering.getBlockCount(); b++) {
+                        counts[2 + mode] += countEdges(numbering.getBlock(b));
+                    }
+                }
+                ClassTree clazz = method.getClassTree();
+                String name = (clazz == null ? "" : clazz.getSimpleName() + ".")
+                        + method.getMethod().getName();
+                System.out.printf("%-40s %6d -> %5d %6d -> %5d%n", name,
+                        counts[0], counts[1], counts[2], counts[3]);
+                for (int k = 0; k < 4; k++) {
+                    totals[k] += counts[k];
+                }
+            }
+            System.out.printf("%-40s %6d -> %5d %6d -> %5d%n", "total (" + methods.size()
+                    + " methods)", totals[0], totals[1], totals[2], totals[3]);
+            System.out.printf("build time: %.1f ms -> %.1f ms%n",
+                    nanos[0] / 1e6, nanos[1] / 1e6);
+        }
+    }
+
+    /** @return the number of edges that leave {@code block} */
+    protected static int countEdges(Block block) {
+        int edges = 0;
+        if (block instanceof SingleSuccessorBlock
+                && ((SingleSuccessorBlock) block).getSuccessor() != null) {
+            edges++;
+        }
+        if (block instanceof ConditionalBlock) {
+            edges += 2;
+        }
+        if (block instanceof ExceptionBlock) {
+            for (Set<Block> successors
+                    : ((ExceptionBlock) block).getExceptionalSuccessors().values()) {
+                edges += successors.size();
+            }
+        }
+        return edges;
+    }
+}
@@ -0,0 +1,138 @@
+package org.checkerframework.dataflow.cfg.playground;
+
+import org.checkerframework.dataflow.analysis.ForwardAnalysisImpl;
+import org.checkerframework.dataflow.cfg.CFGService;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.ControlFlowGraphNumbering;
+import org.checkerframework.dataflow.cfg.node.AbstractNodeVisitor;
+import org.checkerframework.dataflow.cfg.node.AssignmentNode;
+import org.checkerframework.dataflow.cfg.node.LocalVariableNode;
+import org.checkerframework.dataflow.cfg.node.MethodInvocationNode;
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.dataflow.cfg.node.NodeKindDispatcher;
+import org.checkerframework.dataflow.constantpropagation.Constant;
+import org.checkerframework.dataflow.constantpropagation.ConstantPropagationStore;
+import org.checkerframework.dataflow.constantpropagation.ConstantPropagationTransfer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class NodeDispatchPlayground {
+
+    /** The number of timed passes over all nodes per round and mode. */
+    protected static final int PASSES = 200;
+
+    /**
+     * Print the time it takes to dispatch every node of the control flow
+     * graphs of all methods in the given files to a visitor, once with
+     * {@code node.accept} and once with {@link NodeKindDispatcher}, and the
+     * time it takes to run constant propagation on all of them.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: NodeDispatchPlayground <file.java>...");
+            System.exit(1);
+        }
+
+        List<ControlFlowGraph> cfgs = new ArrayList<>();
+        List<Node> nodes = new ArrayList<>();
+        try (CFGService service = new CFGService(Arrays.asList("-encoding", "UTF-8",
+                "-classpath", System.getProperty("java.class.path")))) {
+            CFGService.Batch batch = service.compile(Arrays.asList(args));
+            if (batch.hasErrors()) {
+                System.err.println("ERROR: compilation failed: " + batch.getDiagnostics());
+                System.exit(1);
+            }
+            cfgs.addAll(batch.getAllMethodCFGs());
+            for (ControlFlowGraph cfg : cfgs) {
+                ControlFlowGraphNumbering numbering = new ControlFlowGraphNumbering(cfg);
+                for (int n = 0; n < numbering.getNodeCount(); n++) {
+                    nodes.add(numbering.getNode(n));
+                }
+            }
+        }
+        Node[] all = nodes.toArray(new Node[nodes.size()]);
+        CountingVisitor visitor = new CountingVisitor();
+
+        // The first rounds warm up the JIT; the last one is reported.
+        long[] nanos = new long[2];
+        long check = 0;
+        for (int round = 0; round < 5; round++) {
+            for (int mode = 0; mode < 2; mode++) {
+                long start = System.nanoTime();
+                check += mode == 0 ? visitByAccept(all, visitor) : visitByDispatch(all, visitor);
+                nanos[mode] = System.nanoTime() - start;
+            }
+        }
+
+        long visits = (long) all.length * PASSES;
+        System.out.printf("%d nodes, %d passes (checksum %d)%n", all.length, PASSES, check);
+        System.out.printf("accept:   %8.1f ms %6.2f ns/node%n",
+                nanos[0] / 1e6, (double) nanos[0] / visits);
+        System.out.printf("dispatch: %8.1f ms %6.2f ns/node%n",
+                nanos[1] / 1e6, (double) nanos[1] / visits);
+
+        // The transfer function of an analysis is called through
+        // AbstractAnalysis.callTransferFunction.
+        long analysisNanos = 0;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (ControlFlowGraph cfg : cfgs) {
+                new ForwardAnalysisImpl<Constant, ConstantPropagationStore,
+                        ConstantPropagationTransfer>(new ConstantPropagationTransfer())
+                    .performAnalysis(cfg);
+            }
+            analysisNanos = System.nanoTime() - start;
+        }
+        System.out.printf("constant propagation of %d methods: %.1f ms%n",
+                cfgs.size(), analysisNanos / 1e6);
+    }
+
+    protected static long visitByAccept(Node[] nodes, CountingVisitor visitor) {
+        long sum = 0;
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (Node node : nodes) {
+                sum += node.accept(visitor, null);
+            }
+        }
+        return sum;
+    }
+
+    protected static long visitByDispatch(Node[] nodes, CountingVisitor visitor) {
+        long sum = 0;
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (Node node : nodes) {
+                sum += NodeKindDispatcher.dispatch(node, visitor, null);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * A visitor that does a little work per node, and different work for the
+     * kinds of nodes that are the most frequent in transfer functions.
+     */
+    protected static class CountingVisitor extends AbstractNodeVisitor<Integer, Void> {
+        @Override
+        public Integer visitNode(Node n, Void p) {
+            return 1;
+        }
+
+        @Override
+        public Integer visitLocalVariable(LocalVariableNode n, Void p) {
+            return n.getName().length();
+        }
+
+        @Override
+        public Integer visitAssignment(AssignmentNode n, Void p) {
+            return 3;
+        }
+
+        @Override
+        public Integer visitMethodInvocation(MethodInvocationNode n, Void p) {
+            return n.getArguments().size();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.checkerframework.dataflow.cfg.playground;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.dataflow.cfg.CFGService;
+import org.checkerframework.javacutil.ElementUtils;
+import org.checkerframework.javacutil.TreeUtils;
+import org.checkerframework.javacutil.TypeHierarchyCache;
+import org.checkerframework.javacutil.TypesUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.TreeScanner;
+
+public class TypeHierarchyPlayground {
+
+    /** The number of passes over all types per round and mode. */
+    protected static final int PASSES = 20;
+
+    /**
+     * Print the time it takes to answer the queries of
+     * {@link TypeHierarchyCache} for the classes declared in the given files
+     * and for the types of their fields, methods and parameters, once with
+     * the static methods of {@link ElementUtils} and {@link TypesUtils} and
+     * once with the cache.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: TypeHierarchyPlayground <file.java>...");
+            System.exit(1);
+        }
+
+        try (CFGService service = new CFGService(Arrays.asList("-encoding", "UTF-8",
+                "-classpath", System.getProperty("java.class.path")))) {
+            CFGService.Batch batch = service.compile(Arrays.asList(args));
+            if (batch.hasErrors()) {
+                System.err.println("ERROR: compilation failed: " + batch.getDiagnostics());
+                System.exit(1);
+            }
+            ProcessingEnvironment env = batch.getProcessingEnvironment();
+            final Set<TypeElement> classes = new LinkedHashSet<>();
+            for (CompilationUnitTree root : batch.getCompilationUnits()) {
+                new TreeScanner<Void, Void>() {
+                    @Override
+                    public Void visitClass(ClassTree node, Void p) {
+                        TypeElement element = TreeUtils.elementFromDeclaration(node);
+                        if (element != null) {
+                            classes.add(element);
+                        }
+                        return super.visitClass(node, p);
+                    }
+                }.scan(root, null);
+            }
+            List<TypeMirror> types = new ArrayList<>();
+            for (TypeElement clazz : classes) {
+                types.add(clazz.asType());
+                for (Element member : clazz.getEnclosedElements()) {
+                    types.add(member.asType());
+                }
+                for (ExecutableElement method
+                        : ElementFilter.methodsIn(clazz.getEnclosedElements())) {
+                    types.add(method.getReturnType());
+                    for (VariableElement parameter : method.getParameters()) {
+                        types.add(parameter.asType());
+                    }
+                }
+            }
+            TypeElement[] classArray = classes.toArray(new TypeElement[classes.size()]);
+            TypeMirror[] typeArray = types.toArray(new TypeMirror[types.size()]);
+
+            Elements elements = env.getElementUtils();
+            TypeHierarchyCache cache = TypeHierarchyCache.instance(env);
+            // The first rounds warm up the JIT and the cache; the fastest
+            // round is reported.
+            long[] nanos = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE };
+            long check = 0;
+            for (int round = 0; round < 10; round++) {
+                long start = System.nanoTime();
+                check += queryElements(elements, null, classArray);
+                nanos[0] = Math.min(nanos[0], System.nanoTime() - start);
+                start = System.nanoTime();
+                check += queryElements(elements, cache, classArray);
+                nanos[1] = Math.min(nanos[1], System.nanoTime() - start);
+                start = System.nanoTime();
+                check += queryTypes(null, typeArray);
+                nanos[2] = Math.min(nanos[2], System.nanoTime() - start);
+                start = System.nanoTime();
+                check += queryTypes(cache, typeArray);
+                nanos[3] = Math.min(nanos[3], System.nanoTime() - start);
+            }
+
+            long elementQueries = 3L * classArray.length * PASSES;
+            long typeQueries = 2L * typeArray.length * PASSES;
+            System.out.printf("%d classes, %d types, %d passes (checksum %d)%n",
+                    classArray.length, typeArray.length, PASSES, check);
+            System.out.printf("supertypes, fields, methods: %9.1f ns/query direct, %7.1f ns/query cached%n",
+                    (double) nanos[0] / elementQueries, (double) nanos[1] / elementQueries);
+            System.out.printf("isBoxedPrimitive, isThrowable: %7.1f ns/query direct, %7.1f ns/query cached%n",
+                    (double) nanos[2] / typeQueries, (double) nanos[3] / typeQueries);
+        }
+    }
+
+    /**
+     * Ask for the supertypes, fields and methods of every class, through
+     * {@code cache} or directly if it is {@code null}.
+     */
+    protected static long queryElements(Elements elements,
+            /*@Nullable*/ TypeHierarchyCache cache, TypeElement[] classes) {
+        long sum = 0;
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (TypeElement clazz : classes) {
+                if (cache == null) {
+                    sum += ElementUtils.getSuperTypes(elements, clazz).size();
+                    sum += ElementUtils.getAllFieldsIn(elements, clazz).size();
+                    sum += ElementUtils.getAllMethodsIn(elements, clazz).size();
+                } else {
+                    sum += cache.getSuperTypes(clazz).size();
+                    sum += cache.getAllFieldsIn(clazz).size();
+                    sum += cache.getAllMethodsIn(clazz).size();
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Ask whether every type is a boxed primitive and whether it is a
+     * throwable, through {@code cache} or directly if it is {@code null}.
+     */
+    protected static long queryTypes(/*@Nullable*/ TypeHierarchyCache cache,
+            TypeMirror[] types) {
+        long sum = 0;
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (TypeMirror type : types) {
+                boolean boxed = cache == null
+                    ? TypesUtils.isBoxedPrimitive(type) : cache.isBoxedPrimitive(type);
+                boolean throwable = cache == null
+                    ? TypesUtils.isThrowable(type) : cache.isThrowable(type);
+                sum += (boxed ? 1 : 0) + (throwable ? 2 : 0);
+            }
+        }
+        return sum;
+    }
+}
@@ -8,21 +8,46 @@ import java.util.Objects;
 
 import org.checkerframework.dataflow.analysis.AbstractValue;
 
+/**
+ * An abstract value of the constant propagation lattice. Abstract values are
+ * immutable, so {@link #TOP}, {@link #BOTTOM} and the constants of small
+ * integers returned by {@link #of(int)} are shared, and {@link #copy()} and
+ * {@link #leastUpperBound(Constant)} never allocate.
+ */
 public class Constant implements AbstractValue<Constant> {
 
     /** What kind of abstract value is this? */
-    protected Type type;
+    protected final Type type;
 
     /** The value of this abstract value (or null) */
-    protected /*@Nullable*/ Integer value;
+    protected final /*@Nullable*/ Integer value;
 
     public enum Type {
         CONSTANT, TOP, BOTTOM,
     }
 
+    /** The abstract value that stands for any value. */
+    public static final Constant TOP = new Constant(Type.TOP);
+
+    /** The abstract value that stands for no value. */
+    public static final Constant BOTTOM = new Constant(Type.BOTTOM);
+
+    /** The smallest and largest value whose constant is shared. */
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 127;
+
+    private static final Constant[] cache = new Constant[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < cache.length; i++) {
+            cache[i] = new Constant(Integer.valueOf(i + CACHE_LOW));
+        }
+    }
+
     public Constant(Type type) {
         assert !type.equals(Type.CONSTANT);
         this.type = type;
+        this.value = null;
     }
 
     public Constant(Integer value) {
@@ -30,6 +55,17 @@ public class Constant implements AbstractValue<Constant> {
         this.value = value;
     }
 
+    /**
+     * @return the abstract value of the constant {@code value}, which is
+     *         shared for small values
+     */
+    public static Constant of(int value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return cache[value - CACHE_LOW];
+        }
+        return new Constant(Integer.valueOf(value));
+    }
+
     public boolean isTop() {
         return type.equals(Type.TOP);
     }
@@ -47,28 +83,26 @@ public class Constant implements AbstractValue<Constant> {
         return value;
     }
 
+    /** Abstract values are immutable, so the copy is {@code this}. */
     public Constant copy() {
-        if (isConstant()) {
-            return new Constant(value);
-        }
-        return new Constant(type);
+        return this;
     }
 
     @Override
     public Constant leastUpperBound(Constant other) {
         if (other.isBottom()) {
-            return this.copy();
+            return this;
         }
         if (this.isBottom()) {
-            return other.copy();
+            return other;
         }
         if (other.isTop() || this.isTop()) {
-            return new Constant(Type.TOP);
+            return TOP;
         }
         if (other.getValue().equals(getValue())) {
-            return this.copy();
+            return this;
         }
-        return new Constant(Type.TOP);
+        return TOP;
     }
 
     @Override
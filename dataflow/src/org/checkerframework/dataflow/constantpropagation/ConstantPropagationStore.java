@@ -1,91 +1,233 @@
 package org.checkerframework.dataflow.constantpropagation;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import org.checkerframework.dataflow.analysis.FlowExpressions;
+import org.checkerframework.dataflow.analysis.FlowExpressions.LocalVariable;
+import org.checkerframework.dataflow.analysis.ReceiverInterner;
 import org.checkerframework.dataflow.analysis.Store;
 import org.checkerframework.dataflow.cfg.CFGVisualizer;
 import org.checkerframework.dataflow.cfg.node.IntegerLiteralNode;
 import org.checkerframework.dataflow.cfg.node.LocalVariableNode;
 import org.checkerframework.dataflow.cfg.node.Node;
-import org.checkerframework.dataflow.constantpropagation.Constant.Type;
 
+/**
+ * The store of the constant propagation analysis. Each local variable, as
+ * identified by its {@link LocalVariable} receiver, is given a slot the
+ * first time information about it is recorded, and the
+ * store keeps the abstract value of every slot in two parallel primitive
+ * arrays: the kind of the value in {@link #states} and the constant itself
+ * in {@link #values}. Copying and merging stores therefore copies arrays
+ * rather than hash maps of boxed values.
+ *
+ * <p>
+ *
+ * The value of an integer literal is the literal itself, so it is not
+ * stored. The slots are shared by a store and all stores that are copied or
+ * merged from it. The transfer function looks variables up with the
+ * canonical receivers of the analysis's {@link ReceiverInterner}, so that
+ * finding a slot does not compute a receiver or compare names.
+ */
 public class ConstantPropagationStore implements
         Store<ConstantPropagationStore> {
 
-    /** Information about variables gathered so far. */
-    Map<Node, Constant> contents;
+    /** No information has been recorded for the slot. */
+    protected static final byte ABSENT = 0;
+    protected static final byte BOTTOM = 1;
+    protected static final byte TOP = 2;
+    protected static final byte CONSTANT = 3;
+
+    /** The slots of the local variables, shared between related stores. */
+    protected final Slots slots;
+
+    /** The kind of the abstract value of each slot. */
+    protected byte[] states;
+
+    /** The constant of each slot whose state is {@link #CONSTANT}. */
+    protected int[] values;
+
+    /** Assigns consecutive slots to local variables. */
+    protected static class Slots {
+        protected final Map<LocalVariable, Integer> slotsByVariable = new HashMap<>();
+
+        /** The variable that the slot of each index was created for. */
+        protected final List<LocalVariable> variables = new ArrayList<>();
+
+        /** @return the slot of {@code var}, or -1 if it has none yet */
+        protected int lookUp(LocalVariable var) {
+            Integer slot = slotsByVariable.get(var);
+            return slot == null ? -1 : slot;
+        }
+
+        /** @return the slot of {@code var}, creating it if necessary */
+        protected int getOrCreate(LocalVariable var) {
+            Integer slot = slotsByVariable.get(var);
+            if (slot == null) {
+                slot = variables.size();
+                variables.add(var);
+                slotsByVariable.put(var, slot);
+            }
+            return slot;
+        }
+
+        protected int size() {
+            return variables.size();
+        }
+    }
 
     public ConstantPropagationStore() {
-        contents = new HashMap<>();
+        this(new Slots(), new byte[8], new int[8]);
     }
 
-    protected ConstantPropagationStore(Map<Node, Constant> contents) {
-        this.contents = contents;
+    protected ConstantPropagationStore(Slots slots, byte[] states, int[] values) {
+        this.slots = slots;
+        this.states = states;
+        this.values = values;
     }
 
     public Constant getInformation(Node n) {
-        if (contents.containsKey(n)) {
-            return contents.get(n);
+        if (n instanceof IntegerLiteralNode) {
+            return Constant.of(((IntegerLiteralNode) n).getValue());
+        }
+        if (n instanceof LocalVariableNode) {
+            return getInformation(new LocalVariable((LocalVariableNode) n));
         }
-        return new Constant(Type.TOP);
+        return Constant.TOP;
     }
 
-    public void mergeInformation(Node n, Constant val) {
-        Constant value;
-        if (contents.containsKey(n)) {
-            value = val.leastUpperBound(contents.get(n));
-        } else {
-            value = val;
+    public Constant getInformation(LocalVariable var) {
+        int slot = slots.lookUp(var);
+        if (slot >= 0 && getState(slot) != ABSENT) {
+            return toConstant(states[slot], values[slot]);
         }
+        return Constant.TOP;
+    }
+
+    public void mergeInformation(Node n, Constant val) {
         // TODO: remove (only two nodes supported atm)
         assert n instanceof IntegerLiteralNode
                 || n instanceof LocalVariableNode;
-        contents.put(n, value);
+        if (n instanceof LocalVariableNode) {
+            mergeInformation(new LocalVariable((LocalVariableNode) n), val);
+        }
+    }
+
+    public void mergeInformation(LocalVariable var, Constant val) {
+        int slot = slots.getOrCreate(var);
+        if (getState(slot) != ABSENT) {
+            val = val.leastUpperBound(toConstant(states[slot], values[slot]));
+        }
+        set(slot, val);
     }
 
     public void setInformation(Node n, Constant val) {
         // TODO: remove (only two nodes supported atm)
         assert n instanceof IntegerLiteralNode
                 || n instanceof LocalVariableNode;
-        contents.put(n, val);
+        if (n instanceof LocalVariableNode) {
+            setInformation(new LocalVariable((LocalVariableNode) n), val);
+        }
+    }
+
+    public void setInformation(LocalVariable var, Constant val) {
+        set(slots.getOrCreate(var), val);
+    }
+
+    /** @return the state of {@code slot}, which may be beyond the arrays */
+    protected byte getState(int slot) {
+        return slot < states.length ? states[slot] : ABSENT;
+    }
+
+    protected void set(int slot, Constant val) {
+        if (slot >= states.length) {
+            int length = Math.max(slot + 1, states.length * 2);
+            states = Arrays.copyOf(states, length);
+            values = Arrays.copyOf(values, length);
+        }
+        if (val.isConstant()) {
+            states[slot] = CONSTANT;
+            values[slot] = val.getValue();
+        } else {
+            states[slot] = val.isTop() ? TOP : BOTTOM;
+            values[slot] = 0;
+        }
+    }
+
+    protected static Constant toConstant(byte state, int value) {
+        switch (state) {
+        case CONSTANT:
+            return Constant.of(value);
+        case BOTTOM:
+            return Constant.BOTTOM;
+        default:
+            return Constant.TOP;
+        }
     }
 
     @Override
     public ConstantPropagationStore copy() {
-        return new ConstantPropagationStore(new HashMap<>(contents));
+        return new ConstantPropagationStore(slots, states.clone(), values.clone());
+    }
+
+    /**
+     * @return a store with the information of {@code other} that uses the
+     *         slots of this store; {@code other} itself if it already does
+     */
+    protected ConstantPropagationStore withOurSlots(ConstantPropagationStore other) {
+        if (other.slots == slots) {
+            return other;
+        }
+        ConstantPropagationStore result = new ConstantPropagationStore(
+                slots, new byte[states.length], new int[states.length]);
+        for (int i = 0; i < other.slots.size(); i++) {
+            byte state = other.getState(i);
+            if (state != ABSENT) {
+                result.set(slots.getOrCreate(other.slots.variables.get(i)),
+                        toConstant(state, other.values[i]));
+            }
+        }
+        return result;
     }
 
     @Override
     public ConstantPropagationStore leastUpperBound(
             ConstantPropagationStore other) {
-        Map<Node, Constant> newContents = new HashMap<>();
-
-        // go through all of the information of the other class
-        for (Entry<Node, Constant> e : other.contents.entrySet()) {
-            Node n = e.getKey();
-            Constant otherVal = e.getValue();
-            if (contents.containsKey(n)) {
-                // merge if both contain information about a variable
-                newContents.put(n, otherVal.leastUpperBound(contents.get(n)));
-            } else {
-                // add new information
-                newContents.put(n, otherVal);
-            }
-        }
+        other = withOurSlots(other);
+        int length = Math.max(states.length, other.states.length);
+        byte[] newStates = new byte[length];
+        int[] newValues = new int[length];
 
-        for (Entry<Node, Constant> e : contents.entrySet()) {
-            Node n = e.getKey();
-            Constant thisVal = e.getValue();
-            if (!other.contents.containsKey(n)) {
+        for (int i = 0; i < length; i++) {
+            byte thisState = getState(i);
+            byte otherState = other.getState(i);
+            if (otherState == ABSENT || otherState == BOTTOM) {
+                // nothing to merge; keep the information of this store
+                newStates[i] = thisState == ABSENT ? otherState : thisState;
+                newValues[i] = thisState == CONSTANT ? values[i] : 0;
+            } else if (thisState == ABSENT || thisState == BOTTOM) {
                 // add new information
-                newContents.put(n, thisVal);
+                newStates[i] = otherState;
+                newValues[i] = otherState == CONSTANT ? other.values[i] : 0;
+            } else if (thisState == CONSTANT && otherState == CONSTANT
+                    && values[i] == other.values[i]) {
+                newStates[i] = CONSTANT;
+                newValues[i] = values[i];
+            } else {
+                newStates[i] = TOP;
             }
         }
 
-        return new ConstantPropagationStore(newContents);
+        return new ConstantPropagationStore(slots, newStates, newValues);
+    }
+
+    /** @return whether {@code slot} holds information; bottom is none */
+    private boolean hasInformation(int slot) {
+        byte state = getState(slot);
+        return state != ABSENT && state != BOTTOM;
     }
 
     @Override
@@ -96,32 +238,15 @@ public class ConstantPropagationStore implements
         if (!(o instanceof ConstantPropagationStore)) {
             return false;
         }
-        ConstantPropagationStore other = (ConstantPropagationStore) o;
-        // go through all of the information of the other object
-        for (Entry<Node, Constant> e : other.contents.entrySet()) {
-            Node n = e.getKey();
-            Constant otherVal = e.getValue();
-            if (otherVal.isBottom()) {
-                continue; // no information
-            }
-            if (contents.containsKey(n)) {
-                if (!otherVal.equals(contents.get(n))) {
-                    return false;
-                }
-            } else {
+        ConstantPropagationStore other = withOurSlots((ConstantPropagationStore) o);
+        int length = Math.max(states.length, other.states.length);
+        for (int i = 0; i < length; i++) {
+            boolean thisInfo = hasInformation(i);
+            if (thisInfo != other.hasInformation(i)) {
                 return false;
             }
-        }
-        // go through all of the information of the this object
-        for (Entry<Node, Constant> e : contents.entrySet()) {
-            Node n = e.getKey();
-            Constant thisVal = e.getValue();
-            if (thisVal.isBottom()) {
-                continue; // no information
-            }
-            if (other.contents.containsKey(n)) {
-                continue;
-            } else {
+            if (thisInfo && (states[i] != other.states[i]
+                    || values[i] != other.values[i])) {
                 return false;
             }
         }
@@ -131,9 +256,11 @@ public class ConstantPropagationStore implements
     @Override
     public int hashCode() {
         int s = 0;
-        for (Entry<Node, Constant> e : contents.entrySet()) {
-            if (!e.getValue().isBottom()) {
-                s += e.hashCode();
+        for (int i = 0; i < slots.size(); i++) {
+            if (hasInformation(i)) {
+                // independent of the slot numbering, like equals
+                s += slots.variables.get(i).hashCode()
+                        ^ (31 * states[i] + values[i]);
             }
         }
         return s;
@@ -142,10 +269,10 @@ public class ConstantPropagationStore implements
     @Override
     public String toString() {
         // only output local variable information
-        Map<Node, Constant> smallerContents = new HashMap<>();
-        for (Entry<Node, Constant> e : contents.entrySet()) {
-            if (e.getKey() instanceof LocalVariableNode) {
-                smallerContents.put(e.getKey(), e.getValue());
+        Map<LocalVariable, Constant> smallerContents = new HashMap<>();
+        for (int i = 0; i < slots.size(); i++) {
+            if (getState(i) != ABSENT) {
+                smallerContents.put(slots.variables.get(i), toConstant(states[i], values[i]));
             }
         }
         return smallerContents.toString();
@@ -159,13 +286,11 @@ public class ConstantPropagationStore implements
 
     @Override
     public void visualize(CFGVisualizer<?, ConstantPropagationStore, ?> viz) {
-        for (Entry<Node, Constant> entry : contents.entrySet()) {
-            Node node = entry.getKey();
-            Constant constant = entry.getValue();
-            if (!node.isLValue()) {
-                continue;
+        for (int i = 0; i < slots.size(); i++) {
+            if (getState(i) != ABSENT) {
+                viz.visualizeStoreKeyVal(slots.variables.get(i).toString(),
+                        toConstant(states[i], values[i]));
             }
-            viz.visualizeStoreKeyVal(node.toString(), constant);
         }
     }
 
@@ -1,8 +1,9 @@
 package org.checkerframework.dataflow.constantpropagation;
 
-import org.checkerframework.dataflow.analysis.ConditionalTransferResult;
-import org.checkerframework.dataflow.analysis.RegularTransferResult;
+import org.checkerframework.dataflow.analysis.FlowExpressions;
+import org.checkerframework.dataflow.analysis.FlowExpressions.LocalVariable;
 import org.checkerframework.dataflow.analysis.ForwardTransferFunction;
+import org.checkerframework.dataflow.analysis.ReusableTransferFunction;
 import org.checkerframework.dataflow.analysis.TransferInput;
 import org.checkerframework.dataflow.analysis.TransferResult;
 import org.checkerframework.dataflow.cfg.UnderlyingAST;
@@ -12,13 +13,19 @@ import org.checkerframework.dataflow.cfg.node.EqualToNode;
 import org.checkerframework.dataflow.cfg.node.IntegerLiteralNode;
 import org.checkerframework.dataflow.cfg.node.LocalVariableNode;
 import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.javacutil.AnnotationProvider;
+import org.checkerframework.javacutil.BasicAnnotationProvider;
 
 import java.util.List;
 
 public class ConstantPropagationTransfer
         extends
         AbstractNodeVisitor<TransferResult<Constant, ConstantPropagationStore>, TransferInput<Constant, ConstantPropagationStore>>
-        implements ForwardTransferFunction<Constant, ConstantPropagationStore> {
+        implements ForwardTransferFunction<Constant, ConstantPropagationStore>,
+        ReusableTransferFunction<Constant, ConstantPropagationStore> {
+
+    /** Local variables do not need annotations to compute their receiver. */
+    protected final AnnotationProvider annotationProvider = new BasicAnnotationProvider();
 
     @Override
     public ConstantPropagationStore initialStore(UnderlyingAST underlyingAST,
@@ -31,14 +38,14 @@ public class ConstantPropagationTransfer
     public TransferResult<Constant, ConstantPropagationStore> visitLocalVariable(
         LocalVariableNode node, TransferInput<Constant, ConstantPropagationStore> before) {
         ConstantPropagationStore store = before.getRegularStore();
-        Constant value = store.getInformation(node);
-        return new RegularTransferResult<>(value, store);
+        Constant value = store.getInformation(receiverOf(node, before));
+        return before.getReusableResult().set(value, store, false);
     }
 
     @Override
     public TransferResult<Constant, ConstantPropagationStore> visitNode(Node n,
             TransferInput<Constant, ConstantPropagationStore> p) {
-        return new RegularTransferResult<>(null, p.getRegularStore());
+        return p.getReusableResult().set(null, p.getRegularStore(), false);
     }
 
     @Override
@@ -50,10 +57,10 @@ public class ConstantPropagationTransfer
         Constant info = null;
         if (target instanceof LocalVariableNode) {
             LocalVariableNode t = (LocalVariableNode) target;
-            info = p.getInformation(n.getExpression());
-            p.setInformation(t, info);
+            info = getInformation(p, n.getExpression(), pi);
+            p.setInformation(receiverOf(t, pi), info);
         }
-        return new RegularTransferResult<>(info, p);
+        return pi.getReusableResult().set(info, p, false);
     }
 
     @Override
@@ -61,9 +68,9 @@ public class ConstantPropagationTransfer
             IntegerLiteralNode n,
             TransferInput<Constant, ConstantPropagationStore> pi) {
         ConstantPropagationStore p = pi.getRegularStore();
-        Constant c = new Constant(n.getValue());
+        Constant c = Constant.of(n.getValue());
         p.setInformation(n, c);
-        return new RegularTransferResult<>(c, p);
+        return pi.getReusableResult().set(c, p, false);
     }
 
     @Override
@@ -73,16 +80,36 @@ public class ConstantPropagationTransfer
         ConstantPropagationStore old = p.copy();
         Node left = n.getLeftOperand();
         Node right = n.getRightOperand();
-        process(p, left, right);
-        process(p, right, left);
-        return new ConditionalTransferResult<>(null, p, old);
+        process(p, left, right, pi);
+        process(p, right, left, pi);
+        return pi.getReusableResult().set(null, p, old, false);
     }
 
-    protected void process(ConstantPropagationStore p, Node a, Node b) {
-        Constant val = p.getInformation(a);
+    protected void process(ConstantPropagationStore p, Node a, Node b,
+            TransferInput<Constant, ConstantPropagationStore> pi) {
+        Constant val = getInformation(p, a, pi);
         if (b instanceof LocalVariableNode && val.isConstant()) {
-            p.setInformation(b, val);
+            p.setInformation(receiverOf((LocalVariableNode) b, pi), val);
         }
     }
 
+    /** @return the information of {@code p} about {@code n} */
+    protected Constant getInformation(ConstantPropagationStore p, Node n,
+            TransferInput<Constant, ConstantPropagationStore> pi) {
+        if (n instanceof LocalVariableNode) {
+            return p.getInformation(receiverOf((LocalVariableNode) n, pi));
+        }
+        return p.getInformation(n);
+    }
+
+    /**
+     * @return the canonical receiver of {@code node} in the analysis that
+     *         {@code pi} belongs to, which is computed only once per node
+     */
+    protected LocalVariable receiverOf(LocalVariableNode node,
+            TransferInput<Constant, ConstantPropagationStore> pi) {
+        return (LocalVariable) FlowExpressions.internalReprOf(
+                annotationProvider, node, false, pi.getReceiverInterner());
+    }
+
 }
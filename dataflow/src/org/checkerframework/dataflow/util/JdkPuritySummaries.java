@@ -0,0 +1,171 @@
+package org.checkerframework.dataflow.util;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.dataflow.qual.Pure;
+import org.checkerframework.dataflow.qual.Pure.Kind;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+
+/**
+ * The purity of common methods of the JDK, such as those of {@code String},
+ * the boxed primitive types, {@code Math} and the collection interfaces,
+ * for code that is compiled against a JDK without purity annotations.
+ * {@link PurityUtils} falls back to these summaries for methods that have
+ * no purity annotation.
+ *
+ * <p>
+ *
+ * The summaries are read from the resource {@code jdk-purity.txt} next to
+ * this class the first time a JDK method is looked up, so compilations
+ * that never ask about a JDK method do not pay for them. Methods are
+ * identified by the binary name of their class, their name and their erased
+ * parameter types.
+ */
+public class JdkPuritySummaries {
+
+    /** The name of the resource that contains the summaries. */
+    public static final String RESOURCE = "jdk-purity.txt";
+
+    /** The summaries, loaded when this class is first initialized. */
+    private static class Holder {
+        static final Map<String, Set<Pure.Kind>> summaries = load();
+    }
+
+    private static final Set<Pure.Kind> PURE =
+            Collections.unmodifiableSet(EnumSet.allOf(Pure.Kind.class));
+    private static final Set<Pure.Kind> SIDE_EFFECT_FREE =
+            Collections.unmodifiableSet(EnumSet.of(Kind.SIDE_EFFECT_FREE));
+    private static final Set<Pure.Kind> DETERMINISTIC =
+            Collections.unmodifiableSet(EnumSet.of(Kind.DETERMINISTIC));
+
+    /**
+     * @return the purity kinds of {@code methodElement} if it is a method of
+     *         the JDK with a summary, or {@code null}
+     */
+    public static /*@Nullable*/ Set<Pure.Kind> getPurityKinds(Element methodElement) {
+        if (!(methodElement instanceof ExecutableElement)) {
+            return null;
+        }
+        Element cls = methodElement.getEnclosingElement();
+        if (!(cls instanceof TypeElement)) {
+            return null;
+        }
+        String className = binaryName((TypeElement) cls);
+        if (!className.startsWith("java.")) {
+            return null;
+        }
+        return Holder.summaries.get(signature(className, (ExecutableElement) methodElement));
+    }
+
+    /** @return the key of {@code method} in the summary resource */
+    protected static String signature(String className, ExecutableElement method) {
+        StringBuilder sb = new StringBuilder(className);
+        sb.append('#').append(method.getSimpleName()).append('(');
+        List<? extends VariableElement> params = method.getParameters();
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(erasedName(params.get(i).asType()));
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * @return the binary name of {@code type}, computed without
+     *         {@link javax.lang.model.util.Elements}
+     */
+    protected static String binaryName(TypeElement type) {
+        Element enclosing = type.getEnclosingElement();
+        if (enclosing instanceof TypeElement) {
+            return binaryName((TypeElement) enclosing) + "$" + type.getSimpleName();
+        }
+        return type.getQualifiedName().toString();
+    }
+
+    /**
+     * @return the name of the erasure of {@code type}, computed without
+     *         {@link javax.lang.model.util.Types}
+     */
+    protected static String erasedName(TypeMirror type) {
+        switch (type.getKind()) {
+        case DECLARED:
+            return binaryName((TypeElement) ((DeclaredType) type).asElement());
+        case ARRAY:
+            return erasedName(((ArrayType) type).getComponentType()) + "[]";
+        case TYPEVAR:
+            return erasedName(((TypeVariable) type).getUpperBound());
+        default:
+            if (type.getKind().isPrimitive()) {
+                return type.getKind().name().toLowerCase();
+            }
+            // intersection bounds and the like; none of the summaries uses them
+            return "java.lang.Object";
+        }
+    }
+
+    /**
+     * Read the summary resource. A missing resource means that there are no
+     * summaries.
+     */
+    protected static Map<String, Set<Pure.Kind>> load() {
+        Map<String, Set<Pure.Kind>> result = new HashMap<>(1024);
+        InputStream in = JdkPuritySummaries.class.getResourceAsStream(RESOURCE);
+        if (in == null) {
+            return result;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int space = line.lastIndexOf(' ');
+                Set<Pure.Kind> kinds = parseKinds(line.substring(space + 1));
+                if (space > 0 && kinds != null) {
+                    result.put(line.substring(0, space), kinds);
+                }
+            }
+        } catch (IOException e) {
+            // Keep what was read so far; the summaries are only a help.
+        }
+        return result;
+    }
+
+    private static /*@Nullable*/ Set<Pure.Kind> parseKinds(String kinds) {
+        switch (kinds) {
+        case "P":
+            return PURE;
+        case "S":
+            return SIDE_EFFECT_FREE;
+        case "D":
+            return DETERMINISTIC;
+        default:
+            return null;
+        }
+    }
+}
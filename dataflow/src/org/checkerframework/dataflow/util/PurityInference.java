@@ -0,0 +1,468 @@
+package org.checkerframework.dataflow.util;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.dataflow.qual.Deterministic;
+import org.checkerframework.dataflow.qual.Pure;
+import org.checkerframework.dataflow.qual.Pure.Kind;
+import org.checkerframework.dataflow.qual.SideEffectFree;
+
+import org.checkerframework.javacutil.AnnotationProvider;
+import org.checkerframework.javacutil.AnnotationUtils;
+import org.checkerframework.javacutil.ElementUtils;
+import org.checkerframework.javacutil.ErrorReporter;
+import org.checkerframework.javacutil.InternalUtils;
+import org.checkerframework.javacutil.TreeUtils;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.util.Elements;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreeScanner;
+
+/**
+ * Infers the purity of the unannotated methods of a compilation set, so
+ * that callers of such methods are not considered impure only because the
+ * callee lacks a {@link Pure}, {@link SideEffectFree} or
+ * {@link Deterministic} annotation.
+ *
+ * <p>
+ *
+ * Clients {@linkplain #addMethod add} the method declarations of the
+ * compilation set and call {@link #infer(int)}. The inference builds the
+ * call graph between the added methods and processes its strongly connected
+ * components callees first. Within a component, all methods start out as
+ * pure and the {@link PurityChecker} is run on their bodies until the
+ * result no longer changes; components that do not depend on each other are
+ * processed in parallel. The result is exported by {@link #getProvider()},
+ * an {@link AnnotationProvider} that reports the inferred purity as
+ * declaration annotations.
+ *
+ * <p>
+ *
+ * Purity is only inferred for methods that cannot be overridden (static,
+ * private or final methods, methods of final classes, and constructors),
+ * because a call of an overridable method may dispatch to code that is not
+ * part of the compilation set. Methods that are already annotated keep their
+ * annotations.
+ *
+ * <p>
+ *
+ * All calls into javac and into the underlying annotation provider happen
+ * on the thread that calls {@link #infer(int)}, before the parallel phase
+ * starts; the workers only scan attributed trees and read precomputed
+ * summaries.
+ */
+public class PurityInference {
+
+    /** The provider of the declared annotations. */
+    protected final AnnotationProvider declared;
+
+    /** Mirrors of the purity annotations, or {@code null} if not on the class path. */
+    protected final /*@Nullable*/ AnnotationMirror pureMirror;
+    protected final /*@Nullable*/ AnnotationMirror sideEffectFreeMirror;
+    protected final /*@Nullable*/ AnnotationMirror deterministicMirror;
+
+    /** The methods whose purity is inferred, with their declarations. */
+    protected final Map<ExecutableElement, MethodTree> candidates = new LinkedHashMap<>();
+
+    /** The declared purity of every method called by a candidate that is not one. */
+    protected final Map<Element, Set<Pure.Kind>> external = new HashMap<>();
+
+    /**
+     * The current purity of each candidate. During {@link #infer(int)}, the
+     * entries of a component are only written by the worker processing it.
+     */
+    protected final Map<ExecutableElement, Set<Pure.Kind>> inferred = new ConcurrentHashMap<>();
+
+    protected boolean done = false;
+
+    public PurityInference(AnnotationProvider declared, Elements elements) {
+        this.declared = declared;
+        this.pureMirror = AnnotationUtils.fromClass(elements, Pure.class);
+        this.sideEffectFreeMirror = AnnotationUtils.fromClass(elements, SideEffectFree.class);
+        this.deterministicMirror = AnnotationUtils.fromClass(elements, Deterministic.class);
+    }
+
+    /**
+     * Add a method declaration of the compilation set. Abstract, overridable
+     * and annotated methods are ignored.
+     */
+    public void addMethod(MethodTree tree) {
+        if (done) {
+            ErrorReporter.errorAbort("PurityInference.addMethod: inference is already done");
+        }
+        ExecutableElement elt = TreeUtils.elementFromDeclaration(tree);
+        if (tree.getBody() != null && !isOverridable(elt)
+                && !PurityUtils.hasPurityAnnotation(declared, elt)) {
+            candidates.put(elt, tree);
+        }
+    }
+
+    /** Add all method declarations of {@code classTree}, including nested classes. */
+    public void addClass(ClassTree classTree) {
+        for (Tree member : classTree.getMembers()) {
+            if (member instanceof MethodTree) {
+                addMethod((MethodTree) member);
+            } else if (member instanceof ClassTree) {
+                addClass((ClassTree) member);
+            }
+        }
+    }
+
+    protected static boolean isOverridable(ExecutableElement elt) {
+        if (elt.getKind() == ElementKind.CONSTRUCTOR
+                || ElementUtils.isStatic(elt)
+                || elt.getModifiers().contains(Modifier.PRIVATE)
+                || elt.getModifiers().contains(Modifier.FINAL)) {
+            return false;
+        }
+        Element cls = elt.getEnclosingElement();
+        return !cls.getModifiers().contains(Modifier.FINAL);
+    }
+
+    /**
+     * Infer the purity of all added methods.
+     *
+     * @param threads
+     *            the number of worker threads; 1 infers on the calling
+     *            thread only
+     */
+    public void infer(int threads) {
+        if (done) {
+            return;
+        }
+        done = true;
+
+        List<ExecutableElement> methods = new ArrayList<>(candidates.keySet());
+        Map<ExecutableElement, Integer> index = new HashMap<>();
+        for (int i = 0; i < methods.size(); i++) {
+            index.put(methods.get(i), i);
+        }
+
+        // Call graph between candidates; external callees are summarized
+        // here, on the javac thread.
+        List<List<Integer>> callees = new ArrayList<>(methods.size());
+        for (ExecutableElement m : methods) {
+            List<Integer> targets = new ArrayList<>();
+            for (Element callee : collectCallees(candidates.get(m))) {
+                Integer target = index.get(callee);
+                if (target != null) {
+                    targets.add(target);
+                } else if (!external.containsKey(callee)) {
+                    external.put(callee, PurityUtils.getPurityKindSet(declared, callee));
+                }
+            }
+            callees.add(targets);
+        }
+
+        List<List<Integer>> components = new Tarjan(callees).run();
+        if (threads <= 1) {
+            // Tarjan's algorithm emits components callees first.
+            for (List<Integer> component : components) {
+                solve(methods, component);
+            }
+        } else {
+            solveInParallel(methods, callees, components, threads);
+        }
+    }
+
+    /** Compute the purity of the methods of one component to a fixpoint. */
+    protected void solve(List<ExecutableElement> methods, List<Integer> component) {
+        for (int m : component) {
+            inferred.put(methods.get(m), EnumSet.allOf(Pure.Kind.class));
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            // A fresh view for every round, so that PurityUtils does not
+            // answer from the summaries of the previous round.
+            AnnotationProvider view = new SummaryProvider();
+            for (int m : component) {
+                ExecutableElement elt = methods.get(m);
+                Set<Pure.Kind> current = inferred.get(elt);
+                EnumSet<Pure.Kind> next = PurityChecker.checkPurity(
+                        candidates.get(elt).getBody(), view, false).getTypes();
+                next.retainAll(current);
+                if (!next.equals(current)) {
+                    inferred.put(elt, next);
+                    changed = true;
+                }
+            }
+        }
+        for (int m : component) {
+            ExecutableElement elt = methods.get(m);
+            inferred.put(elt, Collections.unmodifiableSet(inferred.get(elt)));
+        }
+    }
+
+    /**
+     * Solve the components on a pool of workers. A component is submitted as
+     * soon as all components it calls are solved.
+     */
+    protected void solveInParallel(final List<ExecutableElement> methods,
+            List<List<Integer>> callees, final List<List<Integer>> components,
+            int threads) {
+        int[] componentOf = new int[methods.size()];
+        for (int c = 0; c < components.size(); c++) {
+            for (int m : components.get(c)) {
+                componentOf[m] = c;
+            }
+        }
+        final List<Set<Integer>> callers = new ArrayList<>(components.size());
+        final AtomicInteger[] waitingFor = new AtomicInteger[components.size()];
+        for (int c = 0; c < components.size(); c++) {
+            callers.add(new LinkedHashSet<Integer>());
+        }
+        for (int c = 0; c < components.size(); c++) {
+            Set<Integer> calledComponents = new LinkedHashSet<>();
+            for (int m : components.get(c)) {
+                for (int callee : callees.get(m)) {
+                    if (componentOf[callee] != c) {
+                        calledComponents.add(componentOf[callee]);
+                    }
+                }
+            }
+            waitingFor[c] = new AtomicInteger(calledComponents.size());
+            for (int callee : calledComponents) {
+                callers.get(callee).add(c);
+            }
+        }
+
+        final ExecutorService workers = Executors.newFixedThreadPool(threads);
+        final CountDownLatch remaining = new CountDownLatch(components.size());
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        class ComponentTask implements Runnable {
+            final int component;
+
+            ComponentTask(int component) {
+                this.component = component;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    solve(methods, components.get(component));
+                    for (int caller : callers.get(component)) {
+                        if (waitingFor[caller].decrementAndGet() == 0) {
+                            workers.execute(new ComponentTask(caller));
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                    // Release the caller; unsolved components stay unknown.
+                    while (remaining.getCount() > 0) {
+                        remaining.countDown();
+                    }
+                    return;
+                }
+                remaining.countDown();
+            }
+        }
+
+        try {
+            for (int c = 0; c < components.size(); c++) {
+                if (waitingFor[c].get() == 0) {
+                    workers.execute(new ComponentTask(c));
+                }
+            }
+            remaining.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } finally {
+            workers.shutdownNow();
+        }
+        if (failure.get() != null) {
+            ErrorReporter.errorAbort("PurityInference: inference failed", failure.get());
+        }
+    }
+
+    /** @return the elements of all methods and constructors called in {@code method} */
+    protected static Set<Element> collectCallees(MethodTree method) {
+        final Set<Element> result = new LinkedHashSet<>();
+        new TreeScanner<Void, Void>() {
+            @Override
+            public Void visitClass(ClassTree node, Void p) {
+                // Like the PurityChecker, ignore nested class bodies.
+                return null;
+            }
+
+            @Override
+            public Void visitMethodInvocation(MethodInvocationTree node, Void p) {
+                result.add(TreeUtils.elementFromUse(node));
+                return super.visitMethodInvocation(node, p);
+            }
+
+            @Override
+            public Void visitNewClass(NewClassTree node, Void p) {
+                result.add(InternalUtils.symbol(node));
+                return super.visitNewClass(node, p);
+            }
+        }.scan(method.getBody(), null);
+        return result;
+    }
+
+    /**
+     * @return the inferred purity of {@code method}, or {@code null} if it
+     *         was not inferred
+     */
+    public /*@Nullable*/ Set<Pure.Kind> getInferredPurity(ExecutableElement method) {
+        return inferred.get(method);
+    }
+
+    /**
+     * @return an annotation provider that reports the inferred purity of the
+     *         added methods and otherwise delegates to the provider of the
+     *         declared annotations
+     */
+    public AnnotationProvider getProvider() {
+        if (!done) {
+            ErrorReporter.errorAbort("PurityInference.getProvider: call infer first");
+        }
+        return new AnnotationProvider() {
+            @Override
+            public AnnotationMirror getDeclAnnotation(Element elt,
+                    Class<? extends Annotation> anno) {
+                Set<Pure.Kind> kinds = inferred.get(elt);
+                if (kinds == null) {
+                    return declared.getDeclAnnotation(elt, anno);
+                }
+                return purityMirror(kinds, anno);
+            }
+
+            @Override
+            public AnnotationMirror getAnnotationMirror(Tree tree,
+                    Class<? extends Annotation> target) {
+                return declared.getAnnotationMirror(tree, target);
+            }
+        };
+    }
+
+    /**
+     * @return the mirror of {@code anno} if {@code kinds} implies it, or
+     *         {@code null}
+     */
+    protected /*@Nullable*/ AnnotationMirror purityMirror(Set<Pure.Kind> kinds,
+            Class<? extends Annotation> anno) {
+        if (anno == Pure.class) {
+            return kinds.size() == Pure.Kind.values().length ? pureMirror : null;
+        } else if (anno == SideEffectFree.class) {
+            return kinds.contains(Kind.SIDE_EFFECT_FREE) ? sideEffectFreeMirror : null;
+        } else if (anno == Deterministic.class) {
+            return kinds.contains(Kind.DETERMINISTIC) ? deterministicMirror : null;
+        }
+        return null;
+    }
+
+    /**
+     * The provider that the {@link PurityChecker} sees during inference: the
+     * current summaries for candidates and the precomputed declared purity
+     * for everything else. It does not call into javac.
+     */
+    protected class SummaryProvider implements AnnotationProvider {
+        @Override
+        public AnnotationMirror getDeclAnnotation(Element elt,
+                Class<? extends Annotation> anno) {
+            Set<Pure.Kind> kinds = inferred.get(elt);
+            if (kinds == null) {
+                kinds = external.get(elt);
+            }
+            if (kinds == null) {
+                // Only reachable for callees that were not collected, such as
+                // calls in nested class bodies, which the checker skips.
+                return null;
+            }
+            return purityMirror(kinds, anno);
+        }
+
+        @Override
+        public AnnotationMirror getAnnotationMirror(Tree tree,
+                Class<? extends Annotation> target) {
+            return null;
+        }
+    }
+
+    /** Tarjan's algorithm for strongly connected components. */
+    protected static class Tarjan {
+        private final List<List<Integer>> edges;
+        private final int[] index;
+        private final int[] lowlink;
+        private final boolean[] onStack;
+        private final int[] stack;
+        private int stackSize = 0;
+        private int nextIndex = 1;
+        private final List<List<Integer>> components = new ArrayList<>();
+
+        protected Tarjan(List<List<Integer>> edges) {
+            this.edges = edges;
+            int n = edges.size();
+            index = new int[n];
+            lowlink = new int[n];
+            onStack = new boolean[n];
+            stack = new int[n];
+        }
+
+        /** @return the components, each after all components it has edges to */
+        protected List<List<Integer>> run() {
+            for (int v = 0; v < edges.size(); v++) {
+                if (index[v] == 0) {
+                    visit(v);
+                }
+            }
+            return components;
+        }
+
+        private void visit(int v) {
+            index[v] = lowlink[v] = nextIndex++;
+            stack[stackSize++] = v;
+            onStack[v] = true;
+            for (int w : edges.get(v)) {
+                if (index[w] == 0) {
+                    visit(w);
+                    lowlink[v] = Math.min(lowlink[v], lowlink[w]);
+                } else if (onStack[w]) {
+                    lowlink[v] = Math.min(lowlink[v], index[w]);
+                }
+            }
+            if (lowlink[v] == index[v]) {
+                List<Integer> component = new ArrayList<>();
+                int w;
+                do {
+                    w = stack[--stackSize];
+                    onStack[w] = false;
+                    component.add(w);
+                } while (w != v);
+                components.add(component);
+            }
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package org.checkerframework.dataflow.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
@@ -20,6 +27,19 @@ import com.sun.source.tree.MethodTree;
  * An utility class for working with the {@link SideEffectFree}, {@link
  * Deterministic}, and {@link Pure} annotations.
  *
+ * <p>
+ *
+ * The purity of a method is looked up once per {@link AnnotationProvider}
+ * and then cached, so it can be queried at every call site cheaply. The
+ * cache is thread-safe. A provider whose annotations change after they
+ * were queried must call {@link #invalidate(AnnotationProvider)}.
+ *
+ * <p>
+ *
+ * Methods of the JDK without purity annotations get the purity recorded in
+ * the {@link JdkPuritySummaries}, unless that is turned off with
+ * {@link #setUseJdkSummaries(boolean)}.
+ *
  * @see SideEffectFree
  * @see Deterministic
  * @see Pure
@@ -29,6 +49,27 @@ import com.sun.source.tree.MethodTree;
  */
 public class PurityUtils {
 
+    /**
+     * The purity kinds of each method element that was queried, per
+     * annotation provider. Providers are weakly referenced, so the cache of
+     * a compilation goes away with its provider.
+     */
+    private static final Map<AnnotationProvider, ConcurrentMap<Element, Set<Pure.Kind>>> cache =
+            Collections.synchronizedMap(
+                    new WeakHashMap<AnnotationProvider, ConcurrentMap<Element, Set<Pure.Kind>>>());
+
+    /** Whether unannotated JDK methods use the {@link JdkPuritySummaries}. */
+    private static volatile boolean useJdkSummaries = true;
+
+    /**
+     * Set whether unannotated JDK methods get the purity recorded in the
+     * {@link JdkPuritySummaries}. Clears all cached purity kinds.
+     */
+    public static void setUseJdkSummaries(boolean use) {
+        useJdkSummaries = use;
+        cache.clear();
+    }
+
     /** Does the method {@code tree} have any purity annotation? */
     public static boolean hasPurityAnnotation(AnnotationProvider provider,
             MethodTree tree) {
@@ -38,7 +79,7 @@ public class PurityUtils {
     /** Does the method {@code methodElement} have any purity annotation? */
     public static boolean hasPurityAnnotation(AnnotationProvider provider,
             Element methodElement) {
-        return !getPurityKinds(provider, methodElement).isEmpty();
+        return !getPurityKindSet(provider, methodElement).isEmpty();
     }
 
     /** Is the method {@code tree} deterministic? */
@@ -51,8 +92,7 @@ public class PurityUtils {
     /** Is the method {@code methodElement} deterministic? */
     public static boolean isDeterministic(AnnotationProvider provider,
             Element methodElement) {
-        List<Kind> kinds = getPurityKinds(provider, methodElement);
-        return kinds.contains(Kind.DETERMINISTIC);
+        return getPurityKindSet(provider, methodElement).contains(Kind.DETERMINISTIC);
     }
 
     /** Is the method {@code tree} side-effect-free? */
@@ -65,8 +105,7 @@ public class PurityUtils {
     /** Is the method {@code methodElement} side-effect-free? */
     public static boolean isSideEffectFree(AnnotationProvider provider,
             Element methodElement) {
-        List<Kind> kinds = getPurityKinds(provider, methodElement);
-        return kinds.contains(Kind.SIDE_EFFECT_FREE);
+        return getPurityKindSet(provider, methodElement).contains(Kind.SIDE_EFFECT_FREE);
     }
 
     /**
@@ -80,10 +119,46 @@ public class PurityUtils {
 
     /**
      * @return the types of purity of the method {@code methodElement}.
-     * TODO: should the return type be an EnumSet?
      */
     public static List<Pure.Kind> getPurityKinds(AnnotationProvider provider,
             Element methodElement) {
+        return new ArrayList<>(getPurityKindSet(provider, methodElement));
+    }
+
+    /**
+     * @return the types of purity of the method {@code methodElement}, as an
+     *         unmodifiable set that is shared by all callers
+     */
+    public static Set<Pure.Kind> getPurityKindSet(AnnotationProvider provider,
+            Element methodElement) {
+        ConcurrentMap<Element, Set<Pure.Kind>> kindsByElement;
+        synchronized (cache) {
+            kindsByElement = cache.get(provider);
+            if (kindsByElement == null) {
+                kindsByElement = new ConcurrentHashMap<>();
+                cache.put(provider, kindsByElement);
+            }
+        }
+        Set<Pure.Kind> kinds = kindsByElement.get(methodElement);
+        if (kinds == null) {
+            // Two threads may look up the same element; both get the same answer.
+            kinds = Collections.unmodifiableSet(lookUpPurityKinds(provider, methodElement));
+            kindsByElement.putIfAbsent(methodElement, kinds);
+        }
+        return kinds;
+    }
+
+    /** Forget the cached purity kinds that were looked up with {@code provider}. */
+    public static void invalidate(AnnotationProvider provider) {
+        cache.remove(provider);
+    }
+
+    /**
+     * @return the types of purity of the method {@code methodElement}, read
+     *         from its declaration annotations
+     */
+    protected static EnumSet<Pure.Kind> lookUpPurityKinds(AnnotationProvider provider,
+            Element methodElement) {
         AnnotationMirror pureAnnotation = provider.getDeclAnnotation(
                 methodElement, Pure.class);
         AnnotationMirror sefAnnotation = provider.getDeclAnnotation(
@@ -91,7 +166,7 @@ public class PurityUtils {
         AnnotationMirror detAnnotation = provider.getDeclAnnotation(
                 methodElement, Deterministic.class);
 
-        List<Pure.Kind> kinds = new ArrayList<>();
+        EnumSet<Pure.Kind> kinds = EnumSet.noneOf(Pure.Kind.class);
         if (pureAnnotation != null) {
             kinds.add(Kind.DETERMINISTIC);
             kinds.add(Kind.SIDE_EFFECT_FREE);
@@ -102,6 +177,12 @@ public class PurityUtils {
         if (detAnnotation != null) {
             kinds.add(Kind.DETERMINISTIC);
         }
+        if (kinds.isEmpty() && useJdkSummaries) {
+            Set<Pure.Kind> summary = JdkPuritySummaries.getPurityKinds(methodElement);
+            if (summary != null) {
+                kinds.addAll(summary);
+            }
+        }
         return kinds;
     }
 }
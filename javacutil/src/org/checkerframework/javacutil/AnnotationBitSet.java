@@ -0,0 +1,240 @@
+package org.checkerframework.javacutil;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.lang.model.element.AnnotationMirror;
+
+/**
+ * A set of annotations that is represented as a bit set of the ids that an
+ * {@link AnnotationInterner} assigns to them. Two annotations that are the
+ * same according to
+ * {@link AnnotationUtils#areSame(AnnotationMirror, AnnotationMirror)} are one
+ * element of the set, and the set returns the canonical annotations of the
+ * interner.
+ *
+ * <p>
+ *
+ * Unlike {@link AnnotationUtils#createAnnotationSet()}, the set compares
+ * annotations including their element values, so it can contain two
+ * annotations of the same type with different values.
+ *
+ * <p>
+ *
+ * When both operands are {@code AnnotationBitSet}s of the same interner, the
+ * bulk operations {@link #addAll}, {@link #retainAll}, {@link #removeAll},
+ * {@link #containsAll} and {@link #equals} work on whole words. The set is not
+ * thread-safe.
+ *
+ * <p>
+ *
+ * Like a {@link java.util.TreeSet} with a comparator, the set decides
+ * membership by its own equivalence, {@code areSame}, rather than by
+ * {@code equals}: {@link #contains} is true for any annotation that is the
+ * same as an element. {@link #equals} and {@link #hashCode}, however, follow
+ * the {@link java.util.Set} contract for the canonical annotations that the
+ * set holds: the set is equal to another set exactly if that set contains
+ * the same canonical annotations, so the two methods are consistent with
+ * those of ordinary sets. Looking up an annotation never interns it.
+ */
+public class AnnotationBitSet extends AbstractSet<AnnotationMirror> implements Cloneable {
+
+    protected final AnnotationInterner interner;
+    protected BitSet bits;
+
+    public AnnotationBitSet(AnnotationInterner interner) {
+        this.interner = interner;
+        this.bits = new BitSet();
+    }
+
+    /** @return the interner that assigns the ids of this set */
+    public AnnotationInterner getInterner() {
+        return interner;
+    }
+
+    private boolean isCompatible(Object o) {
+        return o instanceof AnnotationBitSet
+                && ((AnnotationBitSet) o).interner == interner;
+    }
+
+    @Override
+    public boolean add(AnnotationMirror anno) {
+        int id = interner.getId(anno);
+        if (bits.get(id)) {
+            return false;
+        }
+        bits.set(id);
+        return true;
+    }
+
+    /**
+     * @return the id of {@code o} if it is an annotation that has been
+     *         interned, and -1 otherwise
+     */
+    private int lookupId(Object o) {
+        if (!(o instanceof AnnotationMirror)) {
+            return -1;
+        }
+        return interner.lookupId((AnnotationMirror) o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        int id = lookupId(o);
+        return id >= 0 && bits.get(id);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int id = lookupId(o);
+        if (id < 0 || !bits.get(id)) {
+            return false;
+        }
+        bits.clear(id);
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return bits.cardinality();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        bits.clear();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends AnnotationMirror> c) {
+        if (!isCompatible(c)) {
+            return super.addAll(c);
+        }
+        int before = bits.cardinality();
+        bits.or(((AnnotationBitSet) c).bits);
+        return bits.cardinality() != before;
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if (!isCompatible(c)) {
+            return super.retainAll(c);
+        }
+        int before = bits.cardinality();
+        bits.and(((AnnotationBitSet) c).bits);
+        return bits.cardinality() != before;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if (!isCompatible(c)) {
+            return super.removeAll(c);
+        }
+        int before = bits.cardinality();
+        bits.andNot(((AnnotationBitSet) c).bits);
+        return bits.cardinality() != before;
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        if (!isCompatible(c)) {
+            return super.containsAll(c);
+        }
+        BitSet missing = (BitSet) ((AnnotationBitSet) c).bits.clone();
+        missing.andNot(bits);
+        return missing.isEmpty();
+    }
+
+    /**
+     * @return whether {@code o} is a set that contains exactly the canonical
+     *         annotations of this set
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (isCompatible(o)) {
+            return bits.equals(((AnnotationBitSet) o).bits);
+        }
+        if (!(o instanceof Set)) {
+            return false;
+        }
+        Set<?> other = (Set<?>) o;
+        if (other.size() != size()) {
+            return false;
+        }
+        for (Object e : other) {
+            int id = lookupId(e);
+            if (id < 0 || !bits.get(id) || interner.getAnnotation(id) != e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the sum of the hash codes of the canonical annotations of this
+     *         set, as {@link java.util.Set#hashCode()} specifies
+     */
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+            h += interner.getAnnotation(id).hashCode();
+        }
+        return h;
+    }
+
+    @Override
+    public AnnotationBitSet clone() {
+        try {
+            AnnotationBitSet copy = (AnnotationBitSet) super.clone();
+            copy.bits = (BitSet) bits.clone();
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /** Iterates over the canonical annotations in the order of their ids. */
+    @Override
+    public Iterator<AnnotationMirror> iterator() {
+        return new Iterator<AnnotationMirror>() {
+            private int next = bits.nextSetBit(0);
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public AnnotationMirror next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = bits.nextSetBit(next + 1);
+                return interner.getAnnotation(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                bits.clear(last);
+                last = -1;
+            }
+        };
+    }
+}
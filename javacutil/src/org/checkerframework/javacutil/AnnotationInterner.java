@@ -0,0 +1,159 @@
+package org.checkerframework.javacutil;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+
+/**
+ * Maps annotations that are the same according to
+ * {@link AnnotationUtils#areSame(AnnotationMirror, AnnotationMirror)} to one
+ * canonical {@link AnnotationMirror} with a small integer id. Canonical
+ * annotations can be compared with {@code ==}, and the ids make it possible
+ * to represent sets of annotations as bit sets; see
+ * {@link AnnotationBitSet}.
+ *
+ * <p>
+ *
+ * Ids are handed out densely from 0 in the order in which annotations are
+ * first interned, and are never reused. There is one interner per
+ * compilation context, since annotation mirrors belong to a compilation;
+ * use {@link #instance(ProcessingEnvironment)} to obtain it. All methods are
+ * thread-safe.
+ *
+ * <p>
+ *
+ * The interner remembers the ids of the mirrors it has seen, so that looking
+ * up a mirror again does not compute its structural key. That memo is an
+ * LRU cache of {@link #MIRROR_CACHE_SIZE} entries; the canonical annotations
+ * themselves are kept for the life of the compilation.
+ */
+public class AnnotationInterner {
+
+    protected static final Context.Key<AnnotationInterner> annotationInternerKey =
+            new Context.Key<>();
+
+    /** The canonical annotation of each structural key. */
+    private final Map<String, Integer> idsByKey = new HashMap<>();
+
+    /** Size of {@link #idsByMirror}. */
+    protected static final int MIRROR_CACHE_SIZE = 4096;
+
+    /**
+     * The ids of recently looked up annotations, canonical or not. Javac's
+     * annotation mirrors do not override {@code equals}, so this is keyed by
+     * identity in practice.
+     */
+    private final Map<AnnotationMirror, Integer> idsByMirror =
+            CollectionUtils.createLRUCache(MIRROR_CACHE_SIZE);
+
+    /** The canonical annotation of each id. */
+    private final List<AnnotationMirror> canonical = new ArrayList<>();
+
+    protected AnnotationInterner() { }
+
+    /**
+     * @return the annotation interner of the compilation context of
+     *         {@code env}, creating it on first use
+     */
+    public static AnnotationInterner instance(ProcessingEnvironment env) {
+        Context context = ((JavacProcessingEnvironment) env).getContext();
+        synchronized (context) {
+            AnnotationInterner instance = context.get(annotationInternerKey);
+            if (instance == null) {
+                instance = new AnnotationInterner();
+                context.put(annotationInternerKey, instance);
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * @return the id of {@code anno}, interning it if no annotation that is
+     *         the same has been interned yet
+     */
+    public synchronized int getId(AnnotationMirror anno) {
+        Integer id = idsByMirror.get(anno);
+        if (id != null) {
+            return id;
+        }
+        String key = structuralKey(anno);
+        id = idsByKey.get(key);
+        if (id == null) {
+            id = canonical.size();
+            canonical.add(anno);
+            idsByKey.put(key, id);
+        }
+        idsByMirror.put(anno, id);
+        return id;
+    }
+
+    /**
+     * @return the id of {@code anno}, or -1 if no annotation that is the same
+     *         has been interned; unlike {@link #getId(AnnotationMirror)},
+     *         this never creates a new id
+     */
+    public synchronized int lookupId(AnnotationMirror anno) {
+        Integer id = idsByMirror.get(anno);
+        if (id != null) {
+            return id;
+        }
+        id = idsByKey.get(structuralKey(anno));
+        if (id == null) {
+            return -1;
+        }
+        idsByMirror.put(anno, id);
+        return id;
+    }
+
+    /** @return the canonical annotation that is the same as {@code anno} */
+    public synchronized AnnotationMirror intern(AnnotationMirror anno) {
+        return canonical.get(getId(anno));
+    }
+
+    /** @return the canonical annotation with id {@code id} */
+    public synchronized AnnotationMirror getAnnotation(int id) {
+        return canonical.get(id);
+    }
+
+    /** @return the number of canonical annotations */
+    public synchronized int size() {
+        return canonical.size();
+    }
+
+    /** @return whether {@code a1} and {@code a2} are the same annotation */
+    public boolean areSame(/*@Nullable*/ AnnotationMirror a1, /*@Nullable*/ AnnotationMirror a2) {
+        if (a1 == a2) {
+            return true;
+        }
+        if (a1 == null || a2 == null) {
+            return false;
+        }
+        return getId(a1) == getId(a2);
+    }
+
+    /** @return a new, empty set of annotations backed by this interner */
+    public AnnotationBitSet createSet() {
+        return new AnnotationBitSet(this);
+    }
+
+    /**
+     * @return a string that is equal for two annotations if and only if
+     *         {@link AnnotationUtils#areSame(AnnotationMirror, AnnotationMirror)}
+     *         holds for them
+     */
+    protected static String structuralKey(AnnotationMirror anno) {
+        return AnnotationUtils.annotationName(anno) + "("
+                + AnnotationUtils.getElementValuesWithDefaults(anno) + ")";
+    }
+}
@@ -22,6 +22,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.ElementKind;
@@ -60,27 +61,54 @@ public class AnnotationUtils {
     // Factory Methods to create instances of AnnotationMirror
     // **********************************************************************
 
-    /** Caching for annotation creation. */
-    private static final Map<CharSequence, AnnotationMirror> annotationsFromNames
-        = new HashMap<CharSequence, AnnotationMirror>();
+    /**
+     * Size of the cache of annotation mirror names. The original unsegmented
+     * cache held 500 entries; the cache is segmented, so every segment gets
+     * that many.
+     */
+    private static final int ANNOTATION_CACHE_SIZE =
+        500 * CollectionUtils.ConcurrentLRUCache.SEGMENTS;
 
+    /**
+     * Size of the caches keyed by annotation names and classes, which used
+     * to be unbounded. There is one entry per annotation type, so the bound
+     * only guards against leaks and is large enough that the annotations in
+     * use are never evicted.
+     */
+    private static final int ANNOTATION_NAME_CACHE_SIZE = 4096;
 
-    private static final int ANNOTATION_CACHE_SIZE = 500;
+    /**
+     * Caching for annotation creation.  Keyed by the name as a String,
+     * so that a {@link Name} and a String with the same contents share
+     * an entry.
+     */
+    private static final CollectionUtils.ConcurrentLRUCache<String, AnnotationMirror> annotationsFromNames
+        = CollectionUtils.createConcurrentLRUCache(ANNOTATION_NAME_CACHE_SIZE);
 
     /**
      * Cache names of AnnotationMirrors for faster access.  Values in
      * the map are interned Strings, so they can be compared with ==.
      */
-    private static final Map<AnnotationMirror, /*@Interned*/ String> annotationMirrorNames
-        = CollectionUtils.createLRUCache(ANNOTATION_CACHE_SIZE);
+    private static final CollectionUtils.ConcurrentLRUCache<AnnotationMirror, /*@Interned*/ String> annotationMirrorNames
+        = CollectionUtils.createConcurrentLRUCache(ANNOTATION_CACHE_SIZE);
 
     /**
      * Cache names of classes representing AnnotationMirrors for
      * faster access.  Values in the map are interned Strings, so they
      * can be compared with ==.
      */
-    private static final Map<Class<? extends Annotation>, /*@Interned*/ String> annotationClassNames
-        = new HashMap<Class<? extends Annotation>, /*@Interned*/ String>();
+    private static final CollectionUtils.ConcurrentLRUCache<Class<? extends Annotation>, /*@Interned*/ String> annotationClassNames
+        = CollectionUtils.createConcurrentLRUCache(ANNOTATION_NAME_CACHE_SIZE);
+
+    /**
+     * @return the hit and miss counts of the annotation caches, for
+     *         monitoring
+     */
+    public static String getCacheStatistics() {
+        return "annotationsFromNames: " + annotationsFromNames
+                + ", annotationMirrorNames: " + annotationMirrorNames
+                + ", annotationClassNames: " + annotationClassNames;
+    }
 
     /**
      * Creates an {@link AnnotationMirror} given by a particular
@@ -92,8 +120,10 @@ public class AnnotationUtils {
      * @return an {@link AnnotationMirror} of type {@code} name
      */
     public static AnnotationMirror fromName(Elements elements, CharSequence name) {
-        if (annotationsFromNames.containsKey(name)) {
-            return annotationsFromNames.get(name);
+        String key = name.toString();
+        AnnotationMirror cached = annotationsFromNames.get(key);
+        if (cached != null) {
+            return cached;
         }
         final DeclaredType annoType = typeFromName(elements, name);
         if (annoType == null) {
@@ -121,8 +151,7 @@ public class AnnotationUtils {
                 return toString;
             }
         };
-        annotationsFromNames.put(name, result);
-        return result;
+        return annotationsFromNames.putIfAbsent(key, result);
     }
 
     /**
@@ -165,13 +194,14 @@ public class AnnotationUtils {
      * @return the fully-qualified name of an annotation as a String
      */
     public static final /*@Interned*/ String annotationName(AnnotationMirror annotation) {
-        if (annotationMirrorNames.containsKey(annotation)) {
-            return annotationMirrorNames.get(annotation);
+        /*@Interned*/ String name = annotationMirrorNames.get(annotation);
+        if (name != null) {
+            return name;
         }
 
         final DeclaredType annoType = annotation.getAnnotationType();
         final TypeElement elm = (TypeElement) annoType.asElement();
-        /*@Interned*/ String name = elm.getQualifiedName().toString().intern();
+        name = elm.getQualifiedName().toString().intern();
         annotationMirrorNames.put(annotation, name);
         return name;
     }
@@ -196,6 +226,10 @@ public class AnnotationUtils {
      * @return true iff a1 and a2 are the same annotation
      */
     public static boolean areSame(/*@Nullable*/ AnnotationMirror a1, /*@Nullable*/ AnnotationMirror a2) {
+        if (a1 == a2) {
+            // in particular for canonical annotations of an AnnotationInterner
+            return true;
+        }
         if (a1 != null && a2 != null) {
             if (annotationName(a1) != annotationName(a2)) {
                 return false;
@@ -237,10 +271,8 @@ public class AnnotationUtils {
      */
     public static boolean areSameByClass(AnnotationMirror am,
             Class<? extends Annotation> anno) {
-        /*@Interned*/ String canonicalName;
-        if (annotationClassNames.containsKey(anno)) {
-            canonicalName = annotationClassNames.get(anno);
-        } else {
+        /*@Interned*/ String canonicalName = annotationClassNames.get(anno);
+        if (canonicalName == null) {
             canonicalName = anno.getCanonicalName().intern();
             annotationClassNames.put(anno, canonicalName);
         }
@@ -259,6 +291,11 @@ public class AnnotationUtils {
         if (c1.size() == 1) {
             return areSame(c1.iterator().next(), c2.iterator().next());
         }
+        if (c1 instanceof AnnotationBitSet && c2 instanceof AnnotationBitSet
+                && ((AnnotationBitSet) c1).getInterner() == ((AnnotationBitSet) c2).getInterner()) {
+            // same interner: the sets hold canonical annotations, compare the ids
+            return c1.equals(c2);
+        }
 
         Set<AnnotationMirror> s1 = createAnnotationSet();
         Set<AnnotationMirror> s2 = createAnnotationSet();
@@ -375,6 +412,18 @@ public class AnnotationUtils {
         return new TreeSet<AnnotationMirror>(annotationOrdering());
     }
 
+    /**
+     * Constructs a {@link Set} of {@link AnnotationMirror}s that is backed by
+     * a bit set over the ids of the {@link AnnotationInterner} of the
+     * compilation of {@code env}. Unlike {@link #createAnnotationSet()}, it
+     * can hold several annotations of a type that differ in their values.
+     *
+     * @return a new, empty {@link AnnotationBitSet}
+     */
+    public static AnnotationBitSet createAnnotationBitSet(ProcessingEnvironment env) {
+        return AnnotationInterner.instance(env).createSet();
+    }
+
     /** Returns true if the given annotation has a @Inherited meta-annotation. */
     public static boolean hasInheritedMeta(AnnotationMirror anno) {
         return anno.getAnnotationType().asElement().getAnnotation(Inherited.class) != null;
@@ -566,7 +615,10 @@ public class AnnotationUtils {
     public static <T> void updateMappingToImmutableSet(Map<T, Set<AnnotationMirror>> map,
             T key, Set<AnnotationMirror> newQual) {
 
-        Set<AnnotationMirror> result = AnnotationUtils.createAnnotationSet();
+        // keep bit sets as bit sets, so that the union is a word operation
+        Set<AnnotationMirror> result = newQual instanceof AnnotationBitSet
+                ? ((AnnotationBitSet) newQual).getInterner().createSet()
+                : AnnotationUtils.createAnnotationSet();
         // TODO: if T is also an AnnotationMirror, should we use areSame?
         if (!map.containsKey(key)) {
             result.addAll(newQual);
@@ -1,7 +1,12 @@
 package org.checkerframework.javacutil;
 
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Utility methods related to Java Collections
@@ -14,7 +19,8 @@ public class CollectionUtils {
      * @return  a new cache with the provided size
      */
     public static <K, V> Map<K, V> createLRUCache(final int size) {
-        return new LinkedHashMap<K, V>() {
+        // access order, so that the eldest entry is the least recently used
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
 
             private static final long serialVersionUID = 5261489276168775084L;
             @Override
@@ -23,4 +29,165 @@ public class CollectionUtils {
             }
         };
     }
+
+    /**
+     * A Utility method for creating an LRU cache that can be used from
+     * several threads at once
+     * @param size  size of the cache
+     * @return  a new cache with the provided size
+     */
+    public static <K, V> ConcurrentLRUCache<K, V> createConcurrentLRUCache(int size) {
+        return new ConcurrentLRUCache<>(size);
+    }
+
+    /**
+     * A bounded, thread-safe cache that evicts the least recently used
+     * entries. The keys are spread over independently locked segments, each
+     * of which is an LRU cache of its own, so threads that look up different
+     * keys rarely wait for each other; the eviction order is only LRU within
+     * a segment. The cache counts hits and misses so that its effectiveness
+     * can be monitored.
+     *
+     * <p>
+     *
+     * {@code null} keys and values are not allowed.
+     */
+    public static class ConcurrentLRUCache<K, V> {
+
+        /**
+         * The number of segments; a power of two. Each segment evicts on its
+         * own, so a cache holds {@code size / SEGMENTS} entries per segment.
+         */
+        public static final int SEGMENTS = 16;
+
+        private final Map<K, V>[] segments;
+        private final int capacity;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation
+        public ConcurrentLRUCache(int size) {
+            if (size < 1) {
+                throw new IllegalArgumentException("size: " + size);
+            }
+            this.capacity = size;
+            int segmentSize = (size + SEGMENTS - 1) / SEGMENTS;
+            segments = new Map[SEGMENTS];
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = createLRUCache(segmentSize);
+            }
+        }
+
+        private Map<K, V> segmentFor(Object key) {
+            int h = key.hashCode();
+            h ^= (h >>> 16);
+            return segments[h & (SEGMENTS - 1)];
+        }
+
+        /**
+         * @return the value cached for {@code key}, or {@code null} if there
+         *         is none
+         */
+        public /*@Nullable*/ V get(K key) {
+            Map<K, V> segment = segmentFor(key);
+            V value;
+            synchronized (segment) {
+                value = segment.get(key);
+            }
+            (value == null ? misses : hits).incrementAndGet();
+            return value;
+        }
+
+        /** Cache {@code value} for {@code key}. */
+        public void put(K key, V value) {
+            if (value == null) {
+                throw new NullPointerException("null value for " + key);
+            }
+            Map<K, V> segment = segmentFor(key);
+            synchronized (segment) {
+                segment.put(key, value);
+            }
+        }
+
+        /**
+         * Cache {@code value} for {@code key} unless a value is cached
+         * already.
+         *
+         * @return the value that is cached for {@code key} afterwards
+         */
+        public V putIfAbsent(K key, V value) {
+            if (value == null) {
+                throw new NullPointerException("null value for " + key);
+            }
+            Map<K, V> segment = segmentFor(key);
+            synchronized (segment) {
+                V existing = segment.get(key);
+                if (existing != null) {
+                    return existing;
+                }
+                segment.put(key, value);
+                return value;
+            }
+        }
+
+        /**
+         * Remove the entry of {@code key}, if there is one.
+         *
+         * @return the value that was cached for {@code key}, or {@code null}
+         */
+        public /*@Nullable*/ V remove(K key) {
+            Map<K, V> segment = segmentFor(key);
+            synchronized (segment) {
+                return segment.remove(key);
+            }
+        }
+
+        /** Remove all entries; the statistics are kept. */
+        public void clear() {
+            for (Map<K, V> segment : segments) {
+                synchronized (segment) {
+                    segment.clear();
+                }
+            }
+        }
+
+        /** @return the number of cached entries */
+        public int size() {
+            int size = 0;
+            for (Map<K, V> segment : segments) {
+                synchronized (segment) {
+                    size += segment.size();
+                }
+            }
+            return size;
+        }
+
+        /** @return the maximal number of entries */
+        public int getCapacity() {
+            return capacity;
+        }
+
+        /** @return the number of lookups that found a value */
+        public long getHitCount() {
+            return hits.get();
+        }
+
+        /** @return the number of lookups that found no value */
+        public long getMissCount() {
+            return misses.get();
+        }
+
+        /** @return the fraction of lookups that found a value, or 0 if there were none */
+        public double getHitRate() {
+            long h = hits.get();
+            long total = h + misses.get();
+            return total == 0 ? 0 : (double) h / total;
+        }
+
+        @Override
+        public String toString() {
+            return "ConcurrentLRUCache(size=" + size() + "/" + capacity
+                    + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ")";
+        }
+    }
 }
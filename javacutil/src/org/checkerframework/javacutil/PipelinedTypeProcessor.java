@@ -0,0 +1,235 @@
+package org.checkerframework.javacutil;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import javax.lang.model.element.TypeElement;
+
+import com.sun.source.util.TreePath;
+
+/**
+ * A type processor that overlaps the work of the compiler with its own: each
+ * class is first {@linkplain #typeProcessPrepare prepared} on the compiler
+ * thread as soon as it is analyzed, and the result is then
+ * {@linkplain #typeProcessComplete completed} by a pool of worker threads
+ * while the compiler goes on attributing the next class.
+ *
+ * <p>
+ *
+ * The split between the two stages is up to the subclass, but it is bound
+ * by what javac allows. The AST of a class is desugared by the compiler
+ * after it has been processed, and javac's symbol tables, types and trees
+ * are not thread-safe. So the prepare stage has to do everything that reads
+ * the AST or the compiler state, such as building the control flow graphs of
+ * the class, and the complete stage may only use the prepared data and
+ * thread-safe state, for example to run a dataflow analysis over graphs
+ * whose transfer functions do not call back into javac.
+ *
+ * <p>
+ *
+ * At most {@code capacity} prepared classes wait for or are in completion at
+ * any time; when the limit is reached, the compiler thread blocks until a
+ * worker is done. All completions are joined before
+ * {@link #pipelineProcessingOver()} is called, which takes the place of
+ * {@link #typeProcessingOver()} for subclasses.
+ *
+ * @param <T>
+ *            The type of data that is passed from the prepare to the
+ *            complete stage.
+ */
+public abstract class PipelinedTypeProcessor<T> extends AbstractTypeProcessor {
+
+    /** The number of worker threads; 0 completes classes synchronously. */
+    protected final int workerCount;
+
+    /** The maximal number of prepared classes that are not completed yet. */
+    protected final int capacity;
+
+    /** The workers, created when the first class is submitted. */
+    private /*@Nullable*/ ExecutorService workers;
+
+    /** One permit per class that may still be submitted to the workers. */
+    private /*@Nullable*/ Semaphore slots;
+
+    /** The completions that have not been joined yet. */
+    private final List<Future<?>> pending = new ArrayList<>();
+
+    /**
+     * Use one worker per available processor but one, which is left for the
+     * compiler thread.
+     */
+    protected PipelinedTypeProcessor() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    protected PipelinedTypeProcessor(int workerCount) {
+        this(workerCount, 2 * Math.max(1, workerCount));
+    }
+
+    /**
+     * @param workerCount
+     *            the number of worker threads, or 0 to complete each class
+     *            on the compiler thread right after preparing it
+     * @param capacity
+     *            the maximal number of prepared classes that are not
+     *            completed yet
+     */
+    protected PipelinedTypeProcessor(int workerCount, int capacity) {
+        if (workerCount < 0 || capacity < 1) {
+            throw new IllegalArgumentException("workerCount: " + workerCount
+                    + ", capacity: " + capacity);
+        }
+        this.workerCount = workerCount;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Prepare a fully-analyzed class for completion. Called on the compiler
+     * thread, in the same situation as
+     * {@link AbstractTypeProcessor#typeProcess(TypeElement, TreePath)}.
+     *
+     * @return the data to pass to {@link #typeProcessComplete}, or
+     *         {@code null} if there is nothing left to do for the class
+     */
+    protected abstract /*@Nullable*/ T typeProcessPrepare(TypeElement element, TreePath tree);
+
+    /**
+     * Complete the processing of a class. Called on a worker thread, possibly
+     * at the same time as {@link #typeProcessPrepare} and other completions.
+     *
+     * @param prepared
+     *            the result of {@link #typeProcessPrepare} for the class
+     */
+    protected abstract void typeProcessComplete(T prepared);
+
+    /**
+     * Called once all classes have been completed, in place of
+     * {@link #typeProcessingOver()}, under the same conditions.
+     */
+    protected void pipelineProcessingOver() { }
+
+    @Override
+    public final void typeProcess(TypeElement element, TreePath tree) {
+        final T prepared = typeProcessPrepare(element, tree);
+        if (prepared == null) {
+            return;
+        }
+        if (workerCount == 0) {
+            typeProcessComplete(prepared);
+            return;
+        }
+        if (workers == null) {
+            workers = Executors.newFixedThreadPool(workerCount, new WorkerFactory());
+            slots = new Semaphore(capacity);
+        }
+
+        // The completion releases this semaphore even if typeProcessingOver
+        // has dropped the field in the meantime.
+        final Semaphore slots = this.slots;
+        // Blocks the compiler while the workers are behind.
+        slots.acquireUninterruptibly();
+        Future<?> completion;
+        try {
+            completion = workers.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        typeProcessComplete(prepared);
+                    } finally {
+                        slots.release();
+                    }
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            // The task will never run and release its slot.
+            slots.release();
+            throw e;
+        }
+        pending.add(completion);
+        joinDone();
+    }
+
+    /**
+     * Join all completions and call {@link #pipelineProcessingOver()}.
+     * Subclasses override the latter.
+     */
+    @Override
+    public final void typeProcessingOver() {
+        try {
+            for (Future<?> f : pending) {
+                join(f);
+            }
+        } finally {
+            pending.clear();
+            if (workers != null) {
+                workers.shutdown();
+                workers = null;
+                slots = null;
+            }
+        }
+        pipelineProcessingOver();
+    }
+
+    /**
+     * Forget the completions that are done, so that the list of pending
+     * completions stays short, and report their failures early.
+     */
+    private void joinDone() {
+        Iterator<Future<?>> it = pending.iterator();
+        while (it.hasNext()) {
+            Future<?> f = it.next();
+            if (f.isDone()) {
+                it.remove();
+                join(f);
+            }
+        }
+    }
+
+    private static void join(Future<?> f) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    f.get();
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    ErrorReporter.errorAbort("PipelinedTypeProcessor: completion failed",
+                            e.getCause());
+                    return;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Creates daemon workers, so that a compilation that stops early without
+     * calling {@link #typeProcessingOver()} does not keep the VM alive.
+     */
+    private static class WorkerFactory implements ThreadFactory {
+        private int count = 0;
+
+        @Override
+        public synchronized Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "type-processor-worker-" + count++);
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -2,10 +2,20 @@ package org.checkerframework.javacutil;
 
 import static com.sun.tools.javac.code.Kinds.VAR;
 
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Objects;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
@@ -13,6 +23,7 @@ import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.TypeMirror;
 
+import com.sun.source.tree.Tree;
 import com.sun.source.util.TreePath;
 import com.sun.source.util.Trees;
 import com.sun.tools.javac.api.JavacScope;
@@ -32,6 +43,18 @@ import com.sun.tools.javac.util.Names;
 
 /**
  * A Utility class to find symbols corresponding to string references.
+ *
+ * <p>
+ *
+ * The private lookup methods of javac's {@link Resolve} are called through
+ * method handles that are bound to the {@code Resolve} instance of the
+ * compilation when the resolver is created. The environment of each scope
+ * and the symbol found for each name are cached, keyed by the tree of the
+ * scope, so resolving the same names in the same scope again, as happens
+ * when the flow expressions of annotations are parsed, does not ask javac a
+ * second time. Trees and symbols do not change once a compilation unit has
+ * been attributed; clients that use a resolver across annotation processing
+ * rounds call {@link #clearCache()} in between.
  */
 public class Resolver {
     private final Resolve resolve;
@@ -39,6 +62,12 @@ public class Resolver {
     private final Trees trees;
     private final Log log;
 
+    /** The maximal number of scope environments that are cached. */
+    protected static final int ENV_CACHE_SIZE = 256;
+
+    /** The maximal number of resolved names that are cached. */
+    protected static final int RESOLUTION_CACHE_SIZE = 4096;
+
     private static final Method FIND_METHOD;
     private static final Method FIND_VAR;
     private static final Method FIND_IDENT_IN_TYPE;
@@ -49,6 +78,19 @@ public class Resolver {
     // Note that currently access(...) is defined in InvalidSymbolError, a superclass of AccessError
     private static final Method ACCESSERROR_ACCESS;
 
+    /** {@code Resolve.currentResolutionContext}, which findMethod requires to be set. */
+    private static final Field CURRENT_RESOLUTION_CONTEXT;
+
+    // The unbound handles, adapted to return Symbol so that they can be
+    // called with invokeExact whatever the return type in this javac version.
+    private static final MethodHandle FIND_METHOD_HANDLE;
+    private static final MethodHandle FIND_VAR_HANDLE;
+    private static final MethodHandle FIND_IDENT_IN_TYPE_HANDLE;
+    private static final MethodHandle FIND_TYPE_HANDLE;
+    private static final MethodHandle ACCESSERROR_ACCESS_HANDLE;
+    private static final MethodHandle GET_RESOLUTION_CONTEXT_HANDLE;
+    private static final MethodHandle SET_RESOLUTION_CONTEXT_HANDLE;
+
     static {
         try {
             FIND_METHOD = Resolve.class.getDeclaredMethod("findMethod",
@@ -73,6 +115,10 @@ public class Resolver {
             FIND_TYPE = Resolve.class.getDeclaredMethod(
                     "findType", Env.class, Name.class);
             FIND_TYPE.setAccessible(true);
+
+            CURRENT_RESOLUTION_CONTEXT = Resolve.class.getDeclaredField(
+                    "currentResolutionContext");
+            CURRENT_RESOLUTION_CONTEXT.setAccessible(true);
         } catch (Exception e) {
             Error err = new AssertionError(
                     "Compiler 'Resolve' class doesn't contain required 'find' method");
@@ -93,14 +139,138 @@ public class Resolver {
             // Unreachable code - needed so the compiler does not warn about a possibly uninitialized final field.
             throw new AssertionError();
         }
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            FIND_METHOD_HANDLE = lookup.unreflect(FIND_METHOD).asType(
+                    MethodType.methodType(Symbol.class, Resolve.class,
+                            Env.class, Type.class, Name.class, List.class, List.class,
+                            boolean.class, boolean.class, boolean.class));
+            FIND_VAR_HANDLE = lookup.unreflect(FIND_VAR).asType(
+                    MethodType.methodType(Symbol.class, Resolve.class,
+                            Env.class, Name.class));
+            FIND_IDENT_IN_TYPE_HANDLE = lookup.unreflect(FIND_IDENT_IN_TYPE).asType(
+                    MethodType.methodType(Symbol.class, Resolve.class,
+                            Env.class, Type.class, Name.class, int.class));
+            FIND_TYPE_HANDLE = lookup.unreflect(FIND_TYPE).asType(
+                    MethodType.methodType(Symbol.class, Resolve.class,
+                            Env.class, Name.class));
+            ACCESSERROR_ACCESS_HANDLE = lookup.unreflect(ACCESSERROR_ACCESS).asType(
+                    MethodType.methodType(Symbol.class, Symbol.class,
+                            Name.class, TypeSymbol.class));
+            GET_RESOLUTION_CONTEXT_HANDLE = lookup.unreflectGetter(CURRENT_RESOLUTION_CONTEXT)
+                    .asType(MethodType.methodType(Object.class, Resolve.class));
+            SET_RESOLUTION_CONTEXT_HANDLE = lookup.unreflectSetter(CURRENT_RESOLUTION_CONTEXT)
+                    .asType(MethodType.methodType(void.class, Resolve.class, Object.class));
+        } catch (IllegalAccessException e) {
+            ErrorReporter.errorAbort("Compiler 'Resolve' methods could not be accessed.", e);
+            // Unreachable code - needed so the compiler does not warn about a possibly uninitialized final field.
+            throw new AssertionError();
+        }
     }
 
+    // The handles bound to the Resolve instance of this compilation.
+    private final MethodHandle findMethodHandle;
+    private final MethodHandle findVarHandle;
+    private final MethodHandle findIdentInTypeHandle;
+    private final MethodHandle findTypeHandle;
+    private final MethodHandle getResolutionContextHandle;
+    private final MethodHandle setResolutionContextHandle;
+
+    /** The environment of the scope of each tree. */
+    private final Map<Tree, Env<AttrContext>> envCache =
+            CollectionUtils.createLRUCache(ENV_CACHE_SIZE);
+
+    /** The symbol that was found for each resolution, or {@code null} if none was. */
+    private final Map<ResolutionKey, /*@Nullable*/ Element> resolutionCache =
+            CollectionUtils.createLRUCache(RESOLUTION_CACHE_SIZE);
+
     public Resolver(ProcessingEnvironment env) {
         Context context = ((JavacProcessingEnvironment) env).getContext();
         this.resolve = Resolve.instance(context);
         this.names = Names.instance(context);
         this.trees = Trees.instance(env);
         this.log = Log.instance(context);
+
+        this.findMethodHandle = FIND_METHOD_HANDLE.bindTo(resolve);
+        this.findVarHandle = FIND_VAR_HANDLE.bindTo(resolve);
+        this.findIdentInTypeHandle = FIND_IDENT_IN_TYPE_HANDLE.bindTo(resolve);
+        this.findTypeHandle = FIND_TYPE_HANDLE.bindTo(resolve);
+        this.getResolutionContextHandle = GET_RESOLUTION_CONTEXT_HANDLE.bindTo(resolve);
+        this.setResolutionContextHandle = SET_RESOLUTION_CONTEXT_HANDLE.bindTo(resolve);
+    }
+
+    /** The kinds of lookups whose results are cached. */
+    private enum Lookup { FIELD, LOCAL_VARIABLE, CLASS, METHOD }
+
+    /**
+     * Identifies a lookup: its kind, the tree whose scope it is done in, the
+     * name, and the receiver and argument types if there are any. Trees are
+     * compared by identity; types with their own {@code equals}, which is
+     * identity for most javac types.
+     */
+    private static final class ResolutionKey {
+        private final Lookup lookup;
+        private final Tree scope;
+        private final String name;
+        private final /*@Nullable*/ TypeMirror site;
+        private final /*@Nullable*/ java.util.List<TypeMirror> argumentTypes;
+        private final int hash;
+
+        ResolutionKey(Lookup lookup, Tree scope, String name,
+                /*@Nullable*/ TypeMirror site,
+                /*@Nullable*/ java.util.List<TypeMirror> argumentTypes) {
+            this.lookup = lookup;
+            this.scope = scope;
+            this.name = name;
+            this.site = site;
+            this.argumentTypes = argumentTypes;
+            this.hash = Objects.hash(lookup, System.identityHashCode(scope),
+                    name, site, argumentTypes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof ResolutionKey)) {
+                return false;
+            }
+            ResolutionKey other = (ResolutionKey) obj;
+            return hash == other.hash
+                    && lookup == other.lookup
+                    && scope == other.scope
+                    && name.equals(other.name)
+                    && Objects.equals(site, other.site)
+                    && Objects.equals(argumentTypes, other.argumentTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /** Forget all cached scopes and resolved names. */
+    public void clearCache() {
+        envCache.clear();
+        resolutionCache.clear();
+    }
+
+    /**
+     * @return the environment of the local scope of {@code path}, which is
+     *         computed by javac only once per tree
+     */
+    private Env<AttrContext> getEnv(TreePath path) {
+        Tree leaf = path.getLeaf();
+        Env<AttrContext> env = envCache.get(leaf);
+        if (env == null) {
+            JavacScope scope = (JavacScope) trees.getScope(path);
+            env = scope.getEnv();
+            envCache.put(leaf, env);
+        }
+        return env;
     }
 
     /**
@@ -120,22 +290,35 @@ public class Resolver {
      * @return the element for the field
      */
     public VariableElement findField(String name, TypeMirror type, TreePath path) {
+        ResolutionKey key = new ResolutionKey(Lookup.FIELD, path.getLeaf(), name, type, null);
+        if (resolutionCache.containsKey(key)) {
+            return (VariableElement) resolutionCache.get(key);
+        }
         Log.DiagnosticHandler discardDiagnosticHandler =
             new Log.DiscardDiagnosticHandler(log);
         try {
-            JavacScope scope = (JavacScope) trees.getScope(path);
-            Env<AttrContext> env = scope.getEnv();
-            Element res = wrapInvocationOnResolveInstance(FIND_IDENT_IN_TYPE, env, type,
-                    names.fromString(name), VAR);
+            Env<AttrContext> env = getEnv(path);
+            Symbol res;
+            try {
+                res = (Symbol) findIdentInTypeHandle.invokeExact(env, (Type) type,
+                        names.fromString(name), VAR);
+                if (res.getKind() == ElementKind.OTHER && ACCESSERROR.isInstance(res)) {
+                    // Return the inaccessible field that was found
+                    res = (Symbol) ACCESSERROR_ACCESS_HANDLE.invokeExact(res,
+                            (Name) null, (TypeSymbol) null);
+                }
+            } catch (Throwable t) {
+                throw unexpected(t);
+            }
+            VariableElement result;
             if (res.getKind() == ElementKind.FIELD) {
-                return (VariableElement) res;
-            } else if (res.getKind() == ElementKind.OTHER && ACCESSERROR.isInstance(res)) {
-                // Return the inaccessible field that was found
-                return (VariableElement) wrapInvocation(res, ACCESSERROR_ACCESS, null, null);
+                result = (VariableElement) res;
             } else {
                 // Most likely didn't find the field and the Element is a SymbolNotFoundError
-                return null;
+                result = null;
             }
+            resolutionCache.put(key, result);
+            return result;
         } finally {
             log.popDiagnosticHandler(discardDiagnosticHandler);
         }
@@ -151,20 +334,30 @@ public class Resolver {
      * @return the element for the local variable
      */
     public VariableElement findLocalVariableOrParameter(String name, TreePath path) {
+        ResolutionKey key = new ResolutionKey(Lookup.LOCAL_VARIABLE, path.getLeaf(), name, null, null);
+        if (resolutionCache.containsKey(key)) {
+            return (VariableElement) resolutionCache.get(key);
+        }
         Log.DiagnosticHandler discardDiagnosticHandler =
             new Log.DiscardDiagnosticHandler(log);
         try {
-            JavacScope scope = (JavacScope) trees.getScope(path);
-            Env<AttrContext> env = scope.getEnv();
-            Element res = wrapInvocationOnResolveInstance(FIND_VAR, env,
-                    names.fromString(name));
+            Env<AttrContext> env = getEnv(path);
+            Symbol res;
+            try {
+                res = (Symbol) findVarHandle.invokeExact(env, names.fromString(name));
+            } catch (Throwable t) {
+                throw unexpected(t);
+            }
+            VariableElement result;
             if (res.getKind() == ElementKind.LOCAL_VARIABLE
              || res.getKind() == ElementKind.PARAMETER) {
-                return (VariableElement) res;
+                result = (VariableElement) res;
             } else {
                 // Most likely didn't find the variable and the Element is a SymbolNotFoundError
-                return null;
+                result = null;
             }
+            resolutionCache.put(key, result);
+            return result;
         } finally {
             log.popDiagnosticHandler(discardDiagnosticHandler);
         }
@@ -184,12 +377,22 @@ public class Resolver {
      * @return the element for the class
      */
     public Element findClass(String name, TreePath path) {
+        ResolutionKey key = new ResolutionKey(Lookup.CLASS, path.getLeaf(), name, null, null);
+        Element result = resolutionCache.get(key);
+        if (result != null) {
+            return result;
+        }
         Log.DiagnosticHandler discardDiagnosticHandler =
             new Log.DiscardDiagnosticHandler(log);
         try {
-            JavacScope scope = (JavacScope) trees.getScope(path);
-            Env<AttrContext> env = scope.getEnv();
-            return wrapInvocationOnResolveInstance(FIND_TYPE, env, names.fromString(name));
+            Env<AttrContext> env = getEnv(path);
+            try {
+                result = (Symbol) findTypeHandle.invokeExact(env, names.fromString(name));
+            } catch (Throwable t) {
+                throw unexpected(t);
+            }
+            resolutionCache.put(key, result);
+            return result;
         } finally {
             log.popDiagnosticHandler(discardDiagnosticHandler);
         }
@@ -213,11 +416,16 @@ public class Resolver {
      */
     public Element findMethod(String methodName, TypeMirror receiverType,
             TreePath path, java.util.List<TypeMirror> argumentTypes) {
+        ResolutionKey key = new ResolutionKey(Lookup.METHOD, path.getLeaf(), methodName,
+                receiverType, new ArrayList<TypeMirror>(argumentTypes));
+        Element cached = resolutionCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
         Log.DiagnosticHandler discardDiagnosticHandler =
             new Log.DiscardDiagnosticHandler(log);
         try {
-            JavacScope scope = (JavacScope) trees.getScope(path);
-            Env<AttrContext> env = scope.getEnv();
+            Env<AttrContext> env = getEnv(path);
 
             Type site = (Type) receiverType;
             Name name = names.fromString(methodName);
@@ -234,16 +442,19 @@ public class Resolver {
                 // For some reason we have to set our own method context, which is rather ugly.
                 // TODO: find a nicer way to do this.
                 Object methodContext = buildMethodContext();
-                Object oldContext = getField(resolve, "currentResolutionContext");
-                setField(resolve, "currentResolutionContext", methodContext);
-                Element result = wrapInvocationOnResolveInstance(FIND_METHOD, env, site, name, argtypes,
-                    typeargtypes, allowBoxing, useVarargs, operator);
-                setField(resolve, "currentResolutionContext", oldContext);
+                Object oldContext = getResolutionContextHandle.invokeExact();
+                setResolutionContextHandle.invokeExact(methodContext);
+                Element result;
+                try {
+                    result = (Symbol) findMethodHandle.invokeExact(env, site, name, argtypes,
+                        typeargtypes, allowBoxing, useVarargs, operator);
+                } finally {
+                    setResolutionContextHandle.invokeExact(oldContext);
+                }
+                resolutionCache.put(key, result);
                 return result;
             } catch (Throwable t) {
-                Error err = new AssertionError("Unexpected Reflection error");
-                err.initCause(t);
-                throw err;
+                throw unexpected(t);
             }
         } finally {
             log.popDiagnosticHandler(discardDiagnosticHandler);
@@ -286,25 +497,10 @@ public class Resolver {
         return f.get(receiver);
     }
 
-    private Symbol wrapInvocationOnResolveInstance(Method method, Object... args) {
-        return wrapInvocation(resolve, method, args);
-    }
-
-    private Symbol wrapInvocation(Object receiver, Method method, Object... args) {
-        try {
-            return (Symbol) method.invoke(receiver, args);
-        } catch (IllegalAccessException e) {
-            Error err = new AssertionError("Unexpected Reflection error");
-            err.initCause(e);
-            throw err;
-        } catch (IllegalArgumentException e) {
-            Error err = new AssertionError("Unexpected Reflection error");
-            err.initCause(e);
-            throw err;
-        } catch (InvocationTargetException e) {
-            Error err = new AssertionError("Unexpected Reflection error");
-            err.initCause(e);
-            throw err;
-        }
+    /** @return the error that reports a failed call of a javac method */
+    private static Error unexpected(Throwable t) {
+        Error err = new AssertionError("Unexpected Reflection error");
+        err.initCause(t);
+        return err;
     }
 }
@@ -0,0 +1,158 @@
+package org.checkerframework.javacutil;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+
+/**
+ * Memoizes the type hierarchy queries of {@link ElementUtils} and
+ * {@link TypesUtils} that only depend on a type element: the supertypes,
+ * fields and methods of a type, and whether it is a boxed primitive or a
+ * {@link Throwable}. The answers are computed by those classes the first
+ * time a type is asked about and then returned from a table, which may be
+ * used from several threads at once. The lists it returns are shared and
+ * cannot be modified.
+ *
+ * <p>
+ *
+ * There is one cache per compilation context; use
+ * {@link #instance(ProcessingEnvironment)} to obtain it. The hierarchy of a
+ * type does not change once it has been entered, but annotation processing
+ * rounds may replace type elements, so clients that keep the cache across
+ * rounds call {@link #clear()} at the start of each round, or
+ * {@link #invalidate(TypeElement)} for a single type.
+ */
+public class TypeHierarchyCache {
+
+    protected static final Context.Key<TypeHierarchyCache> typeHierarchyCacheKey =
+            new Context.Key<>();
+
+    protected final Elements elements;
+
+    protected final ConcurrentMap<TypeElement, List<TypeElement>> superTypes =
+            new ConcurrentHashMap<>();
+    protected final ConcurrentMap<TypeElement, List<VariableElement>> allFields =
+            new ConcurrentHashMap<>();
+    protected final ConcurrentMap<TypeElement, List<ExecutableElement>> allMethods =
+            new ConcurrentHashMap<>();
+    protected final ConcurrentMap<Element, Boolean> boxedPrimitives =
+            new ConcurrentHashMap<>();
+    protected final ConcurrentMap<Element, Boolean> throwables =
+            new ConcurrentHashMap<>();
+
+    protected TypeHierarchyCache(ProcessingEnvironment env) {
+        this.elements = env.getElementUtils();
+    }
+
+    /**
+     * @return the type hierarchy cache of the compilation context of
+     *         {@code env}, creating it on first use
+     */
+    public static TypeHierarchyCache instance(ProcessingEnvironment env) {
+        Context context = ((JavacProcessingEnvironment) env).getContext();
+        synchronized (context) {
+            TypeHierarchyCache instance = context.get(typeHierarchyCacheKey);
+            if (instance == null) {
+                instance = new TypeHierarchyCache(env);
+                context.put(typeHierarchyCacheKey, instance);
+            }
+            return instance;
+        }
+    }
+
+    /** @see ElementUtils#getSuperTypes(Elements, TypeElement) */
+    public List<TypeElement> getSuperTypes(TypeElement type) {
+        List<TypeElement> result = superTypes.get(type);
+        if (result == null) {
+            result = Collections.unmodifiableList(
+                    ElementUtils.getSuperTypes(elements, type));
+            superTypes.putIfAbsent(type, result);
+        }
+        return result;
+    }
+
+    /** @see ElementUtils#getAllFieldsIn(Elements, TypeElement) */
+    public List<VariableElement> getAllFieldsIn(TypeElement type) {
+        List<VariableElement> result = allFields.get(type);
+        if (result == null) {
+            result = Collections.unmodifiableList(
+                    ElementUtils.getAllFieldsIn(elements, type));
+            allFields.putIfAbsent(type, result);
+        }
+        return result;
+    }
+
+    /** @see ElementUtils#getAllMethodsIn(Elements, TypeElement) */
+    public List<ExecutableElement> getAllMethodsIn(TypeElement type) {
+        List<ExecutableElement> result = allMethods.get(type);
+        if (result == null) {
+            result = Collections.unmodifiableList(
+                    ElementUtils.getAllMethodsIn(elements, type));
+            allMethods.putIfAbsent(type, result);
+        }
+        return result;
+    }
+
+    /** @see TypesUtils#isBoxedPrimitive(TypeMirror) */
+    public boolean isBoxedPrimitive(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        Element elem = ((DeclaredType) type).asElement();
+        Boolean result = boxedPrimitives.get(elem);
+        if (result == null) {
+            result = TypesUtils.isBoxedPrimitive(type);
+            boxedPrimitives.putIfAbsent(elem, result);
+        }
+        return result;
+    }
+
+    /** @see TypesUtils#isThrowable(TypeMirror) */
+    public boolean isThrowable(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        Element elem = ((DeclaredType) type).asElement();
+        Boolean result = throwables.get(elem);
+        if (result == null) {
+            result = TypesUtils.isThrowable(type);
+            throwables.putIfAbsent(elem, result);
+        }
+        return result;
+    }
+
+    /**
+     * Forget everything that was computed for {@code type}. The entries of
+     * its subtypes, which may mention {@code type}, are kept.
+     */
+    public void invalidate(TypeElement type) {
+        superTypes.remove(type);
+        allFields.remove(type);
+        allMethods.remove(type);
+        boxedPrimitives.remove(type);
+        throwables.remove(type);
+    }
+
+    /** Forget everything that was computed. */
+    public void clear() {
+        superTypes.clear();
+        allFields.clear();
+        allMethods.clear();
+        boxedPrimitives.clear();
+        throwables.clear();
+    }
+}